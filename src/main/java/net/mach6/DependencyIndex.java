@@ -0,0 +1,302 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+
+package net.mach6;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import org.testng.ISuite;
+import org.testng.ITestNGMethod;
+
+/**
+ * Suite wide lookup of test methods by qualified method name and by group. It is built once per {@link ISuite} and
+ * shared by every {@link TestMethodInfo} of that suite, so resolving the methods depended upon no longer re-scans (and
+ * re-sorts) the entire suite for each method.
+ * <p>
+ * The index only looks at a method through a {@link MethodView}, so the same lookups serve the {@link ITestNGMethod}s
+ * TestNG hands over and the methods the static scanner reads from class files.
+ *
+ * @param <M>
+ *            the type of the indexed methods
+ */
+public class DependencyIndex<M> {
+    // characters which make a dependsOnMethods/dependsOnGroups value a regular expression. '$' is deliberately not
+    // here; TestNG treats it as a literal inner class separator.
+    private static final String REGEX_CHARS = "*+?[](){}|^\\";
+
+    /**
+     * What the index needs to know about a method
+     *
+     * @param <M>
+     *            the type of the method
+     */
+    public interface MethodView<M> {
+        /**
+         * @return the name dependsOnMethods values are matched against, i.e. declaring class name + "." + method name
+         */
+        String getQualifiedName(M method);
+
+        /**
+         * @return the method name without a class name
+         */
+        String getSimpleName(M method);
+
+        List<String> getGroups(M method);
+
+        /**
+         * @return the dependsOnMethods values of the method
+         */
+        List<String> getMethodsDependedUpon(M method);
+
+        /**
+         * @return the dependsOnGroups values of the method
+         */
+        List<String> getGroupsDependedUpon(M method);
+    }
+
+    /**
+     * The view of the methods TestNG hands over
+     */
+    public static final MethodView<ITestNGMethod> TESTNG_METHODS = new MethodView<ITestNGMethod>() {
+        @Override
+        public String getQualifiedName(ITestNGMethod method) {
+            return qualifiedName(method);
+        }
+
+        @Override
+        public String getSimpleName(ITestNGMethod method) {
+            return method.getMethodName();
+        }
+
+        @Override
+        public List<String> getGroups(ITestNGMethod method) {
+            return Arrays.asList(method.getGroups());
+        }
+
+        @Override
+        public List<String> getMethodsDependedUpon(ITestNGMethod method) {
+            return Arrays.asList(method.getMethodsDependedUpon());
+        }
+
+        @Override
+        public List<String> getGroupsDependedUpon(ITestNGMethod method) {
+            return Arrays.asList(method.getGroupsDependedUpon());
+        }
+    };
+
+    private final MethodView<M> view;
+    private final Map<String, List<M>> methodsByName = new HashMap<>();
+    private final Map<String, List<M>> methodsBySimpleName = new HashMap<>();
+    private final Map<String, List<M>> methodsByGroup = new HashMap<>();
+    private final Map<String, List<M>> regexMatches = new ConcurrentHashMap<>();
+    private final Map<M, List<M>> predecessors = new HashMap<>();
+
+    /**
+     * @param methods
+     *            the methods to index
+     * @param view
+     *            how to look at the methods
+     */
+    public DependencyIndex(Collection<M> methods, MethodView<M> view) {
+        if (methods == null) {
+            throw new IllegalArgumentException("The methods to index must not be null");
+        }
+        if (view == null) {
+            throw new IllegalArgumentException("The method view must not be null");
+        }
+
+        this.view = view;
+        for (M method : methods) {
+            put(methodsByName, view.getQualifiedName(method), method);
+            put(methodsBySimpleName, view.getSimpleName(method), method);
+            for (String group : view.getGroups(method)) {
+                put(methodsByGroup, group, method);
+            }
+        }
+        for (M method : methods) {
+            predecessors.put(method, resolvePredecessors(method));
+        }
+    }
+
+    /**
+     * @param suite
+     *            the suite whose methods to index
+     * @return the index of all methods of the suite
+     */
+    public static DependencyIndex<ITestNGMethod> of(ISuite suite) {
+        return of(suite.getAllMethods());
+    }
+
+    /**
+     * @param methods
+     *            the methods to index
+     * @return the index of the methods
+     */
+    public static DependencyIndex<ITestNGMethod> of(Collection<ITestNGMethod> methods) {
+        return new DependencyIndex<>(methods, TESTNG_METHODS);
+    }
+
+    private static <M> void put(Map<String, List<M>> map, String key, M method) {
+        List<M> methods = map.get(key);
+        if (methods == null) {
+            methods = new ArrayList<>(1);
+            map.put(key, methods);
+        }
+        methods.add(method);
+    }
+
+    /**
+     * @param method
+     *            the method to compute the name for
+     * @return the canonical name TestNG uses for dependsOnMethods values, i.e. declaring class name + "." + method name
+     */
+    public static String qualifiedName(ITestNGMethod method) {
+        return method.getConstructorOrMethod().getDeclaringClass().getName() + "." + method.getMethodName();
+    }
+
+    /**
+     * @param name
+     *            a qualified method name or dependsOnMethods regular expression
+     * @return the methods that match the name, or an empty list
+     */
+    public List<M> getMethodsNamed(String name) {
+        boolean usePackage = name.indexOf('.') != -1;
+        return lookup(usePackage ? methodsByName : methodsBySimpleName, name);
+    }
+
+    /**
+     * @param group
+     *            a group name or dependsOnGroups regular expression
+     * @return the methods that belong to the group, or an empty list
+     */
+    public List<M> getMethodsInGroup(String group) {
+        return lookup(methodsByGroup, group);
+    }
+
+    /**
+     * @param method
+     *            the method to get the dependencies for
+     * @return the methods this method directly depends upon, either by method name or by group
+     */
+    public List<M> getDirectPredecessors(M method) {
+        List<M> result = predecessors.get(method);
+        if (result == null) {
+            // This can happen if an interceptor returned new methods
+            result = resolvePredecessors(method);
+        }
+        return result;
+    }
+
+    /**
+     * Equivalent of {@link org.testng.internal.MethodHelper#getMethodsDependedUpon(ITestNGMethod, ITestNGMethod[])}
+     * but backed by this index. The cost is linear in the part of the graph which is upstream of the method.
+     *
+     * @param method
+     *            the method to get the dependencies for
+     * @return all methods the method depends upon, directly or transitively, including the method itself when it
+     *         depends on itself directly, by name or through one of its own groups
+     */
+    public List<M> getMethodsDependedUpon(M method) {
+        LinkedList<M> result = new LinkedList<>();
+        Set<M> visited = new HashSet<>();
+        LinkedList<M> queue = new LinkedList<>();
+        visited.add(method);
+        queue.addLast(method);
+
+        while (!queue.isEmpty()) {
+            for (M m : getDirectPredecessors(queue.removeFirst())) {
+                if (visited.add(m)) {
+                    queue.addLast(m);
+                    result.addFirst(m);
+                }
+            }
+        }
+        // the method is visited from the start, so a dependency on itself would be lost, and with it the cycle
+        if (getDirectPredecessors(method).contains(method)) {
+            result.addLast(method);
+        }
+        return result;
+    }
+
+    private List<M> resolvePredecessors(M method) {
+        List<String> methodsDependedUpon = view.getMethodsDependedUpon(method);
+        List<String> groupsDependedUpon = view.getGroupsDependedUpon(method);
+        if (methodsDependedUpon.isEmpty() && groupsDependedUpon.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<M> result = new ArrayList<>();
+        Set<M> seen = new HashSet<>();
+        for (String name : methodsDependedUpon) {
+            if (name == null) {
+                continue;
+            }
+            for (M m : getMethodsNamed(name)) {
+                if (seen.add(m)) {
+                    result.add(m);
+                }
+            }
+        }
+        for (String group : groupsDependedUpon) {
+            for (M m : getMethodsInGroup(group)) {
+                if (seen.add(m)) {
+                    result.add(m);
+                }
+            }
+        }
+        return result;
+    }
+
+    private List<M> lookup(Map<String, List<M>> map, String key) {
+        if (!isRegex(key)) {
+            List<M> found = map.get(key);
+            return (found == null) ? Collections.<M> emptyList() : found;
+        }
+
+        // each distinct expression is matched against the keys only once
+        String cacheKey = ((map == methodsByGroup) ? "g:" : "m:") + key;
+        List<M> found = regexMatches.get(cacheKey);
+        if (found == null) {
+            found = new ArrayList<>();
+            Pattern pattern = Pattern.compile(key.replace("$", "\\$"));
+            for (Map.Entry<String, List<M>> entry : map.entrySet()) {
+                if (pattern.matcher(entry.getKey()).matches()) {
+                    found.addAll(entry.getValue());
+                }
+            }
+            regexMatches.put(cacheKey, found);
+        }
+        return found;
+    }
+
+    /**
+     * @param value
+     *            a dependsOnMethods or dependsOnGroups value
+     * @return whether TestNG treats the value as a regular expression rather than a plain name
+     */
+    public static boolean isRegex(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (REGEX_CHARS.indexOf(value.charAt(i)) != -1) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+
+package net.mach6;
+
+import java.io.IOException;
+import java.util.BitSet;
+
+import net.mach6.graph.DependencyGraph;
+import net.mach6.graph.NodeKind;
+
+/**
+ * Helpers for streaming Graphviz .dot content to an {@link Appendable}
+ */
+public final class DotSupport {
+    private static final String HIGHLIGHT = "penwidth=3";
+    private static final String HIGHLIGHT_EDGE = "color=blue,penwidth=3";
+
+    private DotSupport() {
+        // utility class
+    }
+
+    /**
+     * @param dottable
+     *            the object to render
+     * @param asSubgraph
+     *            whether to return the dot content as a "subgraph g { ... }" entry
+     * @return the result of {@link Dottable#toDot(Appendable, boolean)} as a string
+     */
+    public static String toDot(Dottable dottable, boolean asSubgraph) {
+        StringBuilder result = new StringBuilder();
+        try {
+            dottable.toDot(result, asSubgraph);
+        } catch (IOException e) {
+            // a StringBuilder does not throw
+            throw new IllegalStateException(e);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Append a value as a double quoted dot ID
+     * 
+     * @param out
+     *            the destination
+     * @param value
+     *            the value to quote
+     * @return the destination
+     * @throws IOException
+     *             if the destination fails
+     */
+    public static Appendable appendQuoted(Appendable out, String value) throws IOException {
+        out.append('"');
+        appendEscaped(out, value);
+        return out.append('"');
+    }
+
+    /**
+     * Append a value for use inside a double quoted dot ID, escaping any double quotes and backslashes it contains
+     * 
+     * @param out
+     *            the destination
+     * @param value
+     *            the value to escape
+     * @return the destination
+     * @throws IOException
+     *             if the destination fails
+     */
+    public static Appendable appendEscaped(Appendable out, String value) throws IOException {
+        if (value == null) {
+            return out.append("null");
+        }
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append(value, start, i).append('\\').append(c);
+                start = i + 1;
+            }
+        }
+        return out.append(value, start, value.length());
+    }
+
+    /**
+     * Append a <code>"from" -&gt; "to";</code> statement
+     * 
+     * @param out
+     *            the destination
+     * @param from
+     *            the tail node
+     * @param to
+     *            the head node
+     * @throws IOException
+     *             if the destination fails
+     */
+    public static void appendEdge(Appendable out, String from, String to) throws IOException {
+        appendEdge(out, from, to, null);
+    }
+
+    /**
+     * Append a <code>"from" -&gt; "to"[attributes];</code> statement
+     * 
+     * @param out
+     *            the destination
+     * @param from
+     *            the source node
+     * @param to
+     *            the target node
+     * @param attributes
+     *            the attributes of the edge, or <code>null</code>
+     * @throws IOException
+     *             if the destination fails
+     */
+    public static void appendEdge(Appendable out, String from, String to, String attributes) throws IOException {
+        appendQuoted(out, from).append(" -> ");
+        appendQuoted(out, to);
+        if (attributes != null) {
+            out.append('[').append(attributes).append(']');
+        }
+        out.append(";\n");
+    }
+
+    /**
+     * Append a <code>"name"[attributes,label="prefix name"];</code> statement
+     * 
+     * @param out
+     *            the destination
+     * @param name
+     *            the node
+     * @param attributes
+     *            the attributes to add before the label, or <code>null</code>
+     * @param labelPrefix
+     *            the text to place before the name in the label, or <code>null</code> for no label
+     * @throws IOException
+     *             if the destination fails
+     */
+    public static void appendNode(Appendable out, String name, String attributes, String labelPrefix)
+            throws IOException {
+        appendNode(out, name, attributes, labelPrefix, null);
+    }
+
+    /**
+     * Append a <code>"name"[attributes,label="prefix name suffix"];</code> statement
+     * 
+     * @param out
+     *            the destination
+     * @param name
+     *            the node
+     * @param attributes
+     *            the attributes to add before the label, or <code>null</code>
+     * @param labelPrefix
+     *            the text to place before the name in the label, or <code>null</code>
+     * @param labelSuffix
+     *            the dot escaped text to place after the name in the label, or <code>null</code>. There is no label
+     *            if both the prefix and the suffix are <code>null</code>.
+     * @throws IOException
+     *             if the destination fails
+     */
+    public static void appendNode(Appendable out, String name, String attributes, String labelPrefix,
+            String labelSuffix) throws IOException {
+        appendQuoted(out, name).append('[');
+        if (attributes != null) {
+            out.append(attributes);
+        }
+        if (labelPrefix != null || labelSuffix != null) {
+            if (attributes != null) {
+                out.append(',');
+            }
+            out.append("label=\"").append((labelPrefix == null) ? "" : labelPrefix);
+            appendEscaped(out, name).append((labelSuffix == null) ? "" : labelSuffix).append('"');
+        }
+        out.append("];\n");
+    }
+
+    /**
+     * Append the node and edge statements of a graph, without the enclosing <code>digraph g { ... }</code>
+     * 
+     * @param out
+     *            the destination
+     * @param graph
+     *            the graph
+     * @throws IOException
+     *             if the destination fails
+     */
+    public static void appendGraph(Appendable out, DependencyGraph graph) throws IOException {
+        appendGraph(out, graph, new BitSet(), new BitSet());
+    }
+
+    /**
+     * Append the node and edge statements of a graph, drawing some of its nodes and edges with a heavier outline
+     * 
+     * @param out
+     *            the destination
+     * @param graph
+     *            the graph
+     * @param highlightedNodes
+     *            the ids of the nodes to highlight
+     * @param highlightedEdges
+     *            the ids of the edges to highlight
+     * @throws IOException
+     *             if the destination fails
+     */
+    public static void appendGraph(Appendable out, DependencyGraph graph, BitSet highlightedNodes,
+            BitSet highlightedEdges) throws IOException {
+        StringBuilder attributes = new StringBuilder();
+        for (int v = 0; v < graph.getNodeCount(); v++) {
+            NodeKind kind = graph.getKind(v);
+            Result result = graph.getResult(v);
+            long duration = graph.getDuration(v);
+            if (result == null && duration < 0 && !highlightedNodes.get(v) && kind == NodeKind.METHOD
+                    && graph.getInDegree(v) + graph.getOutDegree(v) > 0) {
+                // declared by its edges
+                continue;
+            }
+            attributes.setLength(0);
+            if (result != null) {
+                attributes.append(Result.getDotStyle(result));
+            }
+            if (kind.getShape() != null) {
+                attributes.append((attributes.length() == 0) ? "" : ",").append("shape=").append(kind.getShape());
+            }
+            if (kind.getPeripheries() > 1) {
+                attributes.append(",peripheries=").append(kind.getPeripheries());
+            }
+            if (highlightedNodes.get(v)) {
+                attributes.append((attributes.length() == 0) ? "" : ",").append(HIGHLIGHT);
+            }
+            appendNode(out, graph.getName(v), (attributes.length() == 0) ? null : attributes.toString(),
+                    kind.getLabelPrefix(), (duration < 0) ? null : "\\n" + duration + " ms");
+        }
+        for (int v = 0; v < graph.getNodeCount(); v++) {
+            for (int e = graph.getOutStart(v); e < graph.getOutEnd(v); e++) {
+                appendEdge(out, graph.getName(v), graph.getName(graph.getTarget(e)),
+                        highlightedEdges.get(e) ? HIGHLIGHT_EDGE : null);
+            }
+        }
+    }
+}
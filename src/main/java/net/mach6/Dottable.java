@@ -9,6 +9,8 @@
 
 package net.mach6;
 
+import java.io.IOException;
+
 public interface Dottable {
     /**
      * Return a Graphviz .dot representation of the object
@@ -19,4 +21,16 @@ public interface Dottable {
      *         represent for this object
      */
     String toDot(boolean asSubgraph);
+
+    /**
+     * Stream a Graphviz .dot representation of the object
+     * 
+     * @param out
+     *            the destination. It is neither flushed nor closed.
+     * @param asSubgraph
+     *            whether to write the dot content as a "subgraph g { ... }" entry
+     * @throws IOException
+     *             if the destination fails
+     */
+    void toDot(Appendable out, boolean asSubgraph) throws IOException;
 }
@@ -9,6 +9,19 @@
 
 package net.mach6;
 
+import java.io.IOException;
+import java.io.Writer;
+
 public interface JSONable {
     String toJSON();
+
+    /**
+     * Stream the JSON representation of the object
+     * 
+     * @param writer
+     *            the destination. It is neither flushed nor closed.
+     * @throws IOException
+     *             if the writer fails
+     */
+    void toJSON(Writer writer) throws IOException;
 }
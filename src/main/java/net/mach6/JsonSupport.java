@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+
+package net.mach6;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonIOException;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Holder for the single, thread safe, {@link Gson} instance used to serialize the report model. The model classes and
+ * {@link Result} are (de)serialized by hand written type adapters rather than by reflection. The output is identical
+ * to the reflective serialization of their {@link com.google.gson.annotations.Expose}d fields.
+ */
+public final class JsonSupport {
+    private static final Gson GSON = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().setPrettyPrinting()
+            .registerTypeAdapter(Result.class, Result.ADAPTER)
+            .registerTypeAdapter(TestSuiteInfo.class, TestSuiteInfo.ADAPTER)
+            .registerTypeAdapter(TestInfo.class, TestInfo.ADAPTER)
+            .registerTypeAdapter(TestClassInfo.class, TestClassInfo.ADAPTER)
+            .registerTypeAdapter(TestMethodInfo.class, TestMethodInfo.ADAPTER)
+            .create();
+    private static final Type REPORT_TYPE = new TypeToken<ConcurrentSkipListSet<TestSuiteInfo>>() {
+    }.getType();
+
+    private JsonSupport() {
+        // utility class
+    }
+
+    public static Gson getGson() {
+        return GSON;
+    }
+
+    /**
+     * Stream the pretty printed JSON representation of an object to a writer
+     * 
+     * @param src
+     *            the object to serialize
+     * @param writer
+     *            the destination. It is neither flushed nor closed.
+     * @throws IOException
+     *             if the writer fails
+     */
+    public static void toJson(Object src, Writer writer) throws IOException {
+        try {
+            GSON.toJson(src, writer);
+        } catch (JsonIOException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @param jsonable
+     *            the object to serialize
+     * @return the JSON representation of the object as a string
+     */
+    static String toJson(JSONable jsonable) {
+        StringWriter writer = new StringWriter();
+        try {
+            jsonable.toJSON(writer);
+        } catch (IOException e) {
+            // a StringWriter does not throw
+            throw new IllegalStateException(e);
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Read a report.json back into the model
+     * 
+     * @param reader
+     *            the source. It is not closed.
+     * @return the suites of the report
+     * @throws IOException
+     *             if the reader fails or the content is not a report
+     */
+    public static Set<TestSuiteInfo> readReport(Reader reader) throws IOException {
+        return fromJson(reader, REPORT_TYPE);
+    }
+
+    /**
+     * Read one of the per entity .json files back into the model
+     * 
+     * @param reader
+     *            the source. It is not closed.
+     * @param type
+     *            the model class the content represents
+     * @return the model object
+     * @throws IOException
+     *             if the reader fails or the content is not a model object
+     */
+    public static <T> T fromJson(Reader reader, Class<T> type) throws IOException {
+        return fromJson(reader, (Type) type);
+    }
+
+    private static <T> T fromJson(Reader reader, Type type) throws IOException {
+        try {
+            return GSON.fromJson(reader, type);
+        } catch (JsonIOException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            throw new IOException("Unable to read the report content", e);
+        }
+    }
+
+    static void writeString(JsonWriter out, String name, String value) throws IOException {
+        out.name(name);
+        out.value(value);
+    }
+
+    static void writeStrings(JsonWriter out, String name, Collection<String> values) throws IOException {
+        out.name(name);
+        if (values == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginArray();
+        for (String value : values) {
+            out.value(value);
+        }
+        out.endArray();
+    }
+
+    static String readString(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+
+    static List<String> readStrings(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        List<String> values = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            values.add(readString(in));
+        }
+        in.endArray();
+        return values;
+    }
+
+    static Set<String> readStringSet(JsonReader in) throws IOException {
+        List<String> values = readStrings(in);
+        return (values == null) ? null : new ConcurrentSkipListSet<>(values);
+    }
+}
@@ -9,19 +9,73 @@
 
 package net.mach6;
 
+import java.io.IOException;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
 public enum Result {
     SKIPPED, FAILED, PASSED;
 
+    static final TypeAdapter<Result> ADAPTER = new TypeAdapter<Result>() {
+        @Override
+        public void write(JsonWriter out, Result value) throws IOException {
+            out.value((value == null) ? null : value.name());
+        }
+
+        @Override
+        public Result read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            return Result.valueOf(in.nextString());
+        }
+    };
+
     public static String getDotStyle(Result result) {
+        String color = getColor(result);
+        return (color == null) ? "style=empty" : "style=filled,color=" + color;
+    }
+
+    /**
+     * @param result
+     *            the result, may be <code>null</code>
+     * @return the color a node with the result is drawn with, or <code>null</code> if it is not filled
+     */
+    public static String getColor(Result result) {
+        if (result == null) {
+            return null;
+        }
         switch (result) {
         case SKIPPED:
-            return "style=filled,color=yellow";
+            return "yellow";
         case FAILED:
-            return "style=filled,color=red";
+            return "red";
         case PASSED:
-            return "style=filled,color=green";
+            return "green";
         default:
-            return "style=empty";
+            return null;
+        }
+    }
+
+    /**
+     * @param a
+     *            a result, may be <code>null</code>
+     * @param b
+     *            another result of the same method, may be <code>null</code>
+     * @return the result which wins when a method has both, i.e. FAILED over SKIPPED over PASSED, the same precedence
+     *         the report applies to the result maps of a test
+     */
+    public static Result worst(Result a, Result b) {
+        if (a == null || b == null) {
+            return (a == null) ? b : a;
+        }
+        if (a == FAILED || b == FAILED) {
+            return FAILED;
         }
+        return (a == SKIPPED || b == SKIPPED) ? SKIPPED : PASSED;
     }
 }
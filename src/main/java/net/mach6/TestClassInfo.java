@@ -9,18 +9,88 @@
 
 package net.mach6;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.ConcurrentSkipListSet;
 
+import net.mach6.graph.DependencyGraph;
+import net.mach6.graph.EdgeKind;
+import net.mach6.graph.Graphable;
+import net.mach6.graph.NodeKind;
+
 import org.testng.ITestClass;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
 import com.google.gson.annotations.Expose;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+public class TestClassInfo implements Comparable<TestClassInfo>, Dottable, Graphable, JSONable,
+        Failable<TestMethodInfo>, Passable<TestMethodInfo>, Skipable<TestMethodInfo> {
+    static final TypeAdapter<TestClassInfo> ADAPTER = new TypeAdapter<TestClassInfo>() {
+        @Override
+        public void write(JsonWriter out, TestClassInfo value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            JsonSupport.writeString(out, "name", value.name);
+            out.name("testMethods");
+            if (value.testMethods == null) {
+                out.nullValue();
+            } else {
+                out.beginArray();
+                for (TestMethodInfo tm : value.testMethods) {
+                    TestMethodInfo.ADAPTER.write(out, tm);
+                }
+                out.endArray();
+            }
+            out.name("classResult");
+            Result.ADAPTER.write(out, value.classResult);
+            out.endObject();
+        }
 
-public class TestClassInfo implements Comparable<TestClassInfo>, Dottable, JSONable, Failable<TestMethodInfo>,
-        Passable<TestMethodInfo>, Skipable<TestMethodInfo> {
+        @Override
+        public TestClassInfo read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            TestClassInfo value = new TestClassInfo();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                case "name":
+                    value.name = JsonSupport.readString(in);
+                    break;
+                case "testMethods":
+                    if (in.peek() == JsonToken.NULL) {
+                        in.nextNull();
+                        break;
+                    }
+                    value.testMethods = new ConcurrentSkipListSet<>();
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        value.testMethods.add(TestMethodInfo.ADAPTER.read(in));
+                    }
+                    in.endArray();
+                    break;
+                case "classResult":
+                    value.classResult = Result.ADAPTER.read(in);
+                    break;
+                default:
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            value.countResults();
+            return value;
+        }
+    };
 
     @Expose
     private String name;
@@ -29,8 +99,17 @@ public class TestClassInfo implements Comparable<TestClassInfo>, Dottable, JSONa
     @Expose
     private Result classResult;
 
+    // test method results below this object; not serialized, they are recounted when a report is read
+    private int passedCount;
+    private int skippedCount;
+    private int failedCount;
+
     private ITestClass testClass;
 
+    private TestClassInfo() {
+        // for deserialization
+    }
+
     public TestClassInfo(ITestClass testClass, Set<TestMethodInfo> testMethods) {
         // TODO guard against null values being passed
 
@@ -41,9 +120,71 @@ public class TestClassInfo implements Comparable<TestClassInfo>, Dottable, JSONa
         if (testMethods == null) {
             this.testMethods = new ConcurrentSkipListSet<>();
         }
+        countResults();
+        setTestResult();
+    }
+
+    /**
+     * Build a class from data which was already collected, without a reference to an {@link ITestClass}
+     * 
+     * @param name
+     *            the name of the class
+     * @param testMethods
+     *            the test methods of the class
+     */
+    public TestClassInfo(String name, Set<TestMethodInfo> testMethods) {
+        if (name == null || testMethods == null) {
+            throw new IllegalArgumentException("The name and the test methods of a class must not be null");
+        }
+
+        this.name = name;
+        this.testMethods = testMethods;
+        countResults();
         setTestResult();
     }
 
+    /**
+     * Count the results of the test methods. Done once, when the object is built or read, so the aggregated results of
+     * a class, test and suite are computed bottom up in a single pass. A result set on a test method after the class
+     * is built is not counted.
+     */
+    private void countResults() {
+        if (getTestMethods() == null) {
+            return;
+        }
+        for (TestMethodInfo tm : getTestMethods()) {
+            Result result = tm.getResult();
+            if (result == Result.PASSED) {
+                passedCount++;
+            } else if (result == Result.SKIPPED) {
+                skippedCount++;
+            } else if (result == Result.FAILED) {
+                failedCount++;
+            }
+        }
+    }
+
+    /**
+     * @return the number of test methods below this one that passed
+     */
+    int getPassedCount() {
+        return passedCount;
+    }
+
+    /**
+     * @return the number of test methods below this one that were skipped
+     */
+    int getSkippedCount() {
+        return skippedCount;
+    }
+
+    /**
+     * @return the number of test methods below this one that failed
+     */
+    int getFailedCount() {
+        return failedCount;
+    }
+
     private void setTestResult() {
         classResult = Result.PASSED;
         if (hasSkips()) {
@@ -80,10 +221,29 @@ public class TestClassInfo implements Comparable<TestClassInfo>, Dottable, JSONa
         return name;
     }
 
+    /**
+     * @return the {@link ITestClass} this was built from, or <code>null</code> if it was read from a report or
+     *         {@link #detach() detached}
+     */
     public ITestClass getTestClass() {
         return testClass;
     }
 
+    /**
+     * Drop the reference to the {@link ITestClass} this was built from, and those of the test methods below it. The
+     * serialized content is not affected, but the TestNG objects, and the test instances they hold, are no longer kept
+     * alive by the report model.
+     */
+    public void detach() {
+        testClass = null;
+        if (getTestMethods() == null) {
+            return;
+        }
+        for (TestMethodInfo child : getTestMethods()) {
+            child.detach();
+        }
+    }
+
     public Set<TestMethodInfo> getTestMethods() {
         return testMethods;
     }
@@ -98,99 +258,84 @@ public class TestClassInfo implements Comparable<TestClassInfo>, Dottable, JSONa
 
     @Override
     public String toDot(boolean asSubgraph) {
+        return DotSupport.toDot(this, asSubgraph);
+    }
+
+    @Override
+    public void toDot(Appendable out, boolean asSubgraph) throws IOException {
         if (asSubgraph &&
                 getTestMethods().isEmpty()) {
-            return "";
+            return;
         }
 
-        Set<String> visited = new HashSet<>();
-        String formattedName = String.valueOf(hashCode() < 0 ? System.currentTimeMillis() : hashCode());
-        StringBuilder result = new StringBuilder((asSubgraph) ? "subgraph class" + formattedName : "digraph g");
-        result.append(" {\n");
+        String formattedName = Integer.toHexString(hashCode());
+        if (asSubgraph) {
+            out.append("subgraph class").append(formattedName);
+        } else {
+            out.append("digraph g");
+        }
+        out.append(" {\n");
+        DotSupport.appendGraph(out, DependencyGraph.of(this));
+        out.append("}\n");
+    }
 
-        result.append("\"" + getName() + "\"[shape=box,label=\"Class: " + getName() + "\"];\n");
+    @Override
+    public int addTo(DependencyGraph.Builder graph) {
+        int id = graph.addNode(getName(), NodeKind.CLASS, getResult());
         for (TestMethodInfo tmi : getTestMethods()) {
-            String methodName = tmi.getMethodName();
-            if (!visited.contains(methodName)) {
-                result.append("\"" + methodName + "\"["+ Result.getDotStyle(tmi.getResult()) + "];\n");
-                result.append("\"" + getName() + "\" -> \"" + methodName + "\";\n");
-                result.append(tmi.toDot(true));
-                visited.add(methodName);
-            }
+            graph.addEdge(id, tmi.addTo(graph), EdgeKind.CONTAINS);
         }
-
-        result.append("}\n");
-
-        return result.toString();
+        return id;
     }
 
     @Override
     public String toJSON() {
-        Gson gson = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().setPrettyPrinting().create();
-        return gson.toJson(this);
+        return JsonSupport.toJson(this);
+    }
+
+    @Override
+    public void toJSON(Writer writer) throws IOException {
+        JsonSupport.toJson(this, writer);
     }
 
     @Override
     public boolean hasPassed() {
-        for (TestMethodInfo tm : getTestMethods()) {
-            if (tm.getResult() == Result.PASSED) {
-                return true;
-            }
-        }
-        return false;
+        return passedCount > 0;
     }
 
     @Override
     public Set<TestMethodInfo> getPassed() {
-        Set<TestMethodInfo> passed = new HashSet<>();
-        for (TestMethodInfo tm : getTestMethods()) {
-            if (tm.getResult() == Result.PASSED) {
-                passed.add(tm);
-            }
-        }
-        return passed;
+        return filter(Result.PASSED);
     }
 
     @Override
     public boolean hasSkips() {
-        for (TestMethodInfo tm : getTestMethods()) {
-            if (tm.getResult() == Result.SKIPPED) {
-                return true;
-            }
-        }
-        return false;
+        return skippedCount > 0;
     }
 
     @Override
     public Set<TestMethodInfo> getSkips() {
-        Set<TestMethodInfo> skipped = new HashSet<>();
-        for (TestMethodInfo tm : getTestMethods()) {
-            if (tm.getResult() == Result.SKIPPED) {
-                skipped.add(tm);
-            }
-        }
-        return skipped;
+        return filter(Result.SKIPPED);
     }
 
     @Override
     public boolean hasFailures() {
-        for (TestMethodInfo tm : getTestMethods()) {
-            if (tm.getResult() == Result.FAILED) {
-                return true;
-            }
-        }
-        return false;
+        return failedCount > 0;
     }
 
     @Override
     public Set<TestMethodInfo> getFailures() {
-        Set<TestMethodInfo> failed = new HashSet<>();
-        for (TestMethodInfo tm : getTestMethods()) {
-            if (tm.getResult() == Result.FAILED) {
-                failed.add(tm);
+        return filter(Result.FAILED);
+    }
+
+    private Set<TestMethodInfo> filter(Result result) {
+        Set<TestMethodInfo> filtered = new HashSet<>();
+        for (TestMethodInfo child : getTestMethods()) {
+            if (child.getResult() == result) {
+                filtered.add(child);
             }
         }
-        return failed;
+        return filtered;
     }
 
     public Result getResult() {
@@ -9,22 +9,110 @@
 
 package net.mach6;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentSkipListSet;
 
+import net.mach6.graph.DependencyGraph;
+import net.mach6.graph.EdgeKind;
+import net.mach6.graph.Graphable;
+import net.mach6.graph.NodeKind;
+
+import org.testng.IResultMap;
 import org.testng.ITestClass;
 import org.testng.ITestContext;
 import org.testng.ITestNGMethod;
+import org.testng.ITestResult;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
 import com.google.gson.annotations.Expose;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
-public class TestInfo implements Comparable<TestInfo>, Dottable, JSONable, Failable<TestClassInfo>,
+public class TestInfo implements Comparable<TestInfo>, Dottable, Graphable, JSONable, Failable<TestClassInfo>,
         Passable<TestClassInfo>, Skipable<TestClassInfo> {
+    static final TypeAdapter<TestInfo> ADAPTER = new TypeAdapter<TestInfo>() {
+        @Override
+        public void write(JsonWriter out, TestInfo value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            JsonSupport.writeString(out, "name", value.name);
+            out.name("preserveOrder");
+            out.value(value.preserveOrder);
+            JsonSupport.writeString(out, "parallel", value.parallel);
+            out.name("testClasses");
+            if (value.testClasses == null) {
+                out.nullValue();
+            } else {
+                out.beginArray();
+                for (TestClassInfo tc : value.testClasses) {
+                    TestClassInfo.ADAPTER.write(out, tc);
+                }
+                out.endArray();
+            }
+            JsonSupport.writeStrings(out, "testGroups", value.testGroups);
+            out.name("testResult");
+            Result.ADAPTER.write(out, value.testResult);
+            out.endObject();
+        }
+
+        @Override
+        public TestInfo read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            TestInfo value = new TestInfo();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                case "name":
+                    value.name = JsonSupport.readString(in);
+                    break;
+                case "preserveOrder":
+                    value.preserveOrder = in.nextBoolean();
+                    break;
+                case "parallel":
+                    value.parallel = JsonSupport.readString(in);
+                    break;
+                case "testClasses":
+                    if (in.peek() == JsonToken.NULL) {
+                        in.nextNull();
+                        break;
+                    }
+                    value.testClasses = new ConcurrentSkipListSet<>();
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        value.testClasses.add(TestClassInfo.ADAPTER.read(in));
+                    }
+                    in.endArray();
+                    break;
+                case "testGroups":
+                    value.testGroups = JsonSupport.readStrings(in);
+                    break;
+                case "testResult":
+                    value.testResult = Result.ADAPTER.read(in);
+                    break;
+                default:
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            value.countResults();
+            return value;
+        }
+    };
 
     @Expose
     private String name;
@@ -39,13 +127,30 @@ public class TestInfo implements Comparable<TestInfo>, Dottable, JSONable, Faila
     @Expose
     private Result testResult;
 
+    // test method results below this object; not serialized, they are recounted when a report is read
+    private int passedCount;
+    private int skippedCount;
+    private int failedCount;
+
     private ITestContext testContext;
+    private DependencyIndex<ITestNGMethod> index;
+    private Map<ITestNGMethod, Result> methodResults;
+    private Map<ITestNGMethod, List<ITestResult>> methodInvocations;
+
+    private TestInfo() {
+        // for deserialization
+    }
 
     public TestInfo(ITestContext testContext) {
         this(testContext, null);
     }
 
     public TestInfo(ITestContext testContext, Set<TestClassInfo> testClasses) {
+        this(testContext, testClasses, null);
+    }
+
+    public TestInfo(ITestContext testContext, Set<TestClassInfo> testClasses,
+            DependencyIndex<ITestNGMethod> index) {
         // TODO guard against null values being passed
 
         this.testContext = testContext;
@@ -54,13 +159,80 @@ public class TestInfo implements Comparable<TestInfo>, Dottable, JSONable, Faila
         this.parallel = testContext.getCurrentXmlTest().getParallel().toString();
         this.testClasses = testClasses;
         this.testGroups = Arrays.asList(testContext.getIncludedGroups());
+        this.index = index;
 
         if (testClasses == null) {
             buildTestClasses();
         }
+        this.index = null;
+        countResults();
+        setTestResult();
+    }
+
+    /**
+     * Build a test from data which was already collected, without a reference to an {@link ITestContext}
+     * 
+     * @param name
+     *            the name of the test
+     * @param preserveOrder
+     *            the preserve-order setting of the test
+     * @param parallel
+     *            the parallel mode of the test
+     * @param testGroups
+     *            the groups included in the test
+     * @param testClasses
+     *            the classes of the test
+     */
+    public TestInfo(String name, boolean preserveOrder, String parallel, List<String> testGroups,
+            Set<TestClassInfo> testClasses) {
+        if (name == null || testClasses == null) {
+            throw new IllegalArgumentException("The name and the test classes of a test must not be null");
+        }
+
+        this.name = name;
+        this.preserveOrder = preserveOrder;
+        this.parallel = parallel;
+        this.testGroups = testGroups;
+        this.testClasses = testClasses;
+        countResults();
         setTestResult();
     }
 
+    /**
+     * Sum the test method results already counted by the children. Done once, when the object is built or read.
+     */
+    private void countResults() {
+        if (getTestClasses() == null) {
+            return;
+        }
+        for (TestClassInfo child : getTestClasses()) {
+            passedCount += child.getPassedCount();
+            skippedCount += child.getSkippedCount();
+            failedCount += child.getFailedCount();
+        }
+    }
+
+    /**
+     * @return the number of test methods below this one that passed
+     */
+    int getPassedCount() {
+        return passedCount;
+    }
+
+    /**
+     * @return the number of test methods below this one that were skipped
+     */
+    int getSkippedCount() {
+        return skippedCount;
+    }
+
+    /**
+     * @return the number of test methods below this one that failed
+     */
+    int getFailedCount() {
+        return failedCount;
+    }
+
     private void setTestResult() {
         testResult = Result.PASSED;
         if (hasSkips()) {
@@ -73,23 +245,45 @@ public class TestInfo implements Comparable<TestInfo>, Dottable, JSONable, Faila
 
     private void buildTestClasses() {
         testClasses = new ConcurrentSkipListSet<>();
+        if (index == null) {
+            index = DependencyIndex.of(testContext.getSuite());
+        }
 
-        // Get all the Methods in the test context
-        Set<ITestNGMethod> allMethods = new HashSet<>();
+        // Get all the Methods in the test context, along with their result
+        methodInvocations = new IdentityHashMap<>();
+        methodResults = classifyTestMethods();
+        Map<ITestClass, List<ITestNGMethod>> methodsByClass = bucketTestMethods(methodResults.keySet());
 
-        allMethods.addAll(testContext.getPassedTests().getAllMethods());
-        allMethods.addAll(testContext.getFailedButWithinSuccessPercentageTests().getAllMethods());
-        allMethods.addAll(testContext.getFailedTests().getAllMethods());
-        allMethods.addAll(testContext.getSkippedTests().getAllMethods());
+        for (Map.Entry<ITestClass, List<ITestNGMethod>> bucket : methodsByClass.entrySet()) {
+            testClasses.add(new TestClassInfo(bucket.getKey(), buildTestMethods(bucket.getValue())));
+        }
+        methodResults = null;
+        methodInvocations = null;
+    }
 
-        Set<ITestClass> visitedClasses = new HashSet<>();
-        for (ITestNGMethod testMethod : allMethods) {
-            ITestClass testClass = testMethod.getTestClass();
-            if (!visitedClasses.contains(testClass)) {
-                testClasses.add(new TestClassInfo(testMethod.getTestClass(),
-                        filterTestMethods(testMethod.getTestClass(), allMethods)));
-                visitedClasses.add(testClass);
+    /**
+     * Classify every method of the test context in one pass over its result maps. The maps are applied in increasing
+     * order of precedence, so a method which failed in any invocation is FAILED, otherwise one that was skipped in any
+     * invocation is SKIPPED, otherwise it is PASSED. The invocations of each method are collected in the same pass.
+     */
+    private Map<ITestNGMethod, Result> classifyTestMethods() {
+        Map<ITestNGMethod, Result> results = new IdentityHashMap<>();
+        classifyTestMethods(results, testContext.getPassedTests(), Result.PASSED);
+        classifyTestMethods(results, testContext.getFailedButWithinSuccessPercentageTests(), Result.PASSED);
+        classifyTestMethods(results, testContext.getSkippedTests(), Result.SKIPPED);
+        classifyTestMethods(results, testContext.getFailedTests(), Result.FAILED);
+        return results;
+    }
+
+    private void classifyTestMethods(Map<ITestNGMethod, Result> results, IResultMap resultMap, Result result) {
+        for (ITestResult testResult : resultMap.getAllResults()) {
+            results.put(testResult.getMethod(), result);
+            List<ITestResult> invocations = methodInvocations.get(testResult.getMethod());
+            if (invocations == null) {
+                invocations = new ArrayList<>(1);
+                methodInvocations.put(testResult.getMethod(), invocations);
             }
+            invocations.add(testResult);
         }
     }
 
@@ -115,32 +309,79 @@ public class TestInfo implements Comparable<TestInfo>, Dottable, JSONable, Faila
         return true;
     }
 
-    private Set<TestMethodInfo> filterTestMethods(ITestClass testClass, Set<ITestNGMethod> allMethods) {
-        Set<TestMethodInfo> testMethods = new ConcurrentSkipListSet<>();
+    /**
+     * Group the methods by their test class, in a single pass
+     */
+    private static Map<ITestClass, List<ITestNGMethod>> bucketTestMethods(Set<ITestNGMethod> allMethods) {
+        Map<ITestClass, List<ITestNGMethod>> methodsByClass = new IdentityHashMap<>();
         for (ITestNGMethod testMethod : allMethods) {
-            if ((testMethod.getTestClass() == testClass) && (testMethod.getEnabled())) {
-                TestMethodInfo toAdd = new TestMethodInfo(testMethod, testContext.getSuite());
+            List<ITestNGMethod> bucket = methodsByClass.get(testMethod.getTestClass());
+            if (bucket == null) {
+                bucket = new ArrayList<>();
+                methodsByClass.put(testMethod.getTestClass(), bucket);
+            }
+            bucket.add(testMethod);
+        }
+        return methodsByClass;
+    }
+
+    /**
+     * Build the test methods of one class. Only reads state which is shared by all classes, so the classes of a test
+     * may be built independently of each other.
+     */
+    private Set<TestMethodInfo> buildTestMethods(List<ITestNGMethod> classMethods) {
+        Set<TestMethodInfo> testMethods = new ConcurrentSkipListSet<>();
+        for (ITestNGMethod testMethod : classMethods) {
+            if (testMethod.getEnabled()) {
+                TestMethodInfo toAdd = new TestMethodInfo(testMethod, index);
                 toAdd.setResult(determineTestMethodResult(testMethod));
+                addInvocations(toAdd, testMethod);
                 testMethods.add(toAdd);
             }
         }
         return testMethods;
     }
 
-    private Result determineTestMethodResult(ITestNGMethod testMethod) {
-        if (testContext.getFailedTests().getAllMethods().contains(testMethod)) {
-            return Result.FAILED;
+    private void addInvocations(TestMethodInfo methodInfo, ITestNGMethod testMethod) {
+        List<ITestResult> invocations = methodInvocations.get(testMethod);
+        if (invocations == null) {
+            return;
         }
-        if (testContext.getSkippedTests().getAllMethods().contains(testMethod)) {
-            return Result.SKIPPED;
+        // TestNG only keeps the thread of the latest invocation, in the id of the method
+        String thread = TestMethodInfo.getThreadName(testMethod.getId());
+        for (ITestResult invocation : invocations) {
+            methodInfo.addInvocation(invocation.getStartMillis(), invocation.getEndMillis(), thread);
         }
-        return Result.PASSED;
     }
 
+    private Result determineTestMethodResult(ITestNGMethod testMethod) {
+        Result result = methodResults.get(testMethod);
+        return (result == null) ? Result.PASSED : result;
+    }
+
+    /**
+     * @return the {@link ITestContext} this was built from, or <code>null</code> if it was read from a report or
+     *         {@link #detach() detached}
+     */
     public ITestContext getITestContext() {
         return testContext;
     }
 
+    /**
+     * Drop the reference to the {@link ITestContext} this was built from, and those of the test classes below it. The
+     * serialized content is not affected, but the TestNG objects, and the test instances they hold, are no longer kept
+     * alive by the report model.
+     */
+    public void detach() {
+        testContext = null;
+        if (getTestClasses() == null) {
+            return;
+        }
+        for (TestClassInfo child : getTestClasses()) {
+            child.detach();
+        }
+    }
+
     public String getName() {
         return name;
     }
@@ -171,102 +412,89 @@ public class TestInfo implements Comparable<TestInfo>, Dottable, JSONable, Faila
 
     @Override
     public String toDot(boolean asSubgraph) {
+        return DotSupport.toDot(this, asSubgraph);
+    }
+
+    @Override
+    public void toDot(Appendable out, boolean asSubgraph) throws IOException {
         // nothing to add
         if (asSubgraph &&
                 getTestClasses().isEmpty() &&
                 getTestGroups().isEmpty()) {
-            return "";
+            return;
         }
 
-        Set<String> visited = new HashSet<>();
-        String formattedName = String.valueOf(hashCode() < 0 ? System.currentTimeMillis() : hashCode());
-        formattedName = formattedName.replace(".", "");
-        StringBuilder result = new StringBuilder((asSubgraph) ? "subgraph test" + formattedName : "digraph g");
-        result.append(" {\n");
+        String formattedName = Integer.toHexString(hashCode());
+        if (asSubgraph) {
+            out.append("subgraph test").append(formattedName);
+        } else {
+            out.append("digraph g");
+        }
+        out.append(" {\n");
+        DotSupport.appendGraph(out, DependencyGraph.of(this));
+        out.append("}\n");
+    }
+
+    @Override
+    public int addTo(DependencyGraph.Builder graph) {
+        int id = graph.addNode(getName(), NodeKind.TEST, getResult());
         for (TestClassInfo tc : getTestClasses()) {
-            if (!visited.contains(tc.getName())) {
-                result.append("\"" + tc.getName() + "\"[" + Result.getDotStyle(tc.getResult()) + "];\n");
-                result.append("\"" + getName() + "\" -> \"" + tc.getName() + "\";\n");
-                result.append(tc.toDot(true));
-                visited.add(tc.getName());
-            }
+            graph.addEdge(id, tc.addTo(graph), EdgeKind.CONTAINS);
         }
         for (String group : getTestGroups()) {
-            result.append("\"" + group + "\"[shape=cds,label=\"Group: " + group + "\"];\n");
-            result.append("\"" + getName() + "\" -> \"" + group + "\";\n");
+            graph.addEdge(id, graph.addNode(group, NodeKind.GROUP, null), EdgeKind.CONTAINS);
         }
-        result.append("}\n");
-
-        return result.toString();
+        return id;
     }
 
     @Override
     public String toJSON() {
-        Gson gson = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().setPrettyPrinting().create();
-        return gson.toJson(this);
+        return JsonSupport.toJson(this);
+    }
+
+    @Override
+    public void toJSON(Writer writer) throws IOException {
+        JsonSupport.toJson(this, writer);
     }
 
     @Override
     public boolean hasPassed() {
-        for (TestClassInfo tc : getTestClasses()) {
-            if (tc.hasPassed()) {
-                return true;
-            }
-        }
-        return false;
+        return passedCount > 0;
     }
 
     @Override
     public Set<TestClassInfo> getPassed() {
-        Set<TestClassInfo> passed = new HashSet<>();
-        for (TestClassInfo tc : getTestClasses()) {
-            if (tc.getResult() == Result.PASSED) {
-                passed.add(tc);
-            }
-        }
-        return passed;
+        return filter(Result.PASSED);
     }
 
     @Override
     public boolean hasSkips() {
-        for (TestClassInfo tc : getTestClasses()) {
-            if (tc.hasSkips()) {
-                return true;
-            }
-        }
-        return false;
+        return skippedCount > 0;
     }
 
     @Override
     public Set<TestClassInfo> getSkips() {
-        Set<TestClassInfo> skipped = new HashSet<>();
-        for (TestClassInfo tc : getTestClasses()) {
-            if (tc.getResult() == Result.SKIPPED) {
-                skipped.add(tc);
-            }
-        }
-        return skipped;
+        return filter(Result.SKIPPED);
     }
 
     @Override
     public boolean hasFailures() {
-        for (TestClassInfo tc : getTestClasses()) {
-            if (tc.hasFailures()) {
-                return true;
-            }
-        }
-        return false;
+        return failedCount > 0;
     }
 
     @Override
     public Set<TestClassInfo> getFailures() {
-        Set<TestClassInfo> failed = new HashSet<>();
-        for (TestClassInfo tc : getTestClasses()) {
-            if (tc.getResult() == Result.FAILED) {
-                failed.add(tc);
+        return filter(Result.FAILED);
+    }
+
+    private Set<TestClassInfo> filter(Result result) {
+        Set<TestClassInfo> filtered = new HashSet<>();
+        for (TestClassInfo child : getTestClasses()) {
+            if (child.getResult() == result) {
+                filtered.add(child);
             }
         }
-        return failed;
+        return filtered;
     }
 
     public Result getResult() {
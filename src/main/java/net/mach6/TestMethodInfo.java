@@ -9,19 +9,109 @@
 
 package net.mach6;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
+import net.mach6.graph.DependencyGraph;
+import net.mach6.graph.EdgeKind;
+import net.mach6.graph.Graphable;
+import net.mach6.graph.NodeKind;
+
 import org.testng.ISuite;
 import org.testng.ITestNGMethod;
-import org.testng.internal.MethodHelper;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
 import com.google.gson.annotations.Expose;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+public class TestMethodInfo implements Comparable<TestMethodInfo>, Dottable, Graphable, JSONable {
+    static final TypeAdapter<TestMethodInfo> ADAPTER = new TypeAdapter<TestMethodInfo>() {
+        @Override
+        public void write(JsonWriter out, TestMethodInfo value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            JsonSupport.writeString(out, "methodName", value.methodName);
+            JsonSupport.writeStrings(out, "groups", value.groups);
+            JsonSupport.writeStrings(out, "dependentGroups", value.dependentGroups);
+            JsonSupport.writeStrings(out, "beforeGroups", value.beforeGroups);
+            JsonSupport.writeStrings(out, "afterGroups", value.afterGroups);
+            JsonSupport.writeStrings(out, "dependentMethods", value.dependentMethods);
+            out.name("result");
+            Result.ADAPTER.write(out, value.result);
+            if (value.invocationCount > 0) {
+                out.name("invocationCount").value(value.invocationCount);
+                out.name("startMillis").value(value.startMillis);
+                out.name("endMillis").value(value.endMillis);
+                out.name("durationMillis").value(value.durationMillis);
+                JsonSupport.writeStrings(out, "threads", value.getThreads());
+            }
+            out.endObject();
+        }
+
+        @Override
+        public TestMethodInfo read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            TestMethodInfo value = new TestMethodInfo();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                case "methodName":
+                    value.methodName = JsonSupport.readString(in);
+                    break;
+                case "groups":
+                    value.groups = JsonSupport.readStrings(in);
+                    break;
+                case "dependentGroups":
+                    value.dependentGroups = JsonSupport.readStrings(in);
+                    break;
+                case "beforeGroups":
+                    value.beforeGroups = JsonSupport.readStrings(in);
+                    break;
+                case "afterGroups":
+                    value.afterGroups = JsonSupport.readStrings(in);
+                    break;
+                case "dependentMethods":
+                    value.dependentMethods = JsonSupport.readStrings(in);
+                    break;
+                case "result":
+                    value.result = Result.ADAPTER.read(in);
+                    break;
+                case "invocationCount":
+                    value.invocationCount = in.nextInt();
+                    break;
+                case "startMillis":
+                    value.startMillis = in.nextLong();
+                    break;
+                case "endMillis":
+                    value.endMillis = in.nextLong();
+                    break;
+                case "durationMillis":
+                    value.durationMillis = in.nextLong();
+                    break;
+                case "threads":
+                    value.threads = JsonSupport.readStrings(in);
+                    break;
+                default:
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            return value;
+        }
+    };
 
-public class TestMethodInfo implements Comparable<TestMethodInfo>, Dottable, JSONable {
     @Expose
     private String methodName;
     @Expose
@@ -36,17 +126,34 @@ public class TestMethodInfo implements Comparable<TestMethodInfo>, Dottable, JSO
     private List<String> dependentMethods;
     @Expose
     private Result result;
+    @Expose
+    private int invocationCount;
+    @Expose
+    private long startMillis;
+    @Expose
+    private long endMillis;
+    @Expose
+    private long durationMillis;
+    @Expose
+    private List<String> threads;
 
     private ITestNGMethod method;
 
+    private TestMethodInfo() {
+        // for deserialization
+    }
+
     public TestMethodInfo(ITestNGMethod method, ISuite suite) {
+        this(method, DependencyIndex.of(suite));
+    }
+
+    public TestMethodInfo(ITestNGMethod method, DependencyIndex<ITestNGMethod> index) {
         // TODO guard against null values being passed
 
         this.method = method;
         this.methodName = method.getTestClass().getName() + "." + method.getMethodName();
 
-        List<ITestNGMethod> methodsDependedUpon = MethodHelper.getMethodsDependedUpon(method, suite.getAllMethods()
-                .toArray(new ITestNGMethod[suite.getAllMethods().size()]));
+        List<ITestNGMethod> methodsDependedUpon = index.getMethodsDependedUpon(method);
 
         List<String> methodsDependedUponNames = new ArrayList<>();
         for (ITestNGMethod m : methodsDependedUpon) {
@@ -60,14 +167,150 @@ public class TestMethodInfo implements Comparable<TestMethodInfo>, Dottable, JSO
         this.afterGroups = Arrays.asList(method.getAfterGroups());
     }
 
+    /**
+     * Build a method from data which was already collected, without a reference to an {@link ITestNGMethod}. The
+     * method has no result.
+     * 
+     * @param methodName
+     *            the test class name + "." + the method name
+     * @param groups
+     *            the groups of the method
+     * @param dependentGroups
+     *            the groups the method depends upon
+     * @param beforeGroups
+     *            the groups the method runs before
+     * @param afterGroups
+     *            the groups the method runs after
+     * @param dependentMethods
+     *            the names of all methods the method depends upon, directly or transitively
+     */
+    public TestMethodInfo(String methodName, List<String> groups, List<String> dependentGroups,
+            List<String> beforeGroups, List<String> afterGroups, List<String> dependentMethods) {
+        if (methodName == null) {
+            throw new IllegalArgumentException("The name of a method must not be null");
+        }
+
+        this.methodName = methodName;
+        this.groups = groups;
+        this.dependentGroups = dependentGroups;
+        this.beforeGroups = beforeGroups;
+        this.afterGroups = afterGroups;
+        this.dependentMethods = dependentMethods;
+    }
+
     public Result getResult() {
         return result;
     }
 
+    /**
+     * Set the result of the method. The result is effectively immutable once the method is part of a
+     * {@link TestClassInfo}: the class, and the test and suite above it, count the results of their methods when they
+     * are built, so a later change is not reflected by their results or by <code>hasPassed</code>,
+     * <code>hasSkips</code> and <code>hasFailures</code>.
+     * 
+     * @param result
+     *            the result of the method
+     */
     public void setResult(Result result) {
         this.result = result;
     }
 
+    /**
+     * Add the timing of one invocation of the method. Safe to call from the threads which run the invocations.
+     * 
+     * @param start
+     *            when the invocation started, in milliseconds since the epoch
+     * @param end
+     *            when the invocation ended, in milliseconds since the epoch
+     * @param thread
+     *            the name of the thread which ran the invocation, or <code>null</code> if it is not known
+     */
+    public synchronized void addInvocation(long start, long end, String thread) {
+        addInvocations(1, start, end, Math.max(0, end - start));
+        if (thread != null) {
+            if (threads == null) {
+                threads = new ArrayList<>(1);
+            }
+            if (!threads.contains(thread)) {
+                threads.add(thread);
+            }
+        }
+    }
+
+    /**
+     * Add the timing of invocations which were already folded together, e.g. while reading them
+     * 
+     * @param count
+     *            the number of invocations, nothing is added if it is not positive
+     * @param start
+     *            when the first of the invocations started, in milliseconds since the epoch
+     * @param end
+     *            when the last of the invocations ended, in milliseconds since the epoch
+     * @param duration
+     *            the summed duration of the invocations, in milliseconds
+     */
+    public synchronized void addInvocations(int count, long start, long end, long duration) {
+        if (count <= 0) {
+            return;
+        }
+        if (invocationCount == 0 || start < startMillis) {
+            startMillis = start;
+        }
+        if (invocationCount == 0 || end > endMillis) {
+            endMillis = end;
+        }
+        durationMillis += duration;
+        invocationCount += count;
+    }
+
+    /**
+     * @return the number of invocations which were timed, 0 if the method did not run or was not timed
+     */
+    public synchronized int getInvocationCount() {
+        return invocationCount;
+    }
+
+    /**
+     * @return when the first invocation started, in milliseconds since the epoch
+     */
+    public synchronized long getStartMillis() {
+        return startMillis;
+    }
+
+    /**
+     * @return when the last invocation ended, in milliseconds since the epoch
+     */
+    public synchronized long getEndMillis() {
+        return endMillis;
+    }
+
+    /**
+     * @return the time spent in all invocations, or -1 if the method was not timed
+     */
+    public synchronized long getDurationMillis() {
+        return (invocationCount == 0) ? -1 : durationMillis;
+    }
+
+    /**
+     * @return the names of the threads which ran the invocations, in order of first use
+     */
+    public synchronized List<String> getThreads() {
+        return (threads == null) ? Collections.<String> emptyList() : new ArrayList<>(threads);
+    }
+
+    /**
+     * @param id
+     *            the id TestNG gives a method when it invokes it, i.e. thread name + "@" + thread hash code
+     * @return the thread name of the id, or <code>null</code> if there is none
+     */
+    public static String getThreadName(String id) {
+        if (id == null || id.isEmpty()) {
+            return null;
+        }
+        int at = id.lastIndexOf('@');
+        return (at < 0) ? id : id.substring(0, at);
+    }
+
     @Override
     public int compareTo(TestMethodInfo o) {
         return o.getMethodName().compareTo(getMethodName());
@@ -114,10 +357,28 @@ public class TestMethodInfo implements Comparable<TestMethodInfo>, Dottable, JSO
         return methodName;
     }
 
+    /**
+     * @return whether the method depends upon any method or group
+     */
+    public boolean hasDependencies() {
+        return !getDependentMethods().isEmpty() || !getDependentGroups().isEmpty();
+    }
+
+    /**
+     * @return the {@link ITestNGMethod} this was built from, or <code>null</code> if it was read from a report or
+     *         {@link #detach() detached}
+     */
     public ITestNGMethod getTestNGMethod() {
         return method;
     }
 
+    /**
+     * Drop the reference to the {@link ITestNGMethod} this was built from. The serialized content is not affected.
+     */
+    public void detach() {
+        method = null;
+    }
+
     @Override
     public int hashCode() {
         final int prime = 31;
@@ -128,30 +389,47 @@ public class TestMethodInfo implements Comparable<TestMethodInfo>, Dottable, JSO
 
     @Override
     public String toDot(boolean asSubgraph) {
-        if (asSubgraph &&
-                getDependentMethods().isEmpty() &&
-                getDependentGroups().isEmpty()) {
-            return "";
+        return DotSupport.toDot(this, asSubgraph);
+    }
+
+    @Override
+    public void toDot(Appendable out, boolean asSubgraph) throws IOException {
+        if (asSubgraph && !hasDependencies()) {
+            return;
         }
 
-        StringBuilder result = new StringBuilder((asSubgraph) ?
-                "subgraph method" + String.valueOf(hashCode() < 0 ? System.currentTimeMillis() : hashCode()) :
-                "digraph g");
-        result.append(" {\n");
+        String formattedName = Integer.toHexString(hashCode());
+        if (asSubgraph) {
+            out.append("subgraph method").append(formattedName);
+        } else {
+            out.append("digraph g");
+        }
+        out.append(" {\n");
+        if (hasDependencies()) {
+            DotSupport.appendGraph(out, DependencyGraph.of(this));
+        }
+        out.append("}\n");
+    }
+
+    @Override
+    public int addTo(DependencyGraph.Builder graph) {
+        int id = graph.addNode(getMethodName(), NodeKind.METHOD, getResult(), getDurationMillis());
         for (String method : getDependentMethods()) {
-            result.append("\"" + getMethodName() + "\" -> \"" + method + "\";\n");
+            graph.addEdge(id, graph.addNode(method, NodeKind.METHOD, null), EdgeKind.DEPENDS_ON);
         }
         for (String group : getDependentGroups()) {
-            result.append("\"" + group + "\"[shape=cds,label=\"Group: " + group + "\"];\n");
-            result.append("\"" + getMethodName() + "\" -> \"" + group + "\";\n");
+            graph.addEdge(id, graph.addNode(group, NodeKind.GROUP, null), EdgeKind.DEPENDS_ON);
         }
-        result.append("}\n");
-        return result.toString();
+        return id;
     }
 
     @Override
     public String toJSON() {
-        Gson gson = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().setPrettyPrinting().create();
-        return gson.toJson(this);
+        return JsonSupport.toJson(this);
+    }
+
+    @Override
+    public void toJSON(Writer writer) throws IOException {
+        JsonSupport.toJson(this, writer);
     }
 }
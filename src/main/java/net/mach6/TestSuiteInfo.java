@@ -9,21 +9,105 @@
 
 package net.mach6;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentSkipListSet;
 
+import net.mach6.graph.DependencyGraph;
+import net.mach6.graph.EdgeKind;
+import net.mach6.graph.Graphable;
+import net.mach6.graph.NodeKind;
+
 import org.testng.ISuite;
 import org.testng.ISuiteResult;
+import org.testng.ITestNGMethod;
 import org.testng.xml.XmlSuite;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
 import com.google.gson.annotations.Expose;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
-public class TestSuiteInfo implements Comparable<TestSuiteInfo>, Dottable, JSONable, Failable<TestInfo>,
+public class TestSuiteInfo implements Comparable<TestSuiteInfo>, Dottable, Graphable, JSONable, Failable<TestInfo>,
         Skipable<TestInfo>, Passable<TestInfo> {
+    static final TypeAdapter<TestSuiteInfo> ADAPTER = new TypeAdapter<TestSuiteInfo>() {
+        @Override
+        public void write(JsonWriter out, TestSuiteInfo value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            JsonSupport.writeString(out, "parallel", value.parallel);
+            JsonSupport.writeString(out, "name", value.name);
+            out.name("preserveOrder");
+            out.value(value.preserveOrder);
+            out.name("tests");
+            if (value.tests == null) {
+                out.nullValue();
+            } else {
+                out.beginArray();
+                for (TestInfo ti : value.tests) {
+                    TestInfo.ADAPTER.write(out, ti);
+                }
+                out.endArray();
+            }
+            JsonSupport.writeStrings(out, "childSuites", value.childSuites);
+            out.name("suiteResult");
+            Result.ADAPTER.write(out, value.suiteResult);
+            out.endObject();
+        }
+
+        @Override
+        public TestSuiteInfo read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            TestSuiteInfo value = new TestSuiteInfo();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                case "parallel":
+                    value.parallel = JsonSupport.readString(in);
+                    break;
+                case "name":
+                    value.name = JsonSupport.readString(in);
+                    break;
+                case "preserveOrder":
+                    value.preserveOrder = in.nextBoolean();
+                    break;
+                case "tests":
+                    if (in.peek() == JsonToken.NULL) {
+                        in.nextNull();
+                        break;
+                    }
+                    value.tests = new ConcurrentSkipListSet<>();
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        value.tests.add(TestInfo.ADAPTER.read(in));
+                    }
+                    in.endArray();
+                    break;
+                case "childSuites":
+                    value.childSuites = JsonSupport.readStringSet(in);
+                    break;
+                case "suiteResult":
+                    value.suiteResult = Result.ADAPTER.read(in);
+                    break;
+                default:
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            value.countResults();
+            return value;
+        }
+    };
 
     @Expose
     private String parallel;
@@ -38,8 +122,17 @@ public class TestSuiteInfo implements Comparable<TestSuiteInfo>, Dottable, JSONa
     @Expose
     private Result suiteResult;
 
+    // test method results below this object; not serialized, they are recounted when a report is read
+    private int passedCount;
+    private int skippedCount;
+    private int failedCount;
+
     private ISuite suite;
 
+    private TestSuiteInfo() {
+        // for deserialization
+    }
+
     public TestSuiteInfo(ISuite suite) {
         this(suite, null);
     }
@@ -57,9 +150,74 @@ public class TestSuiteInfo implements Comparable<TestSuiteInfo>, Dottable, JSONa
         if (tests == null) {
             buildTestInfo();
         }
+        countResults();
+        setTestResult();
+    }
+
+    /**
+     * Build a suite from data which was already collected, without a reference to an {@link ISuite}
+     * 
+     * @param name
+     *            the name of the suite
+     * @param parallel
+     *            the parallel mode of the suite
+     * @param preserveOrder
+     *            the preserve-order setting of the suite
+     * @param childSuites
+     *            the names of the child suites
+     * @param tests
+     *            the tests of the suite
+     */
+    public TestSuiteInfo(String name, String parallel, boolean preserveOrder, Set<String> childSuites,
+            Set<TestInfo> tests) {
+        if (name == null || tests == null) {
+            throw new IllegalArgumentException("The name and the tests of a suite must not be null");
+        }
+
+        this.name = name;
+        this.parallel = parallel;
+        this.preserveOrder = preserveOrder;
+        this.childSuites = childSuites;
+        this.tests = tests;
+        countResults();
         setTestResult();
     }
 
+    /**
+     * Sum the test method results already counted by the children. Done once, when the object is built or read.
+     */
+    private void countResults() {
+        if (getTests() == null) {
+            return;
+        }
+        for (TestInfo child : getTests()) {
+            passedCount += child.getPassedCount();
+            skippedCount += child.getSkippedCount();
+            failedCount += child.getFailedCount();
+        }
+    }
+
+    /**
+     * @return the number of test methods below this one that passed
+     */
+    int getPassedCount() {
+        return passedCount;
+    }
+
+    /**
+     * @return the number of test methods below this one that were skipped
+     */
+    int getSkippedCount() {
+        return skippedCount;
+    }
+
+    /**
+     * @return the number of test methods below this one that failed
+     */
+    int getFailedCount() {
+        return failedCount;
+    }
+
     private void setTestResult() {
         suiteResult = Result.SKIPPED;
         if (hasPassed()) {
@@ -85,8 +243,9 @@ public class TestSuiteInfo implements Comparable<TestSuiteInfo>, Dottable, JSONa
 
     private void buildTestInfo() {
         tests = new ConcurrentSkipListSet<>();
+        DependencyIndex<ITestNGMethod> index = DependencyIndex.of(suite);
         for (ISuiteResult suiteResult : suite.getResults().values()) {
-            tests.add(new TestInfo(suiteResult.getTestContext()));
+            tests.add(new TestInfo(suiteResult.getTestContext(), null, index));
         }
     }
 
@@ -95,19 +254,6 @@ public class TestSuiteInfo implements Comparable<TestSuiteInfo>, Dottable, JSONa
         return o.getName().compareTo(getName());
     }
 
-    private String dotWalkSuiteInfo(TestSuiteInfo suite) {
-        if (suite.getChildSuites() == null) {
-            return "";
-        }
-
-        StringBuilder result = new StringBuilder();
-        for (String s : suite.getChildSuites()) {
-            result.append("\"" + s + "\"[shape=box,peripheries=2,label=\"Suite: " + s + "\"];\n");
-            result.append("\"" + suite.getName() + "\" -> \"" + s + "\";\n");
-        }
-        return result.toString();
-    }
-
     @Override
     public boolean equals(Object obj) {
         if (this == obj)
@@ -129,10 +275,29 @@ public class TestSuiteInfo implements Comparable<TestSuiteInfo>, Dottable, JSONa
         return childSuites;
     }
 
+    /**
+     * @return the {@link ISuite} this was built from, or <code>null</code> if it was read from a report or
+     *         {@link #detach() detached}
+     */
     public ISuite getISuite() {
         return suite;
     }
 
+    /**
+     * Drop the reference to the {@link ISuite} this was built from, and those of the tests below it. The serialized
+     * content is not affected, but the TestNG objects, and the test instances they hold, are no longer kept alive by
+     * the report model.
+     */
+    public void detach() {
+        suite = null;
+        if (getTests() == null) {
+            return;
+        }
+        for (TestInfo child : getTests()) {
+            child.detach();
+        }
+    }
+
     public String getName() {
         return name;
     }
@@ -159,96 +324,91 @@ public class TestSuiteInfo implements Comparable<TestSuiteInfo>, Dottable, JSONa
 
     @Override
     public String toDot(boolean asSubgraph) {
+        return DotSupport.toDot(this, asSubgraph);
+    }
+
+    @Override
+    public void toDot(Appendable out, boolean asSubgraph) throws IOException {
         if (asSubgraph &&
                 getTests().isEmpty() &&
                 getChildSuites().isEmpty()) {
-            return "";
+            return;
         }
 
-        String formattedName = String.valueOf(hashCode() < 0 ? System.currentTimeMillis() : hashCode());
-        StringBuilder result = new StringBuilder((asSubgraph) ? "subgraph suite" + formattedName : "digraph g");
-        result.append(" {\n");
-        result.append("\"" + getName() + "\"[" + Result.getDotStyle(getResult()) +
-                ",shape=box,peripheries=2,label=\"Suite: " + getName() + "\"];\n");
-        result.append(dotWalkSuiteInfo(this));
-        for (TestInfo ti : getTests()) {
-            result.append("\"" + ti.getName() + "\"[" + Result.getDotStyle(ti.getResult()) +
-                    ",shape=house,label=\"Test: " + ti.getName() + "\"];\n");
-            result.append("\"" + getName() + "\" -> \"" + ti.getName() + "\";\n");
-            result.append(ti.toDot(true));
+        // the unsigned hash code, so the name is a valid dot ID and the same for every render
+        String formattedName = Integer.toHexString(hashCode());
+        if (asSubgraph) {
+            out.append("subgraph suite").append(formattedName);
+        } else {
+            out.append("digraph g");
         }
-        result.append("}\n");
+        out.append(" {\n");
+        DotSupport.appendGraph(out, DependencyGraph.of(this));
+        out.append("}\n");
+    }
 
-        return result.toString();
+    @Override
+    public int addTo(DependencyGraph.Builder graph) {
+        int id = graph.addNode(getName(), NodeKind.SUITE, getResult());
+        if (getChildSuites() != null) {
+            for (String s : getChildSuites()) {
+                graph.addEdge(id, graph.addNode(s, NodeKind.SUITE, null), EdgeKind.CONTAINS);
+            }
+        }
+        for (TestInfo ti : getTests()) {
+            graph.addEdge(id, ti.addTo(graph), EdgeKind.CONTAINS);
+        }
+        return id;
     }
 
     @Override
     public String toJSON() {
-        Gson gson = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().setPrettyPrinting().create();
-        return gson.toJson(this);
+        return JsonSupport.toJson(this);
+    }
+
+    @Override
+    public void toJSON(Writer writer) throws IOException {
+        JsonSupport.toJson(this, writer);
     }
 
     @Override
     public boolean hasPassed() {
-        for (TestInfo ti : getTests()) {
-            if (ti.hasPassed()) {
-                return true;
-            }
-        }
-        return false;
+        return passedCount > 0;
     }
 
     @Override
     public Set<TestInfo> getPassed() {
-        Set<TestInfo> passed = new HashSet<>();
-        for (TestInfo ti : getTests()) {
-            if (ti.getResult() == Result.PASSED) {
-                passed.add(ti);
-            }
-        }
-        return passed;
+        return filter(Result.PASSED);
     }
 
     @Override
     public boolean hasSkips() {
-        for (TestInfo ti : getTests()) {
-            if (ti.hasSkips()) {
-                return true;
-            }
-        }
-        return false;
+        return skippedCount > 0;
     }
 
     @Override
     public Set<TestInfo> getSkips() {
-        Set<TestInfo> skipped = new HashSet<>();
-        for (TestInfo ti : getTests()) {
-            if (ti.getResult() == Result.SKIPPED) {
-                skipped.add(ti);
-            }
-        }
-        return skipped;
+        return filter(Result.SKIPPED);
     }
 
     @Override
     public boolean hasFailures() {
-        for (TestInfo ti : getTests()) {
-            if (ti.hasFailures()) {
-                return true;
-            }
-        }
-        return false;
+        return failedCount > 0;
     }
 
     @Override
     public Set<TestInfo> getFailures() {
-        Set<TestInfo> failed = new HashSet<>();
-        for (TestInfo ti : getTests()) {
-            if (ti.getResult() == Result.FAILED) {
-                failed.add(ti);
+        return filter(Result.FAILED);
+    }
+
+    private Set<TestInfo> filter(Result result) {
+        Set<TestInfo> filtered = new HashSet<>();
+        for (TestInfo child : getTests()) {
+            if (child.getResult() == result) {
+                filtered.add(child);
             }
         }
-        return failed;
+        return filtered;
     }
 
 }
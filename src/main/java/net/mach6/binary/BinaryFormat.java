@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+
+package net.mach6.binary;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+import net.mach6.Result;
+
+/**
+ * The layout of a binary report, shared by the {@link BinaryReportWriter} and the {@link BinaryReportReader}.
+ * <p>
+ * The file starts with a fixed size header: the {@link #MAGIC} bytes, the {@link #VERSION}, then the number of records
+ * of each section and the offset of each section, as big endian ints, in {@link #SECTIONS} order. A section is an array
+ * of big endian int offsets, one per record, followed by the records. So any record can be found without reading the
+ * ones before it. Records are sequences of unsigned LEB128 varints; strings are indexes into the string section, whose
+ * records are a varint byte count followed by that many UTF-8 bytes. An optional string or result is stored as its
+ * index or ordinal plus one, with 0 for <code>null</code>. Lists are a varint count followed by the elements.
+ * <p>
+ * Suites, tests, classes, methods and edges each refer to their parent by index, and to their children as a first index
+ * and a count, since the children of a record are stored next to each other. An edge to a method refers to the record
+ * of that method, preferably the one in the same test; only an edge to a group, or to a method which is not in the
+ * report, refers to a name.
+ */
+final class BinaryFormat {
+    static final byte[] MAGIC = { 'T', 'N', 'G', 'D' };
+    static final int VERSION = 2;
+
+    static final int STRINGS = 0;
+    static final int SUITES = 1;
+    static final int TESTS = 2;
+    static final int CLASSES = 3;
+    static final int METHODS = 4;
+    static final int EDGES = 5;
+    static final int SECTIONS = 6;
+
+    static final int HEADER_SIZE = MAGIC.length + 4 + SECTIONS * 8;
+
+    // edge kinds; the target of the first is a method index, the target of the others a string index
+    static final int DEPENDS_ON_METHOD = 0;
+    static final int DEPENDS_ON_GROUP = 1;
+    static final int DEPENDS_ON_METHOD_NAME = 2;
+
+    // suite and test flags
+    static final int PRESERVE_ORDER = 1;
+
+    private static final Result[] RESULTS = Result.values();
+
+    private BinaryFormat() {
+    }
+
+    static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static int toCode(Result result) {
+        return (result == null) ? 0 : result.ordinal() + 1;
+    }
+
+    static Result toResult(int code) {
+        return (code == 0) ? null : RESULTS[code - 1];
+    }
+
+    /**
+     * Reads the varints of one record, with absolute gets only, so readers of the same buffer do not interfere
+     */
+    static final class Cursor {
+        private final ByteBuffer buffer;
+        private int position;
+
+        Cursor(ByteBuffer buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        long readLong() {
+            long value = 0;
+            for (int shift = 0;; shift += 7) {
+                byte b = buffer.get(position++);
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+
+        int readInt() {
+            return (int) readLong();
+        }
+
+        int[] readInts() {
+            int[] values = new int[readInt()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = readInt();
+            }
+            return values;
+        }
+
+        int getPosition() {
+            return position;
+        }
+    }
+}
@@ -0,0 +1,580 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+
+package net.mach6.binary;
+
+import static net.mach6.binary.BinaryFormat.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.mach6.Result;
+import net.mach6.graph.NodeKind;
+
+/**
+ * Reads a report written by the {@link BinaryReportWriter}. The file is memory mapped and nothing is decoded up front:
+ * a suite, test, class, method or edge is decoded when it is asked for, and a string when its value is first used, so
+ * opening a report costs the same whatever its size. The lists returned are views which decode their elements as they
+ * are read. Instances are thread safe; the views are cheap and are not cached.
+ */
+public final class BinaryReportReader {
+    private final ByteBuffer buffer;
+    private final int[] counts = new int[SECTIONS];
+    private final int[] offsets = new int[SECTIONS];
+    // decoded on first use; a race decodes a string twice, which is harmless
+    private final String[] strings;
+
+    private BinaryReportReader(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE) {
+            throw new IOException("Not a binary dependency report, it is too short");
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (buffer.get(i) != MAGIC[i]) {
+                throw new IOException("Not a binary dependency report");
+            }
+        }
+        int version = buffer.getInt(MAGIC.length);
+        if (version != VERSION) {
+            throw new IOException("Unsupported binary dependency report version " + version + ", expected " + VERSION);
+        }
+        for (int i = 0; i < SECTIONS; i++) {
+            counts[i] = buffer.getInt(MAGIC.length + 4 + 4 * i);
+            offsets[i] = buffer.getInt(MAGIC.length + 4 + 4 * SECTIONS + 4 * i);
+        }
+        strings = new String[counts[STRINGS]];
+    }
+
+    /**
+     * @param file
+     *            a binary report
+     * @return the reader of the report
+     * @throws IOException
+     *             if the file can not be mapped or is not a binary report
+     */
+    public static BinaryReportReader open(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Not a binary dependency report, it is too large: " + file);
+            }
+            // the mapping stays valid after the channel is closed
+            return of(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * @param buffer
+     *            the content of a binary report, from the position of the buffer to its limit. The buffer is not
+     *            modified.
+     * @return the reader of the report
+     * @throws IOException
+     *             if the content is not a binary report
+     */
+    public static BinaryReportReader of(ByteBuffer buffer) throws IOException {
+        return new BinaryReportReader(buffer.slice().order(ByteOrder.BIG_ENDIAN));
+    }
+
+    public int getSuiteCount() {
+        return counts[SUITES];
+    }
+
+    public int getTestCount() {
+        return counts[TESTS];
+    }
+
+    public int getClassCount() {
+        return counts[CLASSES];
+    }
+
+    public int getMethodCount() {
+        return counts[METHODS];
+    }
+
+    public int getEdgeCount() {
+        return counts[EDGES];
+    }
+
+    public Suite getSuite(int index) {
+        return new Suite(index);
+    }
+
+    public Test getTest(int index) {
+        return new Test(index);
+    }
+
+    public TestClass getTestClass(int index) {
+        return new TestClass(index);
+    }
+
+    public Method getMethod(int index) {
+        return new Method(index);
+    }
+
+    public Edge getEdge(int index) {
+        return new Edge(index);
+    }
+
+    public List<Suite> getSuites() {
+        return records(SUITES, 0, counts[SUITES]);
+    }
+
+    /**
+     * @return the tests of all suites
+     */
+    public List<Test> getTests() {
+        return records(TESTS, 0, counts[TESTS]);
+    }
+
+    /**
+     * @return the classes of all tests
+     */
+    public List<TestClass> getTestClasses() {
+        return records(CLASSES, 0, counts[CLASSES]);
+    }
+
+    /**
+     * @return the methods of all classes
+     */
+    public List<Method> getMethods() {
+        return records(METHODS, 0, counts[METHODS]);
+    }
+
+    /**
+     * @return the dependencies of all methods
+     */
+    public List<Edge> getEdges() {
+        return records(EDGES, 0, counts[EDGES]);
+    }
+
+    private Cursor cursor(int section, int index) {
+        if (index < 0 || index >= counts[section]) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + counts[section]);
+        }
+        return new Cursor(buffer, buffer.getInt(offsets[section] + 4 * index));
+    }
+
+    private String getString(int index) {
+        String value = strings[index];
+        if (value == null) {
+            Cursor cursor = cursor(STRINGS, index);
+            byte[] bytes = new byte[cursor.readInt()];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = buffer.get(cursor.getPosition() + i);
+            }
+            value = new String(bytes, StandardCharsets.UTF_8);
+            strings[index] = value;
+        }
+        return value;
+    }
+
+    /**
+     * @return the name of a method, without decoding the rest of its record
+     */
+    private String getMethodName(int index) {
+        Cursor cursor = cursor(METHODS, index);
+        cursor.readInt();
+        return getString(cursor.readInt());
+    }
+
+    private String getOptionalString(int code) {
+        return (code == 0) ? null : getString(code - 1);
+    }
+
+    private List<String> strings(final int[] ids) {
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                return getString(ids[index]);
+            }
+
+            @Override
+            public int size() {
+                return ids.length;
+            }
+        };
+    }
+
+    private <T> List<T> records(final int section, final int first, final int count) {
+        return new AbstractList<T>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public T get(int index) {
+                if (index < 0 || index >= count) {
+                    throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+                }
+                return (T) record(section, first + index);
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+        };
+    }
+
+    private Object record(int section, int index) {
+        switch (section) {
+        case SUITES:
+            return new Suite(index);
+        case TESTS:
+            return new Test(index);
+        case CLASSES:
+            return new TestClass(index);
+        case METHODS:
+            return new Method(index);
+        default:
+            return new Edge(index);
+        }
+    }
+
+    /**
+     * A suite of the report
+     */
+    public final class Suite {
+        private final int index;
+        private final int name;
+        private final int parallel;
+        private final int flags;
+        private final int result;
+        private final int firstTest;
+        private final int testCount;
+        private final int[] childSuites;
+
+        private Suite(int index) {
+            Cursor cursor = cursor(SUITES, index);
+            this.index = index;
+            name = cursor.readInt();
+            parallel = cursor.readInt();
+            flags = cursor.readInt();
+            result = cursor.readInt();
+            firstTest = cursor.readInt();
+            testCount = cursor.readInt();
+            childSuites = cursor.readInts();
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public String getName() {
+            return getString(name);
+        }
+
+        public String getParallel() {
+            return getOptionalString(parallel);
+        }
+
+        public boolean isPreserveOrder() {
+            return (flags & PRESERVE_ORDER) != 0;
+        }
+
+        public Result getResult() {
+            return toResult(result);
+        }
+
+        public List<Test> getTests() {
+            return records(TESTS, firstTest, testCount);
+        }
+
+        public List<String> getChildSuites() {
+            return strings(childSuites);
+        }
+    }
+
+    /**
+     * A test of a suite
+     */
+    public final class Test {
+        private final int index;
+        private final int suite;
+        private final int name;
+        private final int parallel;
+        private final int flags;
+        private final int result;
+        private final int[] testGroups;
+        private final int firstClass;
+        private final int classCount;
+
+        private Test(int index) {
+            Cursor cursor = cursor(TESTS, index);
+            this.index = index;
+            suite = cursor.readInt();
+            name = cursor.readInt();
+            parallel = cursor.readInt();
+            flags = cursor.readInt();
+            result = cursor.readInt();
+            testGroups = cursor.readInts();
+            firstClass = cursor.readInt();
+            classCount = cursor.readInt();
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public Suite getSuite() {
+            return new Suite(suite);
+        }
+
+        public String getName() {
+            return getString(name);
+        }
+
+        public String getParallel() {
+            return getOptionalString(parallel);
+        }
+
+        public boolean isPreserveOrder() {
+            return (flags & PRESERVE_ORDER) != 0;
+        }
+
+        public Result getResult() {
+            return toResult(result);
+        }
+
+        public List<String> getTestGroups() {
+            return strings(testGroups);
+        }
+
+        public List<TestClass> getTestClasses() {
+            return records(CLASSES, firstClass, classCount);
+        }
+    }
+
+    /**
+     * A class of a test
+     */
+    public final class TestClass {
+        private final int index;
+        private final int test;
+        private final int name;
+        private final int result;
+        private final int firstMethod;
+        private final int methodCount;
+
+        private TestClass(int index) {
+            Cursor cursor = cursor(CLASSES, index);
+            this.index = index;
+            test = cursor.readInt();
+            name = cursor.readInt();
+            result = cursor.readInt();
+            firstMethod = cursor.readInt();
+            methodCount = cursor.readInt();
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public Test getTest() {
+            return new Test(test);
+        }
+
+        public String getName() {
+            return getString(name);
+        }
+
+        public Result getResult() {
+            return toResult(result);
+        }
+
+        public List<Method> getTestMethods() {
+            return records(METHODS, firstMethod, methodCount);
+        }
+    }
+
+    /**
+     * A test method of a class
+     */
+    public final class Method {
+        private final int index;
+        private final int testClass;
+        private final int name;
+        private final int result;
+        private final int[] groups;
+        private final int[] beforeGroups;
+        private final int[] afterGroups;
+        private final int invocationCount;
+        private final long startMillis;
+        private final long endMillis;
+        private final long durationMillis;
+        private final int[] threads;
+        private final int firstEdge;
+        private final int edgeCount;
+
+        private Method(int index) {
+            Cursor cursor = cursor(METHODS, index);
+            this.index = index;
+            testClass = cursor.readInt();
+            name = cursor.readInt();
+            result = cursor.readInt();
+            groups = cursor.readInts();
+            beforeGroups = cursor.readInts();
+            afterGroups = cursor.readInts();
+            invocationCount = cursor.readInt();
+            if (invocationCount > 0) {
+                startMillis = cursor.readLong();
+                endMillis = cursor.readLong();
+                durationMillis = cursor.readLong();
+                threads = cursor.readInts();
+            } else {
+                startMillis = 0;
+                endMillis = 0;
+                durationMillis = -1;
+                threads = new int[0];
+            }
+            firstEdge = cursor.readInt();
+            edgeCount = cursor.readInt();
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public TestClass getTestClass() {
+            return new TestClass(testClass);
+        }
+
+        /**
+         * @return the qualified name of the method
+         */
+        public String getName() {
+            return getString(name);
+        }
+
+        public Result getResult() {
+            return toResult(result);
+        }
+
+        public List<String> getGroups() {
+            return strings(groups);
+        }
+
+        public List<String> getBeforeGroups() {
+            return strings(beforeGroups);
+        }
+
+        public List<String> getAfterGroups() {
+            return strings(afterGroups);
+        }
+
+        public int getInvocationCount() {
+            return invocationCount;
+        }
+
+        public long getStartMillis() {
+            return startMillis;
+        }
+
+        public long getEndMillis() {
+            return endMillis;
+        }
+
+        /**
+         * @return the time spent in all invocations, or -1 if the method has none
+         */
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+
+        public List<String> getThreads() {
+            return strings(threads);
+        }
+
+        /**
+         * @return the methods and groups the method depends upon, methods first
+         */
+        public List<Edge> getEdges() {
+            return records(EDGES, firstEdge, edgeCount);
+        }
+
+        /**
+         * @return the names of the methods the method depends upon
+         */
+        public List<String> getDependentMethods() {
+            return getTargets(NodeKind.METHOD);
+        }
+
+        /**
+         * @return the names of the groups the method depends upon
+         */
+        public List<String> getDependentGroups() {
+            return getTargets(NodeKind.GROUP);
+        }
+
+        private List<String> getTargets(NodeKind kind) {
+            List<String> targets = new ArrayList<>();
+            for (Edge edge : getEdges()) {
+                if (edge.getKind() == kind) {
+                    targets.add(edge.getTarget());
+                }
+            }
+            return targets;
+        }
+    }
+
+    /**
+     * A dependency of a method on a method, by index when the method is in the report, or on a group, by name
+     */
+    public final class Edge {
+        private final int index;
+        private final int method;
+        private final int kind;
+        private final int target;
+
+        private Edge(int index) {
+            Cursor cursor = cursor(EDGES, index);
+            this.index = index;
+            method = cursor.readInt();
+            kind = cursor.readInt();
+            target = cursor.readInt();
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * @return the dependent method
+         */
+        public Method getMethod() {
+            return new Method(method);
+        }
+
+        /**
+         * @return {@link NodeKind#METHOD} or {@link NodeKind#GROUP}
+         */
+        public NodeKind getKind() {
+            return (kind == DEPENDS_ON_GROUP) ? NodeKind.GROUP : NodeKind.METHOD;
+        }
+
+        /**
+         * @return the name of the method or group depended upon
+         */
+        public String getTarget() {
+            return (kind == DEPENDS_ON_METHOD) ? getMethodName(target) : getString(target);
+        }
+
+        /**
+         * @return the method depended upon, the one in the same test when there are several with its name, or
+         *         <code>null</code> if the edge is to a group or the method is not in the report
+         */
+        public Method getTargetMethod() {
+            return (kind == DEPENDS_ON_METHOD) ? new Method(target) : null;
+        }
+    }
+}
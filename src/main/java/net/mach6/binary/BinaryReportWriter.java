@@ -0,0 +1,257 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+
+package net.mach6.binary;
+
+import static net.mach6.binary.BinaryFormat.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.mach6.TestClassInfo;
+import net.mach6.TestInfo;
+import net.mach6.TestMethodInfo;
+import net.mach6.TestSuiteInfo;
+
+/**
+ * Writes the report model in the compact {@link BinaryFormat}, to be read back with the {@link BinaryReportReader}.
+ * Every distinct string is stored once, so the names of groups and threads which are repeated across the
+ * dependencies cost a varint each, and a dependency on a method is the index of its record. The records are
+ * assembled in memory before they are written, since the header holds the offsets of the sections.
+ */
+public final class BinaryReportWriter {
+    private final Map<String, Integer> stringIds = new HashMap<>();
+    private final Section[] sections = new Section[SECTIONS];
+
+    private BinaryReportWriter() {
+        for (int i = 0; i < SECTIONS; i++) {
+            sections[i] = new Section();
+        }
+    }
+
+    /**
+     * @param suites
+     *            the suites to write
+     * @param out
+     *            the destination. Not closed.
+     * @throws IOException
+     *             if the destination fails
+     */
+    public static void write(Collection<TestSuiteInfo> suites, OutputStream out) throws IOException {
+        BinaryReportWriter writer = new BinaryReportWriter();
+        writer.add(suites);
+        writer.writeTo(out);
+    }
+
+    private void add(Collection<TestSuiteInfo> suites) {
+        // each level is written in the order of its parents, so the children of a record are next to each other
+        List<TestInfo> tests = new ArrayList<>();
+        List<Integer> testParents = new ArrayList<>();
+        for (TestSuiteInfo suite : suites) {
+            Collection<TestInfo> children = nonNull(suite.getTests());
+            ByteArrayOutputStream record = sections[SUITES].next();
+            writeVarint(record, string(suite.getName()));
+            writeVarint(record, optionalString(suite.getParallel()));
+            writeVarint(record, suite.isPreserveOrder() ? PRESERVE_ORDER : 0);
+            writeVarint(record, toCode(suite.getResult()));
+            writeVarint(record, tests.size());
+            writeVarint(record, children.size());
+            writeStrings(record, suite.getChildSuites());
+            for (TestInfo test : children) {
+                testParents.add(sections[SUITES].count - 1);
+                tests.add(test);
+            }
+        }
+
+        List<TestClassInfo> classes = new ArrayList<>();
+        List<Integer> classParents = new ArrayList<>();
+        for (int i = 0; i < tests.size(); i++) {
+            TestInfo test = tests.get(i);
+            Collection<TestClassInfo> children = nonNull(test.getTestClasses());
+            ByteArrayOutputStream record = sections[TESTS].next();
+            writeVarint(record, testParents.get(i));
+            writeVarint(record, string(test.getName()));
+            writeVarint(record, optionalString(test.getParallel()));
+            writeVarint(record, test.isPreserveOrder() ? PRESERVE_ORDER : 0);
+            writeVarint(record, toCode(test.getResult()));
+            writeStrings(record, test.getTestGroups());
+            writeVarint(record, classes.size());
+            writeVarint(record, children.size());
+            for (TestClassInfo testClass : children) {
+                classParents.add(i);
+                classes.add(testClass);
+            }
+        }
+
+        List<TestMethodInfo> methods = new ArrayList<>();
+        List<Integer> methodParents = new ArrayList<>();
+        for (int i = 0; i < classes.size(); i++) {
+            TestClassInfo testClass = classes.get(i);
+            Collection<TestMethodInfo> children = nonNull(testClass.getTestMethods());
+            ByteArrayOutputStream record = sections[CLASSES].next();
+            writeVarint(record, classParents.get(i));
+            writeVarint(record, string(testClass.getName()));
+            writeVarint(record, toCode(testClass.getResult()));
+            writeVarint(record, methods.size());
+            writeVarint(record, children.size());
+            for (TestMethodInfo method : children) {
+                methodParents.add(i);
+                methods.add(method);
+            }
+        }
+
+        // name -> method index, per test and for the whole report, the first method with the name winning
+        List<Map<String, Integer>> methodsByTest = new ArrayList<>(tests.size());
+        for (int i = 0; i < tests.size(); i++) {
+            methodsByTest.add(new HashMap<String, Integer>());
+        }
+        Map<String, Integer> methodsByName = new HashMap<>();
+        for (int i = methods.size() - 1; i >= 0; i--) {
+            String name = methods.get(i).getMethodName();
+            methodsByTest.get(classParents.get(methodParents.get(i))).put(name, i);
+            methodsByName.put(name, i);
+        }
+
+        for (int i = 0; i < methods.size(); i++) {
+            TestMethodInfo method = methods.get(i);
+            ByteArrayOutputStream record = sections[METHODS].next();
+            writeVarint(record, methodParents.get(i));
+            writeVarint(record, string(method.getMethodName()));
+            writeVarint(record, toCode(method.getResult()));
+            writeStrings(record, method.getGroups());
+            writeStrings(record, method.getBeforeGroups());
+            writeStrings(record, method.getAfterGroups());
+            int invocationCount = method.getInvocationCount();
+            writeVarint(record, invocationCount);
+            if (invocationCount > 0) {
+                writeVarint(record, method.getStartMillis());
+                writeVarint(record, method.getEndMillis());
+                writeVarint(record, method.getDurationMillis());
+                writeStrings(record, method.getThreads());
+            }
+            List<String> dependentMethods = nonNull(method.getDependentMethods());
+            List<String> dependentGroups = nonNull(method.getDependentGroups());
+            writeVarint(record, sections[EDGES].count);
+            writeVarint(record, dependentMethods.size() + dependentGroups.size());
+            Map<String, Integer> testMethods = methodsByTest.get(classParents.get(methodParents.get(i)));
+            for (String target : dependentMethods) {
+                Integer index = testMethods.get(target);
+                if (index == null) {
+                    index = methodsByName.get(target);
+                }
+                if (index == null) {
+                    addEdge(i, DEPENDS_ON_METHOD_NAME, string(target));
+                } else {
+                    addEdge(i, DEPENDS_ON_METHOD, index);
+                }
+            }
+            for (String target : dependentGroups) {
+                addEdge(i, DEPENDS_ON_GROUP, string(target));
+            }
+        }
+    }
+
+    private void addEdge(int method, int kind, int target) {
+        ByteArrayOutputStream record = sections[EDGES].next();
+        writeVarint(record, method);
+        writeVarint(record, kind);
+        writeVarint(record, target);
+    }
+
+    private static <T> Collection<T> nonNull(Collection<T> values) {
+        return (values == null) ? Collections.<T> emptyList() : values;
+    }
+
+    private static <T> List<T> nonNull(List<T> values) {
+        return (values == null) ? Collections.<T> emptyList() : values;
+    }
+
+    private int string(String value) {
+        Integer id = stringIds.get(value);
+        if (id == null) {
+            id = stringIds.size();
+            stringIds.put(value, id);
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            ByteArrayOutputStream record = sections[STRINGS].next();
+            writeVarint(record, bytes.length);
+            record.write(bytes, 0, bytes.length);
+        }
+        return id;
+    }
+
+    private int optionalString(String value) {
+        return (value == null) ? 0 : string(value) + 1;
+    }
+
+    private void writeStrings(ByteArrayOutputStream record, Collection<String> values) {
+        Collection<String> strings = nonNull(values);
+        writeVarint(record, strings.size());
+        for (String value : strings) {
+            writeVarint(record, string(value));
+        }
+    }
+
+    private void writeTo(OutputStream out) throws IOException {
+        // absolute offsets; the offset table of each section precedes its records
+        long[] offsets = new long[SECTIONS];
+        long offset = HEADER_SIZE;
+        for (int i = 0; i < SECTIONS; i++) {
+            offsets[i] = offset;
+            offset += 4L * sections[i].count + sections[i].records.size();
+        }
+        if (offset > Integer.MAX_VALUE) {
+            throw new IOException("The report is too large for the binary format: " + offset + " bytes");
+        }
+
+        DataOutputStream data = new DataOutputStream(out);
+        data.write(MAGIC);
+        data.writeInt(VERSION);
+        for (Section section : sections) {
+            data.writeInt(section.count);
+        }
+        for (long sectionOffset : offsets) {
+            data.writeInt((int) sectionOffset);
+        }
+        for (int i = 0; i < SECTIONS; i++) {
+            int recordsStart = (int) offsets[i] + 4 * sections[i].count;
+            for (int r = 0; r < sections[i].count; r++) {
+                data.writeInt(recordsStart + sections[i].starts[r]);
+            }
+            sections[i].records.writeTo(data);
+        }
+        data.flush();
+    }
+
+    /**
+     * The records of one section and where each one starts
+     */
+    private static final class Section {
+        private final ByteArrayOutputStream records = new ByteArrayOutputStream();
+        private int[] starts = new int[16];
+        private int count;
+
+        ByteArrayOutputStream next() {
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+            }
+            starts[count++] = records.size();
+            return records;
+        }
+    }
+}
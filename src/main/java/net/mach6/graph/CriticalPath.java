@@ -0,0 +1,249 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+
+package net.mach6.graph;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+import net.mach6.Result;
+import net.mach6.TestInfo;
+import net.mach6.TestSuiteInfo;
+
+import com.google.gson.annotations.Expose;
+
+/**
+ * The longest chain of dependent methods in a {@link DependencyGraph}, weighted by the duration of the methods. However
+ * many threads run the tests, the methods of the chain run one after the other, so its duration is the floor on the
+ * wall clock time of the run. A method without a duration counts as 0 ms, and of two chains which take as long the one
+ * with more methods wins, so without any timing the path is the longest chain of dependencies.
+ * <p>
+ * Only {@link NodeKind#METHOD} nodes and the {@link EdgeKind#DEPENDS_ON} edges between them make up the path; the
+ * dependencies on groups are already resolved to the methods of the groups. The methods are visited once, in
+ * {@link TopologicalOrder}, so the cost is linear in the size of the graph. Methods on a dependency cycle can not be
+ * ordered and are left out.
+ */
+public final class CriticalPath {
+    @Expose
+    private final String name;
+    @Expose
+    private final long durationMillis;
+    @Expose
+    private final List<Step> methods;
+    @Expose
+    private List<CriticalPath> tests;
+
+    // the nodes of the path, in the order they run
+    private final int[] nodes;
+
+    private CriticalPath(String name, DependencyGraph graph, int[] nodes) {
+        this.name = name;
+        this.nodes = nodes;
+        List<Step> steps = new ArrayList<>(nodes.length);
+        long elapsed = 0;
+        for (int node : nodes) {
+            elapsed += Math.max(0, graph.getDuration(node));
+            steps.add(new Step(graph.getName(node), graph.getResult(node), graph.getDuration(node), elapsed));
+        }
+        this.methods = Collections.unmodifiableList(steps);
+        this.durationMillis = elapsed;
+    }
+
+    /**
+     * @param name
+     *            the name of the suite or test the graph is of
+     * @param graph
+     *            the graph
+     * @return the critical path of the graph, empty if the graph has no methods
+     */
+    public static CriticalPath of(String name, DependencyGraph graph) {
+        return of(name, TopologicalOrder.of(graph));
+    }
+
+    /**
+     * @param name
+     *            the name of the suite or test the graph is of
+     * @param order
+     *            the order of the methods of the graph
+     * @return the critical path of the graph, empty if the graph has no methods
+     */
+    public static CriticalPath of(String name, TopologicalOrder order) {
+        DependencyGraph graph = order.getGraph();
+        int nodeCount = graph.getNodeCount();
+        // the longest chain which ends with a method; its duration and the number of methods on it
+        long[] finish = new long[nodeCount];
+        int[] length = new int[nodeCount];
+        int[] previous = new int[nodeCount];
+
+        int last = -1;
+        for (int i = 0; i < order.size(); i++) {
+            int v = order.get(i);
+            previous[v] = -1;
+            for (int e = graph.getOutStart(v); e < graph.getOutEnd(v); e++) {
+                if (!TopologicalOrder.isMethodDependency(graph, e)) {
+                    continue;
+                }
+                int dependency = graph.getTarget(e);
+                if (previous[v] == -1 || isLonger(finish, length, dependency, previous[v])) {
+                    previous[v] = dependency;
+                }
+            }
+            if (previous[v] != -1) {
+                finish[v] = finish[previous[v]];
+                length[v] = length[previous[v]];
+            }
+            finish[v] += Math.max(0, graph.getDuration(v));
+            length[v]++;
+            if (last == -1 || isLonger(finish, length, v, last)) {
+                last = v;
+            }
+        }
+
+        int[] path = new int[(last == -1) ? 0 : length[last]];
+        for (int i = path.length - 1, v = last; i >= 0; i--, v = previous[v]) {
+            path[i] = v;
+        }
+        return new CriticalPath(name, graph, path);
+    }
+
+    /**
+     * @param suite
+     *            the suite
+     * @return the critical path of the suite, with the critical paths of its tests
+     */
+    public static CriticalPath of(TestSuiteInfo suite) {
+        return of(SuiteGraphs.of(suite));
+    }
+
+    /**
+     * @param graphs
+     *            the graphs of a suite
+     * @return the critical path of the suite, with the critical paths of its tests
+     */
+    public static CriticalPath of(SuiteGraphs graphs) {
+        CriticalPath path = of(graphs.getSuite().getName(), graphs.getOrder());
+        path.tests = new ArrayList<>();
+        for (TestInfo test : graphs.getTests()) {
+            path.tests.add(of(test.getName(), graphs.getOrder(test)));
+        }
+        return path;
+    }
+
+    private static boolean isLonger(long[] finish, int[] length, int v, int w) {
+        return finish[v] > finish[w] || (finish[v] == finish[w] && length[v] > length[w]);
+    }
+
+    /**
+     * Mark the nodes and the dependency edges of the path in another graph which has the same methods, e.g. the graph
+     * of all suites
+     * 
+     * @param graph
+     *            the graph to mark the path in
+     * @param highlightedNodes
+     *            the ids of the nodes of the path are set in it
+     * @param highlightedEdges
+     *            the ids of the edges of the path are set in it
+     */
+    public void highlight(DependencyGraph graph, BitSet highlightedNodes, BitSet highlightedEdges) {
+        int before = -1;
+        for (Step step : methods) {
+            int node = graph.getId(step.getName());
+            if (node == -1) {
+                before = -1;
+                continue;
+            }
+            highlightedNodes.set(node);
+            int edge = (before == -1) ? -1 : graph.getEdge(node, before);
+            if (edge != -1) {
+                highlightedEdges.set(edge);
+            }
+            before = node;
+        }
+    }
+
+    /**
+     * @return the name of the suite or test
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the time the methods of the path take one after the other
+     */
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    /**
+     * @return the methods of the path, in the order they run
+     */
+    public List<Step> getMethods() {
+        return methods;
+    }
+
+    /**
+     * @return the node ids of the methods of the path, in the order they run
+     */
+    public int[] getNodes() {
+        return nodes.clone();
+    }
+
+    /**
+     * @return the critical paths of the tests of a suite, or <code>null</code> if this is not the path of a suite
+     */
+    public List<CriticalPath> getTests() {
+        return (tests == null) ? null : Collections.unmodifiableList(tests);
+    }
+
+    /**
+     * A method of a critical path
+     */
+    public static final class Step {
+        @Expose
+        private final String name;
+        @Expose
+        private final Result result;
+        @Expose
+        private final Long durationMillis;
+        @Expose
+        private final long elapsedMillis;
+
+        Step(String name, Result result, long durationMillis, long elapsedMillis) {
+            this.name = name;
+            this.result = result;
+            this.durationMillis = (durationMillis < 0) ? null : durationMillis;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Result getResult() {
+            return result;
+        }
+
+        /**
+         * @return the time spent in the method, or -1 if it is not known
+         */
+        public long getDurationMillis() {
+            return (durationMillis == null) ? -1 : durationMillis;
+        }
+
+        /**
+         * @return the time from the start of the path until the method is done
+         */
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+    }
+}
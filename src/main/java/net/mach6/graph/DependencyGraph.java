@@ -0,0 +1,388 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+package net.mach6.graph;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+import net.mach6.Result;
+
+/**
+ * Immutable graph of suites, tests, classes, methods and groups. Every node is interned to a dense <code>int</code>
+ * id and the edges are kept in compressed sparse row (CSR) arrays, in both directions. The outgoing edges of node
+ * <code>v</code> have the ids <code>getOutStart(v)</code> to <code>getOutEnd(v) - 1</code>; the incoming edges of
+ * <code>v</code> are listed in the reverse slots <code>getInStart(v)</code> to <code>getInEnd(v) - 1</code>.
+ * <p>
+ * Like a Graphviz graph, nodes are identified by name, and an edge is only added once.
+ */
+public final class DependencyGraph {
+    private static final NodeKind[] NODE_KINDS = NodeKind.values();
+    private static final EdgeKind[] EDGE_KINDS = EdgeKind.values();
+    private static final Result[] RESULTS = Result.values();
+
+    private final String[] names;
+    private final byte[] kinds;
+    // Result ordinal + 1, 0 for no result
+    private final byte[] results;
+    // milliseconds, -1 if not known
+    private final long[] durations;
+    // node ids sorted by name, for lookups by name
+    private final int[] byName;
+
+    private final int[] outOffsets;
+    private final int[] targets;
+    private final byte[] edgeKinds;
+    private final int[] inOffsets;
+    private final int[] inSources;
+    private final int[] inEdges;
+
+    private DependencyGraph(Builder builder) {
+        int nodeCount = builder.nodeCount;
+        this.names = Arrays.copyOf(builder.names, nodeCount);
+        this.kinds = Arrays.copyOf(builder.kinds, nodeCount);
+        this.results = Arrays.copyOf(builder.results, nodeCount);
+        this.durations = Arrays.copyOf(builder.durations, nodeCount);
+
+        // forward CSR, a stable counting sort of the edges by source without duplicates
+        int[] from = builder.from;
+        int[] to = builder.to;
+        int[] slot = new int[nodeCount + 1];
+        for (int e = 0; e < builder.edgeCount; e++) {
+            slot[from[e] + 1]++;
+        }
+        for (int v = 0; v < nodeCount; v++) {
+            slot[v + 1] += slot[v];
+        }
+        int[] sortedTargets = new int[builder.edgeCount];
+        byte[] sortedKinds = new byte[builder.edgeCount];
+        int[] fill = Arrays.copyOf(slot, nodeCount);
+        for (int e = 0; e < builder.edgeCount; e++) {
+            int at = fill[from[e]]++;
+            sortedTargets[at] = to[e];
+            sortedKinds[at] = builder.edgeKinds[e];
+        }
+        this.outOffsets = new int[nodeCount + 1];
+        int[] seen = new int[nodeCount];
+        Arrays.fill(seen, -1);
+        int edgeCount = 0;
+        for (int v = 0; v < nodeCount; v++) {
+            outOffsets[v] = edgeCount;
+            for (int i = slot[v]; i < slot[v + 1]; i++) {
+                int w = sortedTargets[i];
+                if (seen[w] != v) {
+                    seen[w] = v;
+                    sortedTargets[edgeCount] = w;
+                    sortedKinds[edgeCount] = sortedKinds[i];
+                    edgeCount++;
+                }
+            }
+        }
+        outOffsets[nodeCount] = edgeCount;
+        this.targets = Arrays.copyOf(sortedTargets, edgeCount);
+        this.edgeKinds = Arrays.copyOf(sortedKinds, edgeCount);
+
+        // reverse CSR
+        this.inOffsets = new int[nodeCount + 1];
+        for (int e = 0; e < edgeCount; e++) {
+            inOffsets[targets[e] + 1]++;
+        }
+        for (int v = 0; v < nodeCount; v++) {
+            inOffsets[v + 1] += inOffsets[v];
+        }
+        this.inSources = new int[edgeCount];
+        this.inEdges = new int[edgeCount];
+        fill = Arrays.copyOf(inOffsets, nodeCount);
+        for (int v = 0; v < nodeCount; v++) {
+            for (int e = outOffsets[v]; e < outOffsets[v + 1]; e++) {
+                int at = fill[targets[e]]++;
+                inSources[at] = v;
+                inEdges[at] = e;
+            }
+        }
+
+        Integer[] order = new Integer[nodeCount];
+        for (int v = 0; v < nodeCount; v++) {
+            order[v] = v;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return names[a].compareTo(names[b]);
+            }
+        });
+        this.byName = new int[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            byName[i] = order[i];
+        }
+    }
+
+    /**
+     * @param graphable
+     *            the object to add to the graph
+     * @return the graph of the object and everything below it
+     */
+    public static DependencyGraph of(Graphable graphable) {
+        Builder builder = new Builder();
+        graphable.addTo(builder);
+        return builder.build();
+    }
+
+    /**
+     * @param graphables
+     *            the objects to add to the graph
+     * @return the graph of the objects and everything below them
+     */
+    public static DependencyGraph of(Collection<? extends Graphable> graphables) {
+        Builder builder = new Builder();
+        for (Graphable graphable : graphables) {
+            graphable.addTo(builder);
+        }
+        return builder.build();
+    }
+
+    public int getNodeCount() {
+        return names.length;
+    }
+
+    public int getEdgeCount() {
+        return targets.length;
+    }
+
+    /**
+     * @param name
+     *            the name of a node
+     * @return the id of the node, or -1 if there is no node with the name
+     */
+    public int getId(String name) {
+        int low = 0;
+        int high = byName.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int compare = names[byName[middle]].compareTo(name);
+            if (compare < 0) {
+                low = middle + 1;
+            } else if (compare > 0) {
+                high = middle - 1;
+            } else {
+                return byName[middle];
+            }
+        }
+        return -1;
+    }
+
+    public String getName(int node) {
+        return names[node];
+    }
+
+    public NodeKind getKind(int node) {
+        return NODE_KINDS[kinds[node]];
+    }
+
+    /**
+     * @param node
+     *            the node
+     * @return the result of the node, or <code>null</code> if it has none
+     */
+    public Result getResult(int node) {
+        return (results[node] == 0) ? null : RESULTS[results[node] - 1];
+    }
+
+    /**
+     * @param node
+     *            the node
+     * @return the time spent in the invocations of a method node, or -1 if it is not known
+     */
+    public long getDuration(int node) {
+        return durations[node];
+    }
+
+    /**
+     * @param edge
+     *            the edge
+     * @return the time a {@link EdgeKind#DEPENDS_ON} edge costs, i.e. the duration of the node depended upon, or -1
+     *         if it is not known or the edge is a {@link EdgeKind#CONTAINS} edge
+     */
+    public long getEdgeDuration(int edge) {
+        return (getEdgeKind(edge) == EdgeKind.DEPENDS_ON) ? durations[targets[edge]] : -1;
+    }
+
+    /**
+     * @return the id of the first outgoing edge of the node
+     */
+    public int getOutStart(int node) {
+        return outOffsets[node];
+    }
+
+    /**
+     * @return one past the id of the last outgoing edge of the node
+     */
+    public int getOutEnd(int node) {
+        return outOffsets[node + 1];
+    }
+
+    public int getOutDegree(int node) {
+        return outOffsets[node + 1] - outOffsets[node];
+    }
+
+    /**
+     * @param from
+     *            the node the edge comes from
+     * @param to
+     *            the node the edge points to
+     * @return the id of the edge, or -1 if there is no such edge
+     */
+    public int getEdge(int from, int to) {
+        for (int e = outOffsets[from]; e < outOffsets[from + 1]; e++) {
+            if (targets[e] == to) {
+                return e;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the node the edge points to
+     */
+    public int getTarget(int edge) {
+        return targets[edge];
+    }
+
+    public EdgeKind getEdgeKind(int edge) {
+        return EDGE_KINDS[edgeKinds[edge]];
+    }
+
+    /**
+     * @return the first reverse slot of the node
+     */
+    public int getInStart(int node) {
+        return inOffsets[node];
+    }
+
+    /**
+     * @return one past the last reverse slot of the node
+     */
+    public int getInEnd(int node) {
+        return inOffsets[node + 1];
+    }
+
+    public int getInDegree(int node) {
+        return inOffsets[node + 1] - inOffsets[node];
+    }
+
+    /**
+     * @return the node the edge in the reverse slot comes from
+     */
+    public int getInSource(int slot) {
+        return inSources[slot];
+    }
+
+    /**
+     * @return the id of the edge in the reverse slot
+     */
+    public int getInEdge(int slot) {
+        return inEdges[slot];
+    }
+
+    /**
+     * Collects nodes and edges for a {@link DependencyGraph}. Not thread safe.
+     */
+    public static final class Builder {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private String[] names = new String[16];
+        private byte[] kinds = new byte[16];
+        private byte[] results = new byte[16];
+        private long[] durations = new long[16];
+        private int nodeCount;
+        private int[] from = new int[16];
+        private int[] to = new int[16];
+        private byte[] edgeKinds = new byte[16];
+        private int edgeCount;
+
+        /**
+         * Add a node, or merge into the node with the same name. The kind of a node is the kind it was first added
+         * with; a result replaces the previous result of the node.
+         * 
+         * @param name
+         *            the name of the node
+         * @param kind
+         *            what the node stands for
+         * @param result
+         *            the result of the node, or <code>null</code> to keep the result it has
+         * @return the id of the node
+         */
+        public int addNode(String name, NodeKind kind, Result result) {
+            return addNode(name, kind, result, -1);
+        }
+
+        /**
+         * Add a node, or merge into the node with the same name. A known duration replaces the previous duration of
+         * the node.
+         * 
+         * @param name
+         *            the name of the node
+         * @param kind
+         *            what the node stands for
+         * @param result
+         *            the result of the node, or <code>null</code> to keep the result it has
+         * @param durationMillis
+         *            the time spent in the node, or -1 to keep the duration it has
+         * @return the id of the node
+         */
+        public int addNode(String name, NodeKind kind, Result result, long durationMillis) {
+            Integer id = ids.get(name);
+            if (id == null) {
+                if (nodeCount == names.length) {
+                    names = Arrays.copyOf(names, nodeCount * 2);
+                    kinds = Arrays.copyOf(kinds, nodeCount * 2);
+                    results = Arrays.copyOf(results, nodeCount * 2);
+                    durations = Arrays.copyOf(durations, nodeCount * 2);
+                }
+                id = nodeCount++;
+                ids.put(name, id);
+                names[id] = name;
+                kinds[id] = (byte) kind.ordinal();
+                durations[id] = -1;
+            }
+            if (result != null) {
+                results[id] = (byte) (result.ordinal() + 1);
+            }
+            if (durationMillis >= 0) {
+                durations[id] = durationMillis;
+            }
+            return id;
+        }
+
+        /**
+         * @param from
+         *            the id of the tail node
+         * @param to
+         *            the id of the head node
+         * @param kind
+         *            what the edge stands for
+         */
+        public void addEdge(int from, int to, EdgeKind kind) {
+            if (edgeCount == this.from.length) {
+                this.from = Arrays.copyOf(this.from, edgeCount * 2);
+                this.to = Arrays.copyOf(this.to, edgeCount * 2);
+                this.edgeKinds = Arrays.copyOf(this.edgeKinds, edgeCount * 2);
+            }
+            this.from[edgeCount] = from;
+            this.to[edgeCount] = to;
+            this.edgeKinds[edgeCount] = (byte) kind.ordinal();
+            edgeCount++;
+        }
+
+        public DependencyGraph build() {
+            return new DependencyGraph(this);
+        }
+    }
+}
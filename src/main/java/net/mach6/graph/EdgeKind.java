@@ -0,0 +1,23 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+package net.mach6.graph;
+
+/**
+ * What an edge of a {@link DependencyGraph} stands for
+ */
+public enum EdgeKind {
+    /**
+     * A suite to its child suites and tests, a test to its classes and groups, a class to its methods
+     */
+    CONTAINS,
+    /**
+     * A method to a method or group it depends upon
+     */
+    DEPENDS_ON
+}
@@ -0,0 +1,21 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+package net.mach6.graph;
+
+/**
+ * Interface for objects which can add themselves, and the objects below them, to a {@link DependencyGraph}
+ */
+public interface Graphable {
+    /**
+     * @param graph
+     *            the builder to add the nodes and edges to
+     * @return the id of the node which stands for this object
+     */
+    int addTo(DependencyGraph.Builder graph);
+}
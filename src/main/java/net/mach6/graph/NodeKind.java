@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+package net.mach6.graph;
+
+/**
+ * What a node of a {@link DependencyGraph} stands for, and how it is drawn
+ */
+public enum NodeKind {
+    SUITE("Suite: ", "box", 2),
+    TEST("Test: ", "house", 1),
+    CLASS("Class: ", "box", 1),
+    METHOD(null, null, 1),
+    GROUP("Group: ", "cds", 1);
+
+    private final String labelPrefix;
+    private final String shape;
+    private final int peripheries;
+
+    NodeKind(String labelPrefix, String shape, int peripheries) {
+        this.labelPrefix = labelPrefix;
+        this.shape = shape;
+        this.peripheries = peripheries;
+    }
+
+    /**
+     * @return the text placed before the name in the label of the node, or <code>null</code> if the node is labeled
+     *         with its name only
+     */
+    public String getLabelPrefix() {
+        return labelPrefix;
+    }
+
+    /**
+     * @return the Graphviz shape of the node, or <code>null</code> for the default ellipse
+     */
+    public String getShape() {
+        return shape;
+    }
+
+    /**
+     * @return the number of outlines drawn around the node
+     */
+    public int getPeripheries() {
+        return peripheries;
+    }
+}
@@ -0,0 +1,317 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+
+package net.mach6.graph;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import net.mach6.TestInfo;
+import net.mach6.TestSuiteInfo;
+
+import com.google.gson.annotations.Expose;
+
+/**
+ * How much the dependencies of a suite or test let its methods run in parallel, from the {@link TopologicalOrder} of its
+ * methods. The widest level is the most methods which can ever run at the same time. The work (the time all methods
+ * take one after the other) divided by the span (the duration of the {@link CriticalPath}) is the average number of
+ * methods which can run at the same time, so more threads than that mostly wait for dependencies; that number, capped
+ * by the widest level, is the recommended thread count. Without any timing every method counts as one unit of work.
+ * <p>
+ * The edges which limit the speedup most are the dependencies of methods on their slowest dependency which lie on the
+ * longest chains; the chain through an edge is the longest chain of methods which ends with the method depended upon
+ * plus the longest chain which starts with the dependent method. Everything is computed in linear passes over the
+ * order, apart from ranking the edges.
+ */
+public final class ParallelismAdvice {
+    private static final int LIMITING_EDGE_COUNT = 10;
+
+    @Expose
+    private final String name;
+    @Expose
+    private final String parallel;
+    @Expose
+    private final int methodCount;
+    @Expose
+    private final int unorderedMethodCount;
+    @Expose
+    private final int serializedMethodCount;
+    @Expose
+    private final List<Integer> levelWidths;
+    @Expose
+    private final int maxConcurrency;
+    @Expose
+    private final boolean timed;
+    @Expose
+    private final long work;
+    @Expose
+    private final long span;
+    @Expose
+    private final int recommendedThreadCount;
+    @Expose
+    private final String advice;
+    @Expose
+    private final List<LimitingEdge> limitingEdges;
+    @Expose
+    private List<ParallelismAdvice> tests;
+
+    private ParallelismAdvice(String name, String parallel, TopologicalOrder order) {
+        this.name = name;
+        this.parallel = parallel;
+        DependencyGraph graph = order.getGraph();
+        int nodeCount = graph.getNodeCount();
+        methodCount = order.getMethodCount();
+        unorderedMethodCount = methodCount - order.size();
+
+        levelWidths = new ArrayList<>(order.getLevelCount());
+        int widest = 0;
+        for (int width : order.getLevelWidths()) {
+            levelWidths.add(width);
+            widest = Math.max(widest, width);
+        }
+        maxConcurrency = widest;
+        int waiting = 0;
+        boolean anyDuration = false;
+        for (int i = 0; i < order.size(); i++) {
+            waiting += (order.getLevel(order.get(i)) > 0) ? 1 : 0;
+            anyDuration |= graph.getDuration(order.get(i)) > 0;
+        }
+        serializedMethodCount = waiting;
+        timed = anyDuration;
+
+        // the longest chain which ends with each method, and the dependency it comes through
+        long[] finish = new long[nodeCount];
+        int[] slowest = new int[nodeCount];
+        long total = 0;
+        long longest = 0;
+        for (int i = 0; i < order.size(); i++) {
+            int v = order.get(i);
+            slowest[v] = -1;
+            for (int e = graph.getOutStart(v); e < graph.getOutEnd(v); e++) {
+                if (TopologicalOrder.isMethodDependency(graph, e)
+                        && (slowest[v] == -1 || finish[graph.getTarget(e)] > finish[slowest[v]])) {
+                    slowest[v] = graph.getTarget(e);
+                }
+            }
+            finish[v] = ((slowest[v] == -1) ? 0 : finish[slowest[v]]) + weight(graph, v);
+            total += weight(graph, v);
+            longest = Math.max(longest, finish[v]);
+        }
+        work = total;
+        span = longest;
+
+        // the longest chain which starts with each method
+        long[] tail = new long[nodeCount];
+        for (int i = order.size() - 1; i >= 0; i--) {
+            int v = order.get(i);
+            long after = 0;
+            for (int slot = graph.getInStart(v); slot < graph.getInEnd(v); slot++) {
+                if (TopologicalOrder.isMethodDependency(graph, graph.getInEdge(slot))) {
+                    after = Math.max(after, tail[graph.getInSource(slot)]);
+                }
+            }
+            tail[v] = after + weight(graph, v);
+        }
+
+        List<LimitingEdge> edges = new ArrayList<>();
+        for (int i = 0; i < order.size(); i++) {
+            int v = order.get(i);
+            if (slowest[v] != -1) {
+                edges.add(new LimitingEdge(graph.getName(v), graph.getName(slowest[v]), finish[slowest[v]] + tail[v]));
+            }
+        }
+        Collections.sort(edges, new Comparator<LimitingEdge>() {
+            @Override
+            public int compare(LimitingEdge a, LimitingEdge b) {
+                return Long.compare(b.chain, a.chain);
+            }
+        });
+        limitingEdges = Collections.unmodifiableList(
+                new ArrayList<>(edges.subList(0, Math.min(LIMITING_EDGE_COUNT, edges.size()))));
+
+        recommendedThreadCount = (span == 0) ? 1
+                : (int) Math.max(1, Math.min(maxConcurrency, (work + span - 1) / span));
+        advice = advise(parallel, recommendedThreadCount);
+    }
+
+    private long weight(DependencyGraph graph, int node) {
+        return timed ? Math.max(0, graph.getDuration(node)) : 1;
+    }
+
+    private static String advise(String parallel, int threadCount) {
+        if (threadCount <= 1) {
+            return "The dependencies leave nothing to run in parallel";
+        }
+        if (parallel == null || "false".equals(parallel) || "none".equals(parallel)) {
+            return "Run the methods in parallel with a thread-count of " + threadCount;
+        }
+        return "A thread-count of " + threadCount + " is enough; more threads mostly wait for dependencies";
+    }
+
+    /**
+     * @param name
+     *            the name of the suite or test the graph is of
+     * @param parallel
+     *            the parallel mode of the suite or test
+     * @param graph
+     *            the graph
+     * @return the advice for the graph
+     */
+    public static ParallelismAdvice of(String name, String parallel, DependencyGraph graph) {
+        return new ParallelismAdvice(name, parallel, TopologicalOrder.of(graph));
+    }
+
+    /**
+     * @param test
+     *            the test
+     * @return the advice for the test
+     */
+    public static ParallelismAdvice of(TestInfo test) {
+        return of(test.getName(), test.getParallel(), DependencyGraph.of(test));
+    }
+
+    /**
+     * @param suite
+     *            the suite
+     * @return the advice for the suite, with the advice for each of its tests
+     */
+    public static ParallelismAdvice of(TestSuiteInfo suite) {
+        return of(SuiteGraphs.of(suite));
+    }
+
+    /**
+     * @param graphs
+     *            the graphs of a suite
+     * @return the advice for the suite, with the advice for each of its tests
+     */
+    public static ParallelismAdvice of(SuiteGraphs graphs) {
+        TestSuiteInfo suite = graphs.getSuite();
+        ParallelismAdvice advice = new ParallelismAdvice(suite.getName(), suite.getParallel(), graphs.getOrder());
+        advice.tests = new ArrayList<>();
+        for (TestInfo test : graphs.getTests()) {
+            advice.tests.add(new ParallelismAdvice(test.getName(), test.getParallel(), graphs.getOrder(test)));
+        }
+        return advice;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getParallel() {
+        return parallel;
+    }
+
+    /**
+     * @return the number of methods, including those on or behind a dependency cycle
+     */
+    public int getMethodCount() {
+        return methodCount;
+    }
+
+    /**
+     * @return the number of methods which are on or behind a dependency cycle, and so are not part of the advice
+     */
+    public int getUnorderedMethodCount() {
+        return unorderedMethodCount;
+    }
+
+    /**
+     * @return the number of methods which have to wait for another method
+     */
+    public int getSerializedMethodCount() {
+        return serializedMethodCount;
+    }
+
+    /**
+     * @return the number of methods at each topological level
+     */
+    public List<Integer> getLevelWidths() {
+        return Collections.unmodifiableList(levelWidths);
+    }
+
+    /**
+     * @return the most methods which can run at the same time
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * @return whether the work and span are in milliseconds rather than in methods
+     */
+    public boolean isTimed() {
+        return timed;
+    }
+
+    public long getWork() {
+        return work;
+    }
+
+    public long getSpan() {
+        return span;
+    }
+
+    public int getRecommendedThreadCount() {
+        return recommendedThreadCount;
+    }
+
+    public String getAdvice() {
+        return advice;
+    }
+
+    /**
+     * @return the dependencies which limit the speedup most, the most limiting first
+     */
+    public List<LimitingEdge> getLimitingEdges() {
+        return limitingEdges;
+    }
+
+    /**
+     * @return the advice for the tests of a suite, or <code>null</code> if this is not the advice for a suite
+     */
+    public List<ParallelismAdvice> getTests() {
+        return (tests == null) ? null : Collections.unmodifiableList(tests);
+    }
+
+    /**
+     * A dependency of a method on its slowest dependency
+     */
+    public static final class LimitingEdge {
+        @Expose
+        private final String method;
+        @Expose
+        private final String dependsOn;
+        @Expose
+        private final long chain;
+
+        LimitingEdge(String method, String dependsOn, long chain) {
+            this.method = method;
+            this.dependsOn = dependsOn;
+            this.chain = chain;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public String getDependsOn() {
+            return dependsOn;
+        }
+
+        /**
+         * @return the longest chain of methods through the edge, in the unit of the work
+         */
+        public long getChain() {
+            return chain;
+        }
+    }
+}
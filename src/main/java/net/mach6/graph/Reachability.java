@@ -0,0 +1,274 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+
+package net.mach6.graph;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+import net.mach6.DotSupport;
+import net.mach6.Dottable;
+
+import com.google.gson.annotations.Expose;
+
+/**
+ * Transitive reachability over the method dependencies of a {@link DependencyGraph}: everything a method depends upon
+ * (upstream) and everything which depends on it (downstream), as {@link BitSet}s of node ids.
+ * <p>
+ * For graphs of up to {@link #PRECOMPUTE_LIMIT} methods without dependency cycles the closures of all methods are
+ * computed up front, in {@link TopologicalOrder}, each as the union of the closures of its direct dependencies, so a
+ * query is a copy of one bit set. Larger graphs would need too much memory for that, so each query runs a breadth first
+ * search which only visits the part of the graph it returns. Only the {@link EdgeKind#DEPENDS_ON} edges between
+ * {@link NodeKind#METHOD} nodes count; the dependencies on groups are already resolved to the methods of the groups.
+ * Instances are thread safe.
+ */
+public final class Reachability {
+    /**
+     * The most methods for which the closures are computed up front; the bit sets take up to
+     * <code>methods * methods / 4</code> bytes
+     */
+    public static final int PRECOMPUTE_LIMIT = 4096;
+
+    private final DependencyGraph graph;
+    // null when the closures are computed on demand
+    private final BitSet[] upstream;
+    private final BitSet[] downstream;
+
+    private Reachability(DependencyGraph graph, boolean precompute) {
+        this.graph = graph;
+        TopologicalOrder order = precompute ? TopologicalOrder.of(graph) : null;
+        if (order == null || !order.isComplete() || order.size() > PRECOMPUTE_LIMIT) {
+            upstream = null;
+            downstream = null;
+            return;
+        }
+
+        upstream = new BitSet[graph.getNodeCount()];
+        downstream = new BitSet[graph.getNodeCount()];
+        for (int i = 0; i < order.size(); i++) {
+            int v = order.get(i);
+            BitSet closure = new BitSet();
+            for (int e = graph.getOutStart(v); e < graph.getOutEnd(v); e++) {
+                if (TopologicalOrder.isMethodDependency(graph, e)) {
+                    closure.set(graph.getTarget(e));
+                    closure.or(upstream[graph.getTarget(e)]);
+                }
+            }
+            upstream[v] = closure;
+        }
+        for (int i = order.size() - 1; i >= 0; i--) {
+            int v = order.get(i);
+            BitSet closure = new BitSet();
+            for (int slot = graph.getInStart(v); slot < graph.getInEnd(v); slot++) {
+                if (TopologicalOrder.isMethodDependency(graph, graph.getInEdge(slot))) {
+                    closure.set(graph.getInSource(slot));
+                    closure.or(downstream[graph.getInSource(slot)]);
+                }
+            }
+            downstream[v] = closure;
+        }
+    }
+
+    /**
+     * @param graph
+     *            the graph
+     * @return the reachability of the graph, with the closures computed up front if the graph is small enough
+     */
+    public static Reachability of(DependencyGraph graph) {
+        return new Reachability(graph, true);
+    }
+
+    /**
+     * @param graph
+     *            the graph
+     * @return the reachability of the graph, with every closure computed when it is asked for
+     */
+    public static Reachability onDemand(DependencyGraph graph) {
+        return new Reachability(graph, false);
+    }
+
+    public DependencyGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * @return whether the closures were computed up front
+     */
+    public boolean isPrecomputed() {
+        return upstream != null;
+    }
+
+    /**
+     * @param node
+     *            a method
+     * @return the methods the method depends upon, directly or transitively. A method on a dependency cycle is in its
+     *         own closure.
+     */
+    public BitSet getUpstream(int node) {
+        if (upstream != null) {
+            return (upstream[node] == null) ? new BitSet() : (BitSet) upstream[node].clone();
+        }
+        return search(node, true);
+    }
+
+    /**
+     * @param node
+     *            a method
+     * @return the methods which depend on the method, directly or transitively
+     */
+    public BitSet getDownstream(int node) {
+        if (downstream != null) {
+            return (downstream[node] == null) ? new BitSet() : (BitSet) downstream[node].clone();
+        }
+        return search(node, false);
+    }
+
+    /**
+     * @param method
+     *            a method
+     * @param dependency
+     *            another method
+     * @return whether the method depends on the other method, directly or transitively
+     */
+    public boolean dependsOn(int method, int dependency) {
+        if (upstream != null) {
+            return upstream[method] != null && upstream[method].get(dependency);
+        }
+        return search(method, true).get(dependency);
+    }
+
+    private BitSet search(int node, boolean up) {
+        BitSet visited = new BitSet(graph.getNodeCount());
+        if (graph.getKind(node) != NodeKind.METHOD) {
+            return visited;
+        }
+        int[] queue = new int[16];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = node;
+        while (head < tail) {
+            int v = queue[head++];
+            int end = up ? graph.getOutEnd(v) : graph.getInEnd(v);
+            for (int i = up ? graph.getOutStart(v) : graph.getInStart(v); i < end; i++) {
+                int edge = up ? i : graph.getInEdge(i);
+                if (!TopologicalOrder.isMethodDependency(graph, edge)) {
+                    continue;
+                }
+                int w = up ? graph.getTarget(edge) : graph.getInSource(i);
+                if (!visited.get(w)) {
+                    visited.set(w);
+                    if (tail == queue.length) {
+                        queue = Arrays.copyOf(queue, tail * 2);
+                    }
+                    queue[tail++] = w;
+                }
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * @param name
+     *            the name of a method
+     * @return the closure of the method, or <code>null</code> if the graph has no method of that name
+     */
+    public Closure getClosure(String name) {
+        int node = graph.getId(name);
+        if (node == -1 || graph.getKind(node) != NodeKind.METHOD) {
+            return null;
+        }
+        return new Closure(graph, node, getUpstream(node), getDownstream(node));
+    }
+
+    /**
+     * The methods a method depends upon and the methods which depend on it
+     */
+    public static final class Closure implements Dottable {
+        @Expose
+        private final String method;
+        @Expose
+        private final List<String> upstream;
+        @Expose
+        private final List<String> downstream;
+
+        // the method, its closure and the dependencies between them
+        private final DependencyGraph graph;
+        private final int node;
+
+        Closure(DependencyGraph parent, int method, BitSet up, BitSet down) {
+            this.method = parent.getName(method);
+            this.upstream = names(parent, up);
+            this.downstream = names(parent, down);
+
+            BitSet members = (BitSet) up.clone();
+            members.or(down);
+            members.set(method);
+            DependencyGraph.Builder builder = new DependencyGraph.Builder();
+            for (int v = members.nextSetBit(0); v >= 0; v = members.nextSetBit(v + 1)) {
+                builder.addNode(parent.getName(v), NodeKind.METHOD, parent.getResult(v), parent.getDuration(v));
+            }
+            for (int v = members.nextSetBit(0); v >= 0; v = members.nextSetBit(v + 1)) {
+                for (int e = parent.getOutStart(v); e < parent.getOutEnd(v); e++) {
+                    int w = parent.getTarget(e);
+                    if (TopologicalOrder.isMethodDependency(parent, e) && members.get(w)) {
+                        builder.addEdge(builder.addNode(parent.getName(v), NodeKind.METHOD, null),
+                                builder.addNode(parent.getName(w), NodeKind.METHOD, null), EdgeKind.DEPENDS_ON);
+                    }
+                }
+            }
+            this.graph = builder.build();
+            this.node = graph.getId(this.method);
+        }
+
+        private static List<String> names(DependencyGraph graph, BitSet nodes) {
+            List<String> names = new ArrayList<>(nodes.cardinality());
+            for (int v = nodes.nextSetBit(0); v >= 0; v = nodes.nextSetBit(v + 1)) {
+                names.add(graph.getName(v));
+            }
+            Collections.sort(names);
+            return Collections.unmodifiableList(names);
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        /**
+         * @return the names of the methods the method depends upon, sorted
+         */
+        public List<String> getUpstream() {
+            return upstream;
+        }
+
+        /**
+         * @return the names of the methods which depend on the method, sorted
+         */
+        public List<String> getDownstream() {
+            return downstream;
+        }
+
+        @Override
+        public String toDot(boolean asSubgraph) {
+            return DotSupport.toDot(this, asSubgraph);
+        }
+
+        @Override
+        public void toDot(Appendable out, boolean asSubgraph) throws IOException {
+            out.append(asSubgraph ? "subgraph closure" + Integer.toHexString(method.hashCode()) : "digraph g").append(" {\n");
+            BitSet highlighted = new BitSet();
+            highlighted.set(node);
+            DotSupport.appendGraph(out, graph, highlighted, new BitSet());
+            out.append("}\n");
+        }
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+
+package net.mach6.graph;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import net.mach6.DotSupport;
+import net.mach6.Dottable;
+import net.mach6.Result;
+import net.mach6.TestSuiteInfo;
+
+import com.google.gson.annotations.Expose;
+
+/**
+ * Which failed method caused each skipped method of a {@link DependencyGraph} to be skipped. A skipped method is
+ * attributed to the failure behind the dependency which is deepest in the {@link TopologicalOrder} among its failed and
+ * attributed dependencies; that dependency is its parent in the cascade tree of the failure. Since the dependencies of
+ * the model are transitive, the deepest one is the nearest.
+ * <p>
+ * The blast radius of a failure is the number of skipped methods attributed to it, so the radii add up to the
+ * attributed methods. A method behind more than one failure is counted as shared by the failure it is attributed to.
+ * That is carried along the order with the attribution: a method is behind more than one failure when one of its
+ * dependencies is, or when its dependencies are attributed to different failures.
+ * <p>
+ * Only the {@link EdgeKind#DEPENDS_ON} edges between {@link NodeKind#METHOD} nodes count, and all of it is one linear
+ * pass over the order. Skipped methods without a failure behind them, e.g. those which threw a
+ * <code>SkipException</code>, and those on or behind a dependency cycle, are unattributed.
+ */
+public final class SkipCascade implements Dottable {
+    @Expose
+    private final String name;
+    @Expose
+    private final int skippedCount;
+    @Expose
+    private final int attributedCount;
+    @Expose
+    private final List<Impact> failures;
+    @Expose
+    private final List<String> unattributed;
+
+    // the failures and the methods attributed to them, each depending on its parent in the cascade tree
+    private final DependencyGraph tree;
+
+    private SkipCascade(String name, TopologicalOrder order) {
+        this.name = name;
+        DependencyGraph graph = order.getGraph();
+        int nodeCount = graph.getNodeCount();
+        // the failure a method is attributed to and its parent in the cascade tree
+        int[] cause = new int[nodeCount];
+        int[] parent = new int[nodeCount];
+        int[] depth = new int[nodeCount];
+        // whether a method is behind more than one failure
+        boolean[] multiple = new boolean[nodeCount];
+        Arrays.fill(cause, -1);
+        Arrays.fill(parent, -1);
+
+        for (int i = 0; i < order.size(); i++) {
+            int v = order.get(i);
+            Result result = graph.getResult(v);
+            if (result == Result.FAILED) {
+                cause[v] = v;
+                continue;
+            }
+            if (result != Result.SKIPPED) {
+                continue;
+            }
+            int first = -1;
+            for (int e = graph.getOutStart(v); e < graph.getOutEnd(v); e++) {
+                int w = graph.getTarget(e);
+                if (!TopologicalOrder.isMethodDependency(graph, e) || cause[w] == -1) {
+                    continue;
+                }
+                multiple[v] |= multiple[w] || (first != -1 && first != cause[w]);
+                first = cause[w];
+                if (parent[v] == -1 || order.getLevel(w) > order.getLevel(parent[v])) {
+                    parent[v] = w;
+                }
+            }
+            if (parent[v] == -1) {
+                continue;
+            }
+            cause[v] = cause[parent[v]];
+            depth[v] = depth[parent[v]] + 1;
+        }
+
+        int[] radius = new int[nodeCount];
+        int[] shared = new int[nodeCount];
+        int[] height = new int[nodeCount];
+        int skipped = 0;
+        int attributed = 0;
+        List<String> lost = new ArrayList<>();
+        for (int v = 0; v < nodeCount; v++) {
+            if (graph.getKind(v) != NodeKind.METHOD || graph.getResult(v) != Result.SKIPPED) {
+                continue;
+            }
+            skipped++;
+            if (cause[v] == -1) {
+                lost.add(graph.getName(v));
+                continue;
+            }
+            attributed++;
+            radius[cause[v]]++;
+            shared[cause[v]] += multiple[v] ? 1 : 0;
+            height[cause[v]] = Math.max(height[cause[v]], depth[v]);
+        }
+        skippedCount = skipped;
+        attributedCount = attributed;
+        Collections.sort(lost);
+        unattributed = Collections.unmodifiableList(lost);
+
+        List<Impact> impacts = new ArrayList<>();
+        DependencyGraph.Builder builder = new DependencyGraph.Builder();
+        for (int v = 0; v < nodeCount; v++) {
+            if (cause[v] == v) {
+                impacts.add(new Impact(graph.getName(v), radius[v], shared[v], height[v]));
+            }
+            if (cause[v] != -1) {
+                builder.addNode(graph.getName(v), NodeKind.METHOD, graph.getResult(v), graph.getDuration(v));
+            }
+        }
+        for (int v = 0; v < nodeCount; v++) {
+            if (parent[v] != -1) {
+                builder.addEdge(builder.addNode(graph.getName(v), NodeKind.METHOD, null),
+                        builder.addNode(graph.getName(parent[v]), NodeKind.METHOD, null), EdgeKind.DEPENDS_ON);
+            }
+        }
+        tree = builder.build();
+        Collections.sort(impacts, new Comparator<Impact>() {
+            @Override
+            public int compare(Impact a, Impact b) {
+                int compare = Integer.compare(b.skippedCount, a.skippedCount);
+                return (compare != 0) ? compare : a.method.compareTo(b.method);
+            }
+        });
+        failures = Collections.unmodifiableList(impacts);
+    }
+
+    /**
+     * @param name
+     *            the name of the suite or test the graph is of
+     * @param graph
+     *            the graph
+     * @return the skip cascades of the graph
+     */
+    public static SkipCascade of(String name, DependencyGraph graph) {
+        return new SkipCascade(name, TopologicalOrder.of(graph));
+    }
+
+    /**
+     * @param suite
+     *            the suite
+     * @return the skip cascades of the suite
+     */
+    public static SkipCascade of(TestSuiteInfo suite) {
+        return of(SuiteGraphs.of(suite));
+    }
+
+    /**
+     * @param graphs
+     *            the graphs of a suite
+     * @return the skip cascades of the suite
+     */
+    public static SkipCascade of(SuiteGraphs graphs) {
+        return new SkipCascade(graphs.getSuite().getName(), graphs.getOrder());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getSkippedCount() {
+        return skippedCount;
+    }
+
+    /**
+     * @return the number of skipped methods which are attributed to a failure
+     */
+    public int getAttributedCount() {
+        return attributedCount;
+    }
+
+    /**
+     * @return the failed methods, the one with the most skipped methods attributed to it first
+     */
+    public List<Impact> getFailures() {
+        return failures;
+    }
+
+    /**
+     * @return the names of the skipped methods without a failure behind them, sorted
+     */
+    public List<String> getUnattributed() {
+        return unattributed;
+    }
+
+    @Override
+    public String toDot(boolean asSubgraph) {
+        return DotSupport.toDot(this, asSubgraph);
+    }
+
+    @Override
+    public void toDot(Appendable out, boolean asSubgraph) throws IOException {
+        out.append(asSubgraph ? "subgraph cascade" + Integer.toHexString(name.hashCode()) : "digraph g").append(" {\n");
+        BitSet highlighted = new BitSet();
+        for (Impact impact : failures) {
+            highlighted.set(tree.getId(impact.method));
+        }
+        DotSupport.appendGraph(out, tree, highlighted, new BitSet());
+        out.append("}\n");
+    }
+
+    /**
+     * A failed method and the skipped methods attributed to it
+     */
+    public static final class Impact {
+        @Expose
+        private final String method;
+        @Expose
+        private final int skippedCount;
+        @Expose
+        private final int sharedCount;
+        @Expose
+        private final int depth;
+
+        Impact(String method, int skippedCount, int sharedCount, int depth) {
+            this.method = method;
+            this.skippedCount = skippedCount;
+            this.sharedCount = sharedCount;
+            this.depth = depth;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        /**
+         * @return the number of skipped methods attributed to the failure, its blast radius
+         */
+        public int getSkippedCount() {
+            return skippedCount;
+        }
+
+        /**
+         * @return the number of the methods attributed to the failure which are also behind another failure
+         */
+        public int getSharedCount() {
+            return sharedCount;
+        }
+
+        /**
+         * @return the height of the cascade tree below the failure
+         */
+        public int getDepth() {
+            return depth;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+
+package net.mach6.graph;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+import net.mach6.DotSupport;
+import net.mach6.Dottable;
+
+import com.google.gson.annotations.Expose;
+
+/**
+ * The strongly connected components of the method dependencies of a {@link DependencyGraph}, found with Tarjan's
+ * algorithm. A component with more than one method, or a method which depends on itself, is a dependency cycle, which
+ * TestNG refuses to run.
+ * <p>
+ * Only the {@link EdgeKind#DEPENDS_ON} edges between {@link NodeKind#METHOD} nodes count; the dependencies on groups
+ * are already resolved to the methods of the groups. The depth first search keeps its own stack rather than recursing,
+ * so it neither overflows the thread stack on long chains nor costs more than linear time.
+ */
+public final class StronglyConnectedComponents {
+    private final String name;
+    // -1 for nodes which are not methods
+    private final int[] components;
+    private final int componentCount;
+    private final List<Cycle> cycles = new ArrayList<>();
+
+    private StronglyConnectedComponents(String name, DependencyGraph graph) {
+        this.name = name;
+        int nodeCount = graph.getNodeCount();
+        components = new int[nodeCount];
+        Arrays.fill(components, -1);
+        int[] index = new int[nodeCount];
+        Arrays.fill(index, -1);
+        int[] low = new int[nodeCount];
+        boolean[] onStack = new boolean[nodeCount];
+        int[] stack = new int[nodeCount];
+        int stackSize = 0;
+        // the path of the depth first search, and the next edge to follow from each node on it
+        int[] path = new int[nodeCount];
+        int[] nextEdge = new int[nodeCount];
+        int pathSize = 0;
+        int visited = 0;
+        int count = 0;
+
+        for (int root = 0; root < nodeCount; root++) {
+            if (index[root] != -1 || graph.getKind(root) != NodeKind.METHOD) {
+                continue;
+            }
+            index[root] = low[root] = visited++;
+            stack[stackSize++] = root;
+            onStack[root] = true;
+            path[pathSize++] = root;
+            nextEdge[root] = graph.getOutStart(root);
+
+            while (pathSize > 0) {
+                int v = path[pathSize - 1];
+                if (nextEdge[v] < graph.getOutEnd(v)) {
+                    int e = nextEdge[v]++;
+                    if (!TopologicalOrder.isMethodDependency(graph, e)) {
+                        continue;
+                    }
+                    int w = graph.getTarget(e);
+                    if (index[w] == -1) {
+                        index[w] = low[w] = visited++;
+                        stack[stackSize++] = w;
+                        onStack[w] = true;
+                        path[pathSize++] = w;
+                        nextEdge[w] = graph.getOutStart(w);
+                    } else if (onStack[w]) {
+                        low[v] = Math.min(low[v], index[w]);
+                    }
+                    continue;
+                }
+
+                pathSize--;
+                if (pathSize > 0) {
+                    int parent = path[pathSize - 1];
+                    low[parent] = Math.min(low[parent], low[v]);
+                }
+                if (low[v] == index[v]) {
+                    int start = stackSize;
+                    do {
+                        start--;
+                        onStack[stack[start]] = false;
+                        components[stack[start]] = count;
+                    } while (stack[start] != v);
+                    if (stackSize - start > 1 || graph.getEdge(v, v) != -1) {
+                        cycles.add(new Cycle(name, graph, Arrays.copyOfRange(stack, start, stackSize), components,
+                                count));
+                    }
+                    stackSize = start;
+                    count++;
+                }
+            }
+        }
+        componentCount = count;
+    }
+
+    /**
+     * @param name
+     *            the name of the suite or test the graph is of
+     * @param graph
+     *            the graph
+     * @return the components of the graph
+     */
+    public static StronglyConnectedComponents of(String name, DependencyGraph graph) {
+        return new StronglyConnectedComponents(name, graph);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @param node
+     *            the node
+     * @return the component of a method, or -1 if the node is not a method
+     */
+    public int getComponent(int node) {
+        return components[node];
+    }
+
+    public int getComponentCount() {
+        return componentCount;
+    }
+
+    public boolean hasCycles() {
+        return !cycles.isEmpty();
+    }
+
+    /**
+     * @return the dependency cycles, in the order they were found
+     */
+    public List<Cycle> getCycles() {
+        return Collections.unmodifiableList(cycles);
+    }
+
+    /**
+     * A strongly connected component with a dependency cycle: every method of it depends on every other one
+     */
+    public static final class Cycle implements Dottable {
+        @Expose
+        private final String name;
+        @Expose
+        private final List<String> methods;
+        @Expose
+        private final List<Dependency> dependencies;
+
+        // the methods of the cycle and the dependencies between them
+        private final DependencyGraph graph;
+
+        Cycle(String name, DependencyGraph parent, int[] nodes, int[] components, int component) {
+            this.name = name;
+            Arrays.sort(nodes);
+            List<String> names = new ArrayList<>(nodes.length);
+            List<Dependency> edges = new ArrayList<>();
+            DependencyGraph.Builder builder = new DependencyGraph.Builder();
+            for (int v : nodes) {
+                names.add(parent.getName(v));
+                builder.addNode(parent.getName(v), NodeKind.METHOD, parent.getResult(v), parent.getDuration(v));
+            }
+            for (int v : nodes) {
+                for (int e = parent.getOutStart(v); e < parent.getOutEnd(v); e++) {
+                    int w = parent.getTarget(e);
+                    if (TopologicalOrder.isMethodDependency(parent, e) && components[w] == component) {
+                        edges.add(new Dependency(parent.getName(v), parent.getName(w)));
+                        builder.addEdge(builder.addNode(parent.getName(v), NodeKind.METHOD, null),
+                                builder.addNode(parent.getName(w), NodeKind.METHOD, null), EdgeKind.DEPENDS_ON);
+                    }
+                }
+            }
+            this.methods = Collections.unmodifiableList(names);
+            this.dependencies = Collections.unmodifiableList(edges);
+            this.graph = builder.build();
+        }
+
+        /**
+         * @return the name of the suite or test of the cycle
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the names of the methods of the cycle
+         */
+        public List<String> getMethods() {
+            return methods;
+        }
+
+        /**
+         * @return the dependencies between the methods of the cycle
+         */
+        public List<Dependency> getDependencies() {
+            return dependencies;
+        }
+
+        @Override
+        public String toDot(boolean asSubgraph) {
+            return DotSupport.toDot(this, asSubgraph);
+        }
+
+        @Override
+        public void toDot(Appendable out, boolean asSubgraph) throws IOException {
+            out.append(asSubgraph ? "subgraph cycle" + Integer.toHexString(methods.hashCode()) : "digraph g").append(" {\n");
+            BitSet all = new BitSet();
+            all.set(0, Math.max(graph.getNodeCount(), graph.getEdgeCount()));
+            DotSupport.appendGraph(out, graph, all, all);
+            out.append("}\n");
+        }
+    }
+
+    /**
+     * A dependency of one method on another
+     */
+    public static final class Dependency {
+        @Expose
+        private final String method;
+        @Expose
+        private final String dependsOn;
+
+        Dependency(String method, String dependsOn) {
+            this.method = method;
+            this.dependsOn = dependsOn;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public String getDependsOn() {
+            return dependsOn;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+
+package net.mach6.graph;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import net.mach6.TestInfo;
+import net.mach6.TestSuiteInfo;
+
+/**
+ * The {@link DependencyGraph} and {@link TopologicalOrder} of a suite and of each of its tests, built once so the
+ * analyses and the writers of a report share them instead of each building the graphs from the names again.
+ * Instances are immutable.
+ */
+public final class SuiteGraphs {
+    private final TestSuiteInfo suite;
+    private final TopologicalOrder order;
+    private final Map<TestInfo, TopologicalOrder> tests = new LinkedHashMap<>();
+
+    private SuiteGraphs(TestSuiteInfo suite) {
+        this.suite = suite;
+        order = TopologicalOrder.of(DependencyGraph.of(suite));
+        if (suite.getTests() != null) {
+            for (TestInfo test : suite.getTests()) {
+                tests.put(test, TopologicalOrder.of(DependencyGraph.of(test)));
+            }
+        }
+    }
+
+    /**
+     * @param suite
+     *            the suite
+     * @return the graphs of the suite and its tests
+     */
+    public static SuiteGraphs of(TestSuiteInfo suite) {
+        return new SuiteGraphs(suite);
+    }
+
+    public TestSuiteInfo getSuite() {
+        return suite;
+    }
+
+    public DependencyGraph getGraph() {
+        return order.getGraph();
+    }
+
+    public TopologicalOrder getOrder() {
+        return order;
+    }
+
+    /**
+     * @return the tests of the suite, in the order of the suite
+     */
+    public Set<TestInfo> getTests() {
+        return Collections.unmodifiableSet(tests.keySet());
+    }
+
+    /**
+     * @param test
+     *            a test of the suite
+     * @return the graph of the test
+     */
+    public DependencyGraph getGraph(TestInfo test) {
+        return tests.get(test).getGraph();
+    }
+
+    /**
+     * @param test
+     *            a test of the suite
+     * @return the order of the methods of the test
+     */
+    public TopologicalOrder getOrder(TestInfo test) {
+        return tests.get(test);
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+
+package net.mach6.graph;
+
+import java.util.Arrays;
+
+/**
+ * The {@link NodeKind#METHOD} nodes of a {@link DependencyGraph} in an order in which every method comes after the
+ * methods it depends upon, with the level of each method: 0 for a method without dependencies, otherwise one more than
+ * the highest level of its dependencies. The methods of one level do not depend on each other, so they could all run at
+ * the same time.
+ * <p>
+ * Only the {@link EdgeKind#DEPENDS_ON} edges between methods count; the dependencies on groups are already resolved to
+ * the methods of the groups. The order is found with Kahn's algorithm, so the cost is linear in the size of the graph.
+ * Methods on a dependency cycle, and the methods which depend on them, are never ready and are left out.
+ */
+public final class TopologicalOrder {
+    private final DependencyGraph graph;
+    private final int[] order;
+    // -1 for nodes which are not ordered
+    private final int[] levels;
+    private final int[] levelWidths;
+    private final int methodCount;
+
+    private TopologicalOrder(DependencyGraph graph) {
+        this.graph = graph;
+        int nodeCount = graph.getNodeCount();
+        // dependencies of a method which are not in the order yet
+        int[] pending = new int[nodeCount];
+        levels = new int[nodeCount];
+        Arrays.fill(levels, -1);
+
+        int[] queue = new int[nodeCount];
+        int head = 0;
+        int tail = 0;
+        int methods = 0;
+        for (int v = 0; v < nodeCount; v++) {
+            if (graph.getKind(v) != NodeKind.METHOD) {
+                continue;
+            }
+            methods++;
+            for (int e = graph.getOutStart(v); e < graph.getOutEnd(v); e++) {
+                if (isMethodDependency(graph, e)) {
+                    pending[v]++;
+                }
+            }
+            if (pending[v] == 0) {
+                levels[v] = 0;
+                queue[tail++] = v;
+            }
+        }
+        methodCount = methods;
+
+        int levelCount = 0;
+        while (head < tail) {
+            int v = queue[head++];
+            levelCount = Math.max(levelCount, levels[v] + 1);
+            for (int slot = graph.getInStart(v); slot < graph.getInEnd(v); slot++) {
+                if (!isMethodDependency(graph, graph.getInEdge(slot))) {
+                    continue;
+                }
+                int dependent = graph.getInSource(slot);
+                levels[dependent] = Math.max(levels[dependent], levels[v] + 1);
+                if (--pending[dependent] == 0) {
+                    queue[tail++] = dependent;
+                }
+            }
+        }
+        order = Arrays.copyOf(queue, tail);
+        levelWidths = new int[levelCount];
+        for (int v : order) {
+            levelWidths[levels[v]]++;
+        }
+    }
+
+    /**
+     * @param graph
+     *            the graph
+     * @return the order of the methods of the graph
+     */
+    public static TopologicalOrder of(DependencyGraph graph) {
+        return new TopologicalOrder(graph);
+    }
+
+    /**
+     * @param graph
+     *            the graph
+     * @param edge
+     *            an edge of the graph
+     * @return whether the edge is a dependency of a method on another method
+     */
+    public static boolean isMethodDependency(DependencyGraph graph, int edge) {
+        return graph.getEdgeKind(edge) == EdgeKind.DEPENDS_ON
+                && graph.getKind(graph.getTarget(edge)) == NodeKind.METHOD;
+    }
+
+    public DependencyGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * @return the ids of the ordered methods, the methods depended upon first
+     */
+    public int[] getOrder() {
+        return order.clone();
+    }
+
+    /**
+     * @param index
+     *            the position in the order
+     * @return the id of the method at the position
+     */
+    public int get(int index) {
+        return order[index];
+    }
+
+    /**
+     * @return the number of ordered methods
+     */
+    public int size() {
+        return order.length;
+    }
+
+    /**
+     * @return the number of methods in the graph, ordered or not
+     */
+    public int getMethodCount() {
+        return methodCount;
+    }
+
+    /**
+     * @return whether every method of the graph is ordered, i.e. there is no dependency cycle
+     */
+    public boolean isComplete() {
+        return order.length == methodCount;
+    }
+
+    /**
+     * @param node
+     *            the node
+     * @return the level of the method, or -1 if the node is not an ordered method
+     */
+    public int getLevel(int node) {
+        return levels[node];
+    }
+
+    public int getLevelCount() {
+        return levelWidths.length;
+    }
+
+    /**
+     * @return the number of methods at each level
+     */
+    public int[] getLevelWidths() {
+        return levelWidths.clone();
+    }
+}
@@ -9,48 +9,45 @@
 
 package net.mach6.listeners;
 
-import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.logging.Logger;
+import java.util.regex.Pattern;
 
-import net.mach6.Dottable;
-import net.mach6.JSONable;
-import net.mach6.TestClassInfo;
-import net.mach6.TestSuiteInfo;
+import net.mach6.DependencyIndex;
+import net.mach6.Result;
 import net.mach6.TestInfo;
-import net.mach6.TestMethodInfo;
+import net.mach6.TestSuiteInfo;
+import net.mach6.scanner.StaticScanner;
 
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.FilenameUtils;
-import org.apache.commons.lang3.StringUtils;
+import org.testng.IAlterSuiteListener;
+import org.testng.IConfigurable;
+import org.testng.IConfigureCallBack;
+import org.testng.IMethodInstance;
+import org.testng.IMethodInterceptor;
 import org.testng.IReporter;
 import org.testng.ISuite;
 import org.testng.ITestContext;
 import org.testng.ITestResult;
-import org.testng.SkipException;
 import org.testng.internal.IResultListener2;
 import org.testng.xml.XmlSuite;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-
-public class DependencyReportingListener implements IResultListener2, IReporter {
+public class DependencyReportingListener implements IResultListener2, IReporter, IMethodInterceptor,
+        IAlterSuiteListener, IConfigurable {
     private static final Logger LOGGER = Logger.getLogger(DependencyReportingListener.class.getName());
-    private static final String OUTPUT_DIR = "/DependencyReporter";
-    private static final String DASH_OPTION = "dependencyReporter";
-    private static final String REPORT_FILENAME_JSON = "/report.json";
-    private static final String REPORT_FILENAME_DOT = "/report.dot";
-    private static List<String> dotFiles = new ArrayList<>();
+    static final String DASH_OPTION = "dependencyReporter";
 
     /**
      * Command line options for influencing the behavior of this listener/reporter <br>
      * Format - enumerated property name:value <br>
      * Default - first value in list <br>
+     * Options with a format also accept any value that matches it <br>
      * <br>
      * For example:
      * 
@@ -62,266 +59,212 @@ public class DependencyReportingListener implements IResultListener2, IReporter
         ENABLED(Arrays.asList("true", "false")),
         PRESCAN(Arrays.asList("false", "true")),
         MODE(Arrays.asList("all", "suites", "tests", "classes", "methods", "groups", "configuration")),
-        OUTPUT(Arrays.asList("all", "dot", "png", "json"));
+        OUTPUT(Arrays.asList("all", "dot", "png", "json", "svg", "bin", "critical", "parallelism",
+                "cascade")),
+        THREADS(Arrays.asList("auto"), "[1-9][0-9]{0,3}"),
+        DOT(Arrays.asList("/usr/local/bin/dot"), ".+"),
+        TIMEOUT(Arrays.asList("60"), "[1-9][0-9]{0,5}"),
+        INCREMENTAL(Arrays.asList("false", "true")),
+        SNAPSHOT(Arrays.asList("false", "true")),
+        COLLECT(Arrays.asList("report", "live")),
+        CHECKDIR(Arrays.asList("test-output"), ".+"),
+        // a qualified method name, which is also part of an output path, so no separators or ".." get through
+        CLOSURE(Arrays.asList("none"), "[\\p{L}\\p{N}_$]+(\\.[\\p{L}\\p{N}_$]+)+");
 
         private List<String> values;
+        private Pattern format;
 
         Option(List<String> values) {
+            this(values, null);
+        }
+
+        Option(List<String> values, String format) {
             this.values = values;
+            this.format = (format == null) ? null : Pattern.compile(format);
         }
 
         public List<String> getValues() {
             return values;
         }
 
-        public boolean isSet(String value) {
-            String options = System.getProperty(DASH_OPTION, "");
-            String parsed = parseOptions(options);
-            return parsed.equalsIgnoreCase(value);
+        /**
+         * @return the regular expression a value which is not one of the enumerated values must match, or
+         *         <code>null</code> if only the enumerated values are supported
+         */
+        public String getFormat() {
+            return (format == null) ? null : format.pattern();
         }
 
-        public boolean isSet(String... orValues) {
-            for (String value : orValues) {
-                if (isSet(value)) {
-                    return true;
-                }
-            }
-            return false;
+        /**
+         * @param value
+         *            the value to check, as supplied by the user
+         * @return whether the value is one of the enumerated values or matches the format of the option
+         */
+        public boolean isValid(String value) {
+            return values.contains(value.toLowerCase()) || (format != null && format.matcher(value).matches());
         }
 
-        private String parseOptions(String options) {
-            // set the default
-            String opt = this.values.get(0);
-
-            // parse the supplied, overriding the default value if specified and a valid value
-            String[] keyValuePairs = options.split(",");
-            for (String pair : keyValuePairs) {
-                String[] terms = pair.split(":");
-                String key = terms[0].toUpperCase();
-                if (!this.name().equals(key)) {
-                    continue;
-                }
-                String value = terms[1].toLowerCase();
-                if (this.getValues().contains(value)) {
-                    opt = value;
-                }
-            }
-            return opt;
+        public String getDefault() {
+            return values.get(0);
         }
     }
 
-    @Override
-    public void generateReport(List<XmlSuite> xmlSuites, List<ISuite> suites, String outputDirectory) {
-        if (Option.ENABLED.isSet("false")) {
-            return;
-        }
-
-        final String TOP_DIR = outputDirectory + OUTPUT_DIR;
-        // Clean out any old results, if they exist
-        FileUtils.deleteQuietly(new File(TOP_DIR));
+    private final ReporterConfiguration config;
+    private final LiveCollector collector = new LiveCollector();
+    // suite name -> the tests which finished, detached from TestNG, when taking snapshots
+    private final ConcurrentMap<String, Set<TestInfo>> snapshots = new ConcurrentHashMap<>();
 
-        // Build the TestSuiteInfo Set
-        Set<TestSuiteInfo> suiteInfoSet = new ConcurrentSkipListSet<>();
-        for (ISuite suite : suites) {
-            TestSuiteInfo suiteInfo = new TestSuiteInfo(suite);
-            suiteInfoSet.add(suiteInfo);
-        }
-
-        generateOutput(suiteInfoSet, TOP_DIR);
-        logCompletion(suiteInfoSet);
+    public DependencyReportingListener() {
+        this(ReporterConfiguration.fromSystemProperty());
     }
 
-    private void generateOutput(Set<TestSuiteInfo> suiteInfoSet, String directory) {
-        toJson(suiteInfoSet, directory + REPORT_FILENAME_JSON);
-        toDot(suiteInfoSet, directory + REPORT_FILENAME_DOT);
-        generateOutputForTestSuiteInfo(suiteInfoSet, directory);
-        generatePngFromDotFiles();
+    public DependencyReportingListener(ReporterConfiguration config) {
+        this.config = config;
     }
 
-    private void toDot(Set<TestSuiteInfo> suiteInfoSet, String fileName) {
-        if (!Option.OUTPUT.isSet("dot", "png", "all")) {
-            return;
-        }
-
-        StringBuilder builder = new StringBuilder("digraph g {\n");
-        for (Dottable dottable : suiteInfoSet) {
-            builder.append(dottable.toDot(true));
-        }
-        builder.append("}\n");
-        writeDotFile(builder.toString(), fileName);
+    public ReporterConfiguration getConfiguration() {
+        return config;
     }
 
-    private void toJson(Object jsonable, String filename) {
-        if (!Option.OUTPUT.isSet("json", "all")) {
+    @Override
+    public void generateReport(List<XmlSuite> xmlSuites, List<ISuite> suites, String outputDirectory) {
+        if (!config.isEnabled()) {
             return;
         }
 
-        LOGGER.fine("Creating " + filename);
-        String json = "";
-        if (jsonable instanceof JSONable) {
-            json = ((JSONable) jsonable).toJSON();
-        }
-        else {
-            Gson gson = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().setPrettyPrinting().create();
-            json = gson.toJson(jsonable);
-        }
-        try {
-            FileUtils.writeStringToFile(new File(filename), json, "UTF-8");
-        } catch (IOException e) {
-            throw new RuntimeException("Unable to create " + filename + " output file.", e);
-        }
-    }
-
-    private void toDot(Dottable dottable, String fileName) {
-        // NOTE png files require dot files as an intermediate format
-        if (!Option.OUTPUT.isSet("dot", "png", "all")) {
-            return;
+        // Build the TestSuiteInfo Set
+        Set<TestSuiteInfo> suiteInfoSet = new ConcurrentSkipListSet<>();
+        for (ISuite suite : suites) {
+            boolean collected = config.isLiveCollect() || config.isPrescan();
+            TestSuiteInfo suiteInfo = collected ? collector.toSuiteInfo(suite.getName()) : null;
+            if (suiteInfo == null) {
+                suiteInfo = new TestSuiteInfo(suite, takeSnapshot(suite.getName()));
+            }
+            if (config.isSnapshot()) {
+                suiteInfo.detach();
+            }
+            suiteInfoSet.add(suiteInfo);
         }
 
-        String dot = dottable.toDot(false);
-        writeDotFile(dot, fileName);
+        new ReportGenerator(config).generate(suiteInfoSet, outputDirectory);
     }
 
-    private void writeDotFile(String dot, String fileName) {
-        // NOTE png files require dot files as an intermediate format
-        if (!Option.OUTPUT.isSet("dot", "png", "all")) {
-            return;
-        }
-
-        if (StringUtils.isEmpty(dot) || dot.equals("digraph g {\n}\n")) {
+    /**
+     * When prescanning, check the suites for dependency cycles before TestNG orders their methods. TestNG stops the run
+     * on a cycle before any listener sees a test, so the cycles are found from the class files the suites name and
+     * written to the <code>checkdir</code> folder, as TestNG has not told where its output goes yet.
+     */
+    @Override
+    public void alter(List<XmlSuite> suites) {
+        if (!config.isPrescan()) {
             return;
         }
-
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        Set<TestSuiteInfo> scanned = new ConcurrentSkipListSet<>();
         try {
-            LOGGER.fine("Creating " + fileName);
-            FileUtils.writeStringToFile(new File(fileName), dot, "UTF-8");
-            dotFiles.add(fileName);
+            scan(suites, (loader == null) ? getClass().getClassLoader() : loader, scanned);
         } catch (IOException e) {
-            throw new RuntimeException("Unable to create " + fileName + " output file.", e);
-        }
-    }
-
-    private void generateOutputForTestSuiteInfo(Set<TestSuiteInfo> suites, String outputDirectory) {
-        for (TestSuiteInfo suite : suites) {
-            if (Option.MODE.isSet("all", "suites")) {
-                LOGGER.fine("Generating reports for " + suite.getName());
-                String fileName = suite.getName().replace(" ", "");
-                toDot(suite, outputDirectory + "/suites/" + fileName + ".dot");
-                toJson(suite, outputDirectory + "/suites/" + fileName + ".json");
-            }
-
-            doOutputForTestInfo(outputDirectory, suite);
-        }
-    }
-
-    private void doOutputForTestInfo(String outputDirectory, TestSuiteInfo suiteInfo) {
-        for (TestInfo testInfo : suiteInfo.getTests()) {
-            if (Option.MODE.isSet("all", "suites", "tests")) {
-                LOGGER.fine("Generating reports for " + testInfo.getName());
-                String fileName = testInfo.getName().replace(" ", "");
-                toDot(testInfo, outputDirectory + "/tests/" + fileName + ".dot");
-                toJson(testInfo, outputDirectory + "/tests/" + fileName + ".json");
-            }
-
-            doOutputForTestClassInfo(outputDirectory, testInfo);
-        }
-    }
-
-    private void doOutputForTestClassInfo(String outputDirectory, TestInfo testInfo) {
-        for (TestClassInfo classInfo : testInfo.getTestClasses()) {
-            if (Option.MODE.isSet("all", "suites", "tests", "classes")) {
-                LOGGER.fine("Generating reports for " + classInfo.getName());
-                String fileName = classInfo.getName();
-                toDot(classInfo, outputDirectory + "/classes/" + fileName + ".dot");
-                toJson(classInfo, outputDirectory + "/classes/" + fileName + ".json");
-            }
-
-            doOutputForMethodInfo(outputDirectory, classInfo);
-        }
-    }
-
-    private void doOutputForMethodInfo(String outputDirectory, TestClassInfo classInfo) {
-        if (!Option.MODE.isSet("all", "suites", "tests", "classes", "methods")) {
+            LOGGER.warning("Unable to check the suites for dependency cycles. " + e);
             return;
         }
-
-        for (TestMethodInfo method : classInfo.getTestMethods()) {
-            LOGGER.fine("Generating reports for " + method.getMethodName());
-            String fileName = classInfo.getName() + "." + method.getMethodName();
-            toDot(method, outputDirectory + "/methods/" + fileName + ".dot");
-            toJson(method, outputDirectory + "/methods/" + fileName + ".json");
-        }
+        new ReportGenerator(config).generateCycles(scanned, config.get(Option.CHECKDIR));
     }
 
-    private void generatePngFromDotFiles() {
-        if (!Option.OUTPUT.isSet("png", "all")) {
-            return;
-        }
-
-        for (String dotFile : dotFiles) {
-            dotFile = FilenameUtils.getFullPath(dotFile) + FilenameUtils.getName(dotFile);
-            try {
-                final String cmd = "/usr/local/bin/dot "
-                        + dotFile
-                        + " -Grankdir=LR -Tpng -o "
-                        + StringUtils.removeEnd(dotFile, ".dot").concat(".png");
-
-                Process p = Runtime.getRuntime().exec(cmd, null);
-                p.waitFor();
-            } catch (IOException | InterruptedException e) {
-                LOGGER.severe("Error generating png file due to " + e.getMessage());
-                throw new RuntimeException("Error generating png file", e);
-            } finally {
-                // Delete the dot file if it is not a requested output format
-                if (!Option.OUTPUT.isSet("dot", "all")) {
-                    LOGGER.fine("deleting -> " + dotFile);
-                    FileUtils.deleteQuietly(new File(dotFile));
-                }
-            }
+    private static void scan(List<XmlSuite> suites, ClassLoader loader, Set<TestSuiteInfo> scanned)
+            throws IOException {
+        for (XmlSuite suite : suites) {
+            scanned.add(StaticScanner.scan(suite, loader));
+            scan(suite.getChildSuites(), loader, scanned);
         }
     }
 
-    private void logCompletion(Set<TestSuiteInfo> suites) {
-        for (TestSuiteInfo suite : suites) {
-            LOGGER.info("Dependency report generation complete for " + suite.getName());
+    /**
+     * When prescanning, record the methods of the test and tell TestNG to run none of them. The report is built from
+     * what was recorded, so no test class is asked to run a method and no invocation is skipped one by one.
+     */
+    @Override
+    public List<IMethodInstance> intercept(List<IMethodInstance> methods, ITestContext context) {
+        if (!config.isPrescan()) {
+            return methods;
         }
+        collector.onIntercept(context, methods);
+        return new ArrayList<>();
     }
 
     @Override
     public void onTestStart(ITestResult result) {
-        if (Option.PRESCAN.isSet("false") || Option.ENABLED.isSet("false")) {
+        if (!config.isPrescan()) {
             return;
         }
-        throw new SkipException("Skipped for suite analysis");
+        // only reached when another interceptor added methods back after this one, which is then left to run
+        LOGGER.warning("Running " + DependencyIndex.TESTNG_METHODS.getQualifiedName(result.getMethod())
+                + " during a prescan, another method interceptor added it back.");
     }
 
     @Override
     public void onTestSuccess(ITestResult result) {
+        if (config.isLiveCollect()) {
+            collector.onResult(result, Result.PASSED);
+        }
     }
 
     @Override
     public void onTestFailure(ITestResult result) {
+        if (config.isLiveCollect()) {
+            collector.onResult(result, Result.FAILED);
+        }
     }
 
     @Override
     public void onTestSkipped(ITestResult result) {
-        if (Option.PRESCAN.isSet("false") || Option.ENABLED.isSet("false")) {
-            return;
+        if (config.isLiveCollect()) {
+            collector.onResult(result, Result.SKIPPED);
         }
-        // result.setStatus(ITestResult.SUCCESS);
-        // result.setThrowable(null);
     }
 
     @Override
     public void onTestFailedButWithinSuccessPercentage(ITestResult result) {
+        if (config.isLiveCollect()) {
+            collector.onResult(result, Result.PASSED);
+        }
     }
 
     @Override
     public void onStart(ITestContext context) {
+        if (config.isLiveCollect()) {
+            collector.onStart(context);
+        }
     }
 
+    /**
+     * When taking snapshots, copy the test into the report model as soon as it finishes and drop its references to
+     * TestNG objects, so the model does not keep the test instances alive for the rest of the run.
+     */
     @Override
     public void onFinish(ITestContext context) {
+        if (!config.isEnabled() || !config.isSnapshot() || config.isLiveCollect() || config.isPrescan()) {
+            return;
+        }
+        TestInfo test = new TestInfo(context);
+        test.detach();
+        Set<TestInfo> tests = snapshots.get(context.getSuite().getName());
+        if (tests == null) {
+            tests = new ConcurrentSkipListSet<>();
+            Set<TestInfo> existing = snapshots.putIfAbsent(context.getSuite().getName(), tests);
+            if (existing != null) {
+                tests = existing;
+            }
+        }
+        tests.add(test);
+    }
+
+    /**
+     * @param suiteName
+     *            the name of the suite
+     * @return the tests of the suite which were snapshot when they finished, or <code>null</code> when there are none
+     */
+    Set<TestInfo> takeSnapshot(String suiteName) {
+        return snapshots.remove(suiteName);
     }
 
     @Override
@@ -334,19 +277,23 @@ public class DependencyReportingListener implements IResultListener2, IReporter
 
     @Override
     public void onConfigurationSkip(ITestResult itr) {
-        if (Option.PRESCAN.isSet("false") || Option.ENABLED.isSet("false")) {
-            return;
-        }
-        // TODO :: figure out why status SKIP breaks some suites
-        itr.setStatus(ITestResult.SUCCESS);
     }
 
     @Override
     public void beforeConfiguration(ITestResult tr) {
-        if (Option.PRESCAN.isSet("false") || Option.ENABLED.isSet("false")) {
+    }
+
+    /**
+     * When prescanning, leave out the configuration methods which TestNG runs even though no test method is left, such
+     * as <code>@BeforeSuite</code> and <code>@BeforeTest</code>. TestNG reports a configuration method that is not
+     * called back as passed, so nothing is skipped or thrown for it.
+     */
+    @Override
+    public void run(IConfigureCallBack callBack, ITestResult testResult) {
+        if (config.isPrescan()) {
             return;
         }
-        throw new SkipException("Skipped for suite analysis");
+        callBack.runConfigurationMethod(testResult);
     }
 
 }
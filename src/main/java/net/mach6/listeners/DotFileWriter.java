@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+
+package net.mach6.listeners;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Buffered UTF-8 writer for .dot files which does not create the file when the content is empty or an empty
+ * "digraph g {\n}\n". The file is only opened once more content than that has been written.
+ */
+class DotFileWriter extends Writer {
+    static final String EMPTY_GRAPH = "digraph g {\n}\n";
+
+    private final File file;
+    private final OutputRun run;
+    private final int bufferSize;
+    private final StringBuilder pending = new StringBuilder(EMPTY_GRAPH.length() + 1);
+    private Writer delegate;
+    private boolean closed;
+
+    DotFileWriter(File file, OutputRun run, int bufferSize) {
+        this.file = file;
+        this.run = run;
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * @return <code>true</code> if the file was created
+     */
+    boolean isCreated() {
+        return delegate != null;
+    }
+
+    private void open() throws IOException {
+        delegate = new BufferedWriter(new OutputStreamWriter(run.openOutputStream(file),
+                StandardCharsets.UTF_8), bufferSize);
+        delegate.append(pending);
+        pending.setLength(0);
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Writer for " + file + " is closed");
+        }
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        ensureOpen();
+        if (delegate == null) {
+            pending.append(cbuf, off, len);
+            if (pending.length() > EMPTY_GRAPH.length()) {
+                open();
+            }
+            return;
+        }
+        delegate.write(cbuf, off, len);
+    }
+
+    @Override
+    public Writer append(CharSequence csq, int start, int end) throws IOException {
+        ensureOpen();
+        if (delegate == null) {
+            pending.append(csq, start, end);
+            if (pending.length() > EMPTY_GRAPH.length()) {
+                open();
+            }
+            return this;
+        }
+        delegate.append(csq, start, end);
+        return this;
+    }
+
+    @Override
+    public Writer append(CharSequence csq) throws IOException {
+        CharSequence value = (csq == null) ? "null" : csq;
+        return append(value, 0, value.length());
+    }
+
+    @Override
+    public Writer append(char c) throws IOException {
+        ensureOpen();
+        if (delegate == null) {
+            pending.append(c);
+            if (pending.length() > EMPTY_GRAPH.length()) {
+                open();
+            }
+            return this;
+        }
+        delegate.append(c);
+        return this;
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        append(str, off, off + len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (delegate != null) {
+            delegate.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (delegate == null && pending.length() > 0 && !EMPTY_GRAPH.contentEquals(pending)) {
+            open();
+        }
+        if (delegate != null) {
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+
+package net.mach6.listeners;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Renders .dot files to .png files with the Graphviz <code>dot</code> executable. Files are rendered concurrently by
+ * a pool of processes, each with a timeout. A failure to render one file does not stop the others; they are reported
+ * in the returned {@link Summary} instead.
+ */
+class GraphvizRenderer {
+    private static final Logger LOGGER = Logger.getLogger(GraphvizRenderer.class.getName());
+    // how much of the output of a failed process to keep for the summary
+    private static final int MAX_OUTPUT_CHARS = 2048;
+    // how many failures and skips to list individually when logging the summary
+    private static final int MAX_LOGGED_FILES = 20;
+
+    private final String dotExecutable;
+    private final long timeoutSeconds;
+    private final int threads;
+    private final boolean keepDotFiles;
+
+    GraphvizRenderer(String dotExecutable, long timeoutSeconds, int threads, boolean keepDotFiles) {
+        this.dotExecutable = dotExecutable;
+        this.timeoutSeconds = timeoutSeconds;
+        this.threads = threads;
+        this.keepDotFiles = keepDotFiles;
+    }
+
+    /**
+     * Render the dot files and wait for all of them to complete
+     * 
+     * @param dotFiles
+     *            the .dot files to render. The .png is written next to each of them.
+     * @return the outcome of the renders
+     */
+    Summary render(List<String> dotFiles) {
+        Summary summary = new Summary();
+        if (dotFiles.isEmpty()) {
+            return summary;
+        }
+
+        File executable = new File(dotExecutable);
+        if (executable.isAbsolute() && !executable.canExecute()) {
+            for (String dotFile : dotFiles) {
+                summary.skipped(dotFile, dotExecutable + " is not an executable file");
+                deleteDotFile(dotFile);
+            }
+            return summary;
+        }
+
+        ExecutorService renderers = Executors.newFixedThreadPool(threads,
+                new OutputRun.DaemonThreadFactory("dependency-reporter-dot-"));
+        ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(
+                new OutputRun.DaemonThreadFactory("dependency-reporter-dot-watchdog-"));
+        try {
+            List<Future<?>> pending = new ArrayList<>(dotFiles.size());
+            for (final String dotFile : dotFiles) {
+                pending.add(renderers.submit(new RenderTask(dotFile, watchdog, summary)));
+            }
+            for (Future<?> future : pending) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while generating png files", e);
+        } catch (ExecutionException e) {
+            // RenderTask records its own failures; anything else is a bug
+            throw new RuntimeException("Error generating png files", e.getCause());
+        } finally {
+            renderers.shutdownNow();
+            watchdog.shutdownNow();
+        }
+        return summary;
+    }
+
+    private void deleteDotFile(String dotFile) {
+        // Delete the dot file if it is not a requested output format
+        if (!keepDotFiles) {
+            LOGGER.fine("deleting -> " + dotFile);
+            FileUtils.deleteQuietly(new File(dotFile));
+        }
+    }
+
+    private class RenderTask implements Runnable {
+        private final String dotFile;
+        private final ScheduledExecutorService watchdog;
+        private final Summary summary;
+
+        RenderTask(String dotFile, ScheduledExecutorService watchdog, Summary summary) {
+            this.dotFile = dotFile;
+            this.watchdog = watchdog;
+            this.summary = summary;
+        }
+
+        @Override
+        public void run() {
+            String pngFile = StringUtils.removeEnd(dotFile, ".dot").concat(".png");
+            try {
+                final Process process = new ProcessBuilder(dotExecutable, dotFile, "-Grankdir=LR", "-Tpng", "-o",
+                        pngFile).redirectErrorStream(true).start();
+                final AtomicBoolean timedOut = new AtomicBoolean();
+                ScheduledFuture<?> timeout = watchdog.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        timedOut.set(true);
+                        process.destroy();
+                    }
+                }, timeoutSeconds, TimeUnit.SECONDS);
+
+                String output;
+                int exitCode;
+                try {
+                    process.getOutputStream().close();
+                    output = drain(process.getInputStream());
+                    exitCode = process.waitFor();
+                } finally {
+                    timeout.cancel(false);
+                    process.destroy();
+                }
+
+                if (timedOut.get()) {
+                    summary.failed(dotFile, "timed out after " + timeoutSeconds + "s");
+                } else if (exitCode != 0) {
+                    summary.failed(dotFile, "exit code " + exitCode + (output.isEmpty() ? "" : ": " + output));
+                } else {
+                    summary.rendered();
+                }
+            } catch (IOException e) {
+                summary.failed(dotFile, e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                summary.skipped(dotFile, "interrupted");
+            } finally {
+                deleteDotFile(dotFile);
+            }
+        }
+
+        private String drain(InputStream in) throws IOException {
+            // read to the end so the process never blocks on a full pipe, but only keep the tail
+            StringBuilder tail = new StringBuilder();
+            char[] buffer = new char[4096];
+            try (Reader reader = new InputStreamReader(in, Charset.defaultCharset())) {
+                int read;
+                while ((read = reader.read(buffer)) != -1) {
+                    tail.append(buffer, 0, read);
+                    if (tail.length() > MAX_OUTPUT_CHARS) {
+                        tail.delete(0, tail.length() - MAX_OUTPUT_CHARS);
+                    }
+                }
+            }
+            return tail.toString().trim();
+        }
+    }
+
+    /**
+     * Thread safe tally of the outcome of rendering a set of files
+     */
+    static class Summary {
+        private int rendered;
+        private final List<String> failures = new ArrayList<>();
+        private final List<String> skips = new ArrayList<>();
+
+        synchronized void rendered() {
+            rendered++;
+        }
+
+        synchronized void failed(String dotFile, String reason) {
+            failures.add(dotFile + " (" + reason + ")");
+        }
+
+        synchronized void skipped(String dotFile, String reason) {
+            skips.add(dotFile + " (" + reason + ")");
+        }
+
+        synchronized int getRendered() {
+            return rendered;
+        }
+
+        synchronized List<String> getFailures() {
+            return Collections.unmodifiableList(new ArrayList<>(failures));
+        }
+
+        synchronized List<String> getSkips() {
+            return Collections.unmodifiableList(new ArrayList<>(skips));
+        }
+
+        /**
+         * Log the number of rendered files and the first few failures and skips
+         * 
+         * @param logger
+         *            the logger to write to
+         */
+        synchronized void log(Logger logger) {
+            if (failures.isEmpty() && skips.isEmpty()) {
+                logger.fine("Rendered " + rendered + " png files");
+                return;
+            }
+            StringBuilder message = new StringBuilder("Rendered ").append(rendered).append(" png files, ")
+                    .append(failures.size()).append(" failed, ").append(skips.size()).append(" skipped");
+            appendFiles(message, "failed", failures);
+            appendFiles(message, "skipped", skips);
+            logger.warning(message.toString());
+        }
+
+        private static void appendFiles(StringBuilder message, String outcome, List<String> files) {
+            for (int i = 0; i < files.size() && i < MAX_LOGGED_FILES; i++) {
+                message.append("\n  ").append(outcome).append(": ").append(files.get(i));
+            }
+            if (files.size() > MAX_LOGGED_FILES) {
+                message.append("\n  ... and ").append(files.size() - MAX_LOGGED_FILES).append(" more ")
+                        .append(outcome);
+            }
+        }
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+
+package net.mach6.listeners;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.mach6.DependencyIndex;
+import net.mach6.Result;
+import net.mach6.TestClassInfo;
+import net.mach6.TestInfo;
+import net.mach6.TestMethodInfo;
+import net.mach6.TestSuiteInfo;
+
+import org.testng.IMethodInstance;
+import org.testng.ISuite;
+import org.testng.ITestContext;
+import org.testng.ITestNGMethod;
+import org.testng.ITestResult;
+import org.testng.xml.XmlSuite;
+
+/**
+ * Collects the report model while the tests run, from the listener callbacks, so generating the report only has to
+ * assemble what was collected instead of crawling the result maps of every suite. Safe for concurrent callbacks;
+ * recording a result is a lookup in concurrent maps plus a compare and set, and the dependencies of every method of a
+ * suite are resolved to names once, when its first test starts, with a {@link DependencyIndex} which is dropped
+ * right after.
+ * <p>
+ * Only plain data is kept, no TestNG objects, so the collector never keeps a test instance alive. A method which is
+ * reported more than once, e.g. when it has several invocations, is FAILED if any invocation failed, otherwise SKIPPED
+ * if any was skipped, otherwise PASSED. A method which was only {@link #onIntercept(ITestContext, List) intercepted}
+ * has no result.
+ */
+class LiveCollector {
+    private final ConcurrentMap<String, SuiteRecord> suites = new ConcurrentHashMap<>();
+
+    /**
+     * @param context
+     *            the test which is starting
+     */
+    void onStart(ITestContext context) {
+        getSuiteRecord(context.getSuite()).getTestRecord(context);
+    }
+
+    /**
+     * Record the methods of a test without a result, e.g. when they are intercepted and never run
+     * 
+     * @param context
+     *            the test the methods belong to
+     * @param methods
+     *            the methods TestNG is about to run
+     */
+    void onIntercept(ITestContext context, List<IMethodInstance> methods) {
+        SuiteRecord suite = getSuiteRecord(context.getSuite());
+        TestRecord test = suite.getTestRecord(context);
+        for (IMethodInstance method : methods) {
+            test.getMethodRecord(method.getMethod(), context, suite);
+        }
+    }
+
+    /**
+     * @param testResult
+     *            the result reported to the listener
+     * @param result
+     *            what the result means for the report
+     */
+    void onResult(ITestResult testResult, Result result) {
+        ITestContext context = testResult.getTestContext();
+        SuiteRecord suite = getSuiteRecord(context.getSuite());
+        MethodRecord record = suite.getTestRecord(context).getMethodRecord(testResult.getMethod(), context, suite);
+        record.record(result);
+        // the callbacks run on the thread which ran the invocation
+        record.info.addInvocation(testResult.getStartMillis(), testResult.getEndMillis(),
+                Thread.currentThread().getName());
+    }
+
+    /**
+     * @param name
+     *            the name of a suite
+     * @return the model of the suite, or <code>null</code> if nothing was collected for it
+     */
+    TestSuiteInfo toSuiteInfo(String name) {
+        SuiteRecord suite = suites.get(name);
+        return (suite == null) ? null : suite.toSuiteInfo();
+    }
+
+    private SuiteRecord getSuiteRecord(ISuite suite) {
+        SuiteRecord record = suites.get(suite.getName());
+        if (record == null) {
+            // only the first test of a suite gets here, so the index is built once
+            synchronized (suites) {
+                record = suites.get(suite.getName());
+                if (record == null) {
+                    record = new SuiteRecord(suite);
+                    suites.put(suite.getName(), record);
+                }
+            }
+        }
+        return record;
+    }
+
+    /**
+     * @return the name the report model uses for a method, i.e. test class name + "." + method name
+     */
+    private static String name(ITestNGMethod method) {
+        return method.getTestClass().getName() + "." + method.getMethodName();
+    }
+
+    private static List<String> names(List<ITestNGMethod> methods) {
+        List<String> names = new ArrayList<>(methods.size());
+        for (ITestNGMethod method : methods) {
+            names.add(name(method));
+        }
+        return names;
+    }
+
+    private static int rank(Result result) {
+        switch (result) {
+        case FAILED:
+            return 3;
+        case SKIPPED:
+            return 2;
+        default:
+            return 1;
+        }
+    }
+
+    private static final class SuiteRecord {
+        private final String name;
+        private final String parallel;
+        private final boolean preserveOrder;
+        private final Set<String> childSuites = new ConcurrentSkipListSet<>();
+        // method name -> the names of all methods it depends upon, only read once the record is published
+        private final Map<String, List<String>> dependentMethods = new HashMap<>();
+        private final ConcurrentMap<String, TestRecord> tests = new ConcurrentHashMap<>();
+
+        SuiteRecord(ISuite suite) {
+            this.name = suite.getName();
+            this.parallel = suite.getParallel();
+            this.preserveOrder = Boolean.parseBoolean(suite.getXmlSuite().getPreserveOrder());
+            for (XmlSuite xs : suite.getXmlSuite().getChildSuites()) {
+                childSuites.add(xs.getName());
+            }
+            DependencyIndex<ITestNGMethod> index = DependencyIndex.of(suite);
+            for (ITestNGMethod method : suite.getAllMethods()) {
+                dependentMethods.put(name(method), names(index.getMethodsDependedUpon(method)));
+            }
+        }
+
+        List<String> getDependentMethods(ITestNGMethod method, ITestContext context) {
+            List<String> names = dependentMethods.get(name(method));
+            if (names == null) {
+                // This can happen if an interceptor returned new methods
+                List<ITestNGMethod> methods = new ArrayList<>(Arrays.asList(context.getAllTestMethods()));
+                methods.add(method);
+                names = names(DependencyIndex.of(methods).getMethodsDependedUpon(method));
+            }
+            return names;
+        }
+
+        TestRecord getTestRecord(ITestContext context) {
+            TestRecord record = tests.get(context.getName());
+            if (record == null) {
+                record = new TestRecord(context);
+                TestRecord existing = tests.putIfAbsent(context.getName(), record);
+                if (existing != null) {
+                    record = existing;
+                }
+            }
+            return record;
+        }
+
+        TestSuiteInfo toSuiteInfo() {
+            Set<TestInfo> testInfos = new ConcurrentSkipListSet<>();
+            for (TestRecord test : tests.values()) {
+                testInfos.add(test.toTestInfo());
+            }
+            return new TestSuiteInfo(name, parallel, preserveOrder, childSuites, testInfos);
+        }
+    }
+
+    private static final class TestRecord {
+        private final String name;
+        private final boolean preserveOrder;
+        private final String parallel;
+        private final String[] groups;
+        // class name -> method name -> method
+        private final ConcurrentMap<String, ConcurrentMap<String, MethodRecord>> classes = new ConcurrentHashMap<>();
+
+        TestRecord(ITestContext context) {
+            this.name = context.getName();
+            this.preserveOrder = Boolean.parseBoolean(context.getCurrentXmlTest().getPreserveOrder());
+            this.parallel = context.getCurrentXmlTest().getParallel().toString();
+            this.groups = context.getIncludedGroups();
+        }
+
+        MethodRecord getMethodRecord(ITestNGMethod method, ITestContext context, SuiteRecord suite) {
+            String className = method.getTestClass().getName();
+            ConcurrentMap<String, MethodRecord> methods = classes.get(className);
+            if (methods == null) {
+                methods = new ConcurrentHashMap<>();
+                ConcurrentMap<String, MethodRecord> existing = classes.putIfAbsent(className, methods);
+                if (existing != null) {
+                    methods = existing;
+                }
+            }
+            String methodName = name(method);
+            MethodRecord record = methods.get(methodName);
+            if (record == null) {
+                record = new MethodRecord(method, suite.getDependentMethods(method, context));
+                MethodRecord existing = methods.putIfAbsent(methodName, record);
+                if (existing != null) {
+                    record = existing;
+                }
+            }
+            return record;
+        }
+
+        TestInfo toTestInfo() {
+            Set<TestClassInfo> testClasses = new ConcurrentSkipListSet<>();
+            for (Map.Entry<String, ConcurrentMap<String, MethodRecord>> entry : classes.entrySet()) {
+                Set<TestMethodInfo> testMethods = new ConcurrentSkipListSet<>();
+                for (MethodRecord method : entry.getValue().values()) {
+                    testMethods.add(method.toTestMethodInfo());
+                }
+                testClasses.add(new TestClassInfo(entry.getKey(), testMethods));
+            }
+            return new TestInfo(name, preserveOrder, parallel, Arrays.asList(groups), testClasses);
+        }
+    }
+
+    private static final class MethodRecord {
+        private final TestMethodInfo info;
+        private final AtomicInteger rank = new AtomicInteger();
+
+        MethodRecord(ITestNGMethod method, List<String> dependentMethods) {
+            this.info = new TestMethodInfo(name(method), Arrays.asList(method.getGroups()),
+                    Arrays.asList(method.getGroupsDependedUpon()), Arrays.asList(method.getBeforeGroups()),
+                    Arrays.asList(method.getAfterGroups()), dependentMethods);
+        }
+
+        void record(Result result) {
+            int newRank = rank(result);
+            int current;
+            do {
+                current = rank.get();
+                if (current >= newRank) {
+                    return;
+                }
+            } while (!rank.compareAndSet(current, newRank));
+        }
+
+        TestMethodInfo toTestMethodInfo() {
+            switch (rank.get()) {
+            case 3:
+                info.setResult(Result.FAILED);
+                break;
+            case 2:
+                info.setResult(Result.SKIPPED);
+                break;
+            case 1:
+                info.setResult(Result.PASSED);
+                break;
+            default:
+                info.setResult(null);
+            }
+            return info;
+        }
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+
+package net.mach6.listeners;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Content hashes of the files written by the previous report run, used by incremental mode. Output is written to a
+ * temporary file while it is hashed, and only moved over the existing file when the content changed. After a run,
+ * {@link #commit()} removes the files the run no longer produced and saves the hashes for the next run.
+ */
+class OutputManifest {
+    static final String FILE_NAME = ".manifest";
+    private static final String ALGORITHM = "SHA-256";
+
+    private final File directory;
+    private final Map<String, String> previous;
+    private final Map<String, String> current = new ConcurrentHashMap<>();
+    private final Set<String> unchanged = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final boolean loaded;
+
+    /**
+     * @param directory
+     *            the report output directory, which holds the manifest
+     * @throws IOException
+     *             if an existing manifest can not be read
+     */
+    OutputManifest(File directory) throws IOException {
+        this.directory = directory;
+        this.previous = new HashMap<>();
+        File file = new File(directory, FILE_NAME);
+        this.loaded = file.isFile();
+        if (loaded) {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(FileUtils.openInputStream(file),
+                    StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    // <hash> <path relative to the directory>
+                    int separator = line.indexOf(' ');
+                    if (separator > 0) {
+                        previous.put(line.substring(separator + 1), line.substring(0, separator));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return <code>false</code> when the directory has no manifest, in which case no file in it is known to be
+     *         current
+     */
+    boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Open a file for writing. The file is only replaced when the stream is closed and the content differs from the
+     * previous run, or the file does not exist.
+     * 
+     * @param file
+     *            the file to write
+     * @return the stream to write the content to
+     * @throws IOException
+     *             if the temporary file can not be created
+     */
+    OutputStream open(File file) throws IOException {
+        return new TrackedOutputStream(file);
+    }
+
+    /**
+     * @param fileName
+     *            a file that was written in this run
+     * @return <code>true</code> if the content written is the same as in the previous run
+     */
+    boolean isUnchanged(String fileName) {
+        return unchanged.contains(relativePath(new File(fileName)));
+    }
+
+    /**
+     * @return the number of files written in this run with the same content as in the previous run
+     */
+    int getUnchangedCount() {
+        return unchanged.size();
+    }
+
+    /**
+     * Delete the files of the previous run which were not written in this run, along with the .png rendered from a
+     * .dot file, and save the manifest of this run.
+     * 
+     * @throws IOException
+     *             if the manifest can not be written
+     */
+    void commit() throws IOException {
+        for (String path : previous.keySet()) {
+            if (!current.containsKey(path)) {
+                FileUtils.deleteQuietly(new File(directory, path));
+                if (path.endsWith(".dot")) {
+                    FileUtils.deleteQuietly(new File(directory, StringUtils.removeEnd(path, ".dot") + ".png"));
+                }
+            }
+        }
+
+        File file = new File(directory, FILE_NAME);
+        File temp = File.createTempFile(FILE_NAME, ".tmp", directory);
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, String> entry : new TreeMap<>(current).entrySet()) {
+                writer.append(entry.getValue()).append(' ').append(entry.getKey()).append('\n');
+            }
+        }
+        move(temp, file);
+    }
+
+    private String relativePath(File file) {
+        String path = file.getAbsolutePath();
+        String prefix = directory.getAbsolutePath() + File.separator;
+        if (path.startsWith(prefix)) {
+            path = path.substring(prefix.length());
+        }
+        return path.replace(File.separatorChar, '/');
+    }
+
+    private static void move(File from, File to) throws IOException {
+        try {
+            Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder result = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            result.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return result.toString();
+    }
+
+    private class TrackedOutputStream extends FilterOutputStream {
+        private final File file;
+        private final File temp;
+        private final MessageDigest digest;
+        private boolean closed;
+
+        TrackedOutputStream(File file) throws IOException {
+            super(null);
+            this.file = file;
+            File parent = file.getAbsoluteFile().getParentFile();
+            FileUtils.forceMkdir(parent);
+            try {
+                this.digest = MessageDigest.getInstance(ALGORITHM);
+            } catch (NoSuchAlgorithmException e) {
+                // every Java platform supports SHA-256
+                throw new IllegalStateException(e);
+            }
+            this.temp = File.createTempFile(file.getName(), ".tmp", parent);
+            try {
+                this.out = new DigestOutputStream(new FileOutputStream(temp), digest);
+            } catch (FileNotFoundException e) {
+                FileUtils.deleteQuietly(temp);
+                throw e;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                out.close();
+                String path = relativePath(file);
+                String hash = toHex(digest.digest());
+                current.put(path, hash);
+                boolean same = hash.equals(previous.get(path));
+                if (same) {
+                    unchanged.add(path);
+                }
+                if (same && file.exists()) {
+                    return;
+                }
+                move(temp, file);
+            } finally {
+                FileUtils.deleteQuietly(temp);
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+
+package net.mach6.listeners;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * State of one report generation run. Holds the bounded pool which writes the output files concurrently, the output
+ * paths claimed so far, a thread safe registry of the .dot files that were written and, in incremental mode, the
+ * {@link OutputManifest}.
+ */
+class OutputRun {
+    // how many tasks, per writer thread, may be queued before the submitting thread has to write files itself
+    private static final int QUEUED_TASKS_PER_THREAD = 64;
+
+    private final ThreadPoolExecutor writers;
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    private final Queue<String> dotFiles = new ConcurrentLinkedQueue<>();
+    private final ConcurrentMap<String, Boolean> claimed = new ConcurrentHashMap<>();
+    private final OutputManifest manifest;
+
+    OutputRun(int threads) {
+        this(threads, null);
+    }
+
+    /**
+     * @param threads
+     *            the number of writer threads
+     * @param manifest
+     *            the manifest of the previous run for incremental mode, or <code>null</code> to always write the files
+     */
+    OutputRun(int threads, OutputManifest manifest) {
+        this.manifest = manifest;
+        writers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(threads * QUEUED_TASKS_PER_THREAD),
+                new DaemonThreadFactory("dependency-reporter-writer-"), new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Queue a task to the writer pool. When the queue is full the task runs on the calling thread. Once a task has
+     * failed the remaining tasks are skipped.
+     * 
+     * @param task
+     *            the task to run
+     */
+    void submit(final Runnable task) {
+        writers.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (failure.get() != null) {
+                    return;
+                }
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    if (!failure.compareAndSet(null, e)) {
+                        failure.get().addSuppressed(e);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Claim an output file for one task of this run. A class which is part of several tests, or a test name which is
+     * reused across suites, maps to the same file more than once; only the first claim writes it, so no two tasks
+     * write, or render, the same file at the same time.
+     * 
+     * @param fileName
+     *            the output file
+     * @return <code>true</code> if the file was not claimed before in this run
+     */
+    boolean claim(String fileName) {
+        return claimed.putIfAbsent(new File(fileName).getAbsolutePath(), Boolean.TRUE) == null;
+    }
+
+    /**
+     * Wait for all submitted tasks to complete and release the writer pool
+     * 
+     * @throws RuntimeException
+     *             the first failure of a task, if any
+     */
+    void await() {
+        writers.shutdown();
+        try {
+            while (!writers.awaitTermination(1, TimeUnit.SECONDS)) {
+                // keep waiting
+            }
+        } catch (InterruptedException e) {
+            writers.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while writing the report output", e);
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
+    /**
+     * @param file
+     *            the output file to create
+     * @return a stream to the file, which in incremental mode is only replaced when its content changed
+     * @throws IOException
+     *             if the file can not be opened
+     */
+    OutputStream openOutputStream(File file) throws IOException {
+        return (manifest == null) ? FileUtils.openOutputStream(file) : manifest.open(file);
+    }
+
+    /**
+     * @param fileName
+     *            a file written, and closed, in this run
+     * @return <code>true</code> in incremental mode when the content of the file is the same as in the previous run
+     */
+    boolean isUnchanged(String fileName) {
+        return manifest != null && manifest.isUnchanged(fileName);
+    }
+
+    void addDotFile(String fileName) {
+        dotFiles.add(fileName);
+    }
+
+    /**
+     * @return the .dot files written so far, sorted by name
+     */
+    List<String> getDotFiles() {
+        List<String> result = new ArrayList<>(dotFiles);
+        Collections.sort(result);
+        return result;
+    }
+
+    static class DaemonThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger();
+
+        DaemonThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,534 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+
+package net.mach6.listeners;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import net.mach6.DotSupport;
+import net.mach6.Dottable;
+import net.mach6.JSONable;
+import net.mach6.JsonSupport;
+import net.mach6.TestClassInfo;
+import net.mach6.TestInfo;
+import net.mach6.TestMethodInfo;
+import net.mach6.TestSuiteInfo;
+import net.mach6.binary.BinaryReportWriter;
+import net.mach6.graph.CriticalPath;
+import net.mach6.graph.DependencyGraph;
+import net.mach6.graph.Graphable;
+import net.mach6.graph.ParallelismAdvice;
+import net.mach6.graph.Reachability;
+import net.mach6.graph.SkipCascade;
+import net.mach6.graph.SuiteGraphs;
+import net.mach6.graph.StronglyConnectedComponents;
+import net.mach6.listeners.DependencyReportingListener.Option;
+import net.mach6.svg.SvgGraph;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Writes the report files for a set of {@link TestSuiteInfo}s, as configured by a {@link ReporterConfiguration}. Used
+ * by the {@link DependencyReportingListener} at the end of a run, and by anything else that can build the model, e.g.
+ * from compiled classes or a previous result file.
+ */
+public class ReportGenerator {
+    private static final Logger LOGGER = Logger.getLogger(ReportGenerator.class.getName());
+    private static final String OUTPUT_DIR = "/DependencyReporter";
+    private static final String REPORT_FILENAME_JSON = "/report.json";
+    private static final String REPORT_FILENAME_DOT = "/report.dot";
+    private static final String REPORT_FILENAME_SVG = "/report.svg";
+    private static final String REPORT_FILENAME_BIN = "/report.bin";
+    private static final String CRITICAL_PATH_FILENAME_JSON = "/critical-path.json";
+    private static final String PARALLELISM_FILENAME_JSON = "/parallelism.json";
+    private static final String CYCLES_FILENAME_JSON = "/cycles.json";
+    private static final String CYCLES_DIR = "/cycles/";
+    private static final String CLOSURE_DIR = "/closure/";
+    private static final String SKIP_CASCADE_FILENAME_JSON = "/skip-cascade.json";
+    private static final String SKIP_CASCADE_DIR = "/skip-cascade/";
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private final ReporterConfiguration config;
+
+    public ReportGenerator(ReporterConfiguration config) {
+        if (config == null) {
+            throw new IllegalArgumentException("The configuration must not be null");
+        }
+
+        this.config = config;
+    }
+
+    /**
+     * Write the report for the suites to the <code>DependencyReporter</code> sub-folder of a folder
+     * 
+     * @param suiteInfoSet
+     *            the suites to report
+     * @param outputDirectory
+     *            the parent folder of the report
+     */
+    public void generate(Set<TestSuiteInfo> suiteInfoSet, String outputDirectory) {
+        final String TOP_DIR = outputDirectory + OUTPUT_DIR;
+        OutputManifest manifest = null;
+        if (config.isIncremental()) {
+            try {
+                manifest = new OutputManifest(new File(TOP_DIR));
+            } catch (IOException e) {
+                LOGGER.warning("Unable to read the manifest of the previous report, regenerating all files. " + e);
+            }
+        }
+        if (manifest == null || !manifest.isLoaded()) {
+            // Clean out any old results, if they exist
+            FileUtils.deleteQuietly(new File(TOP_DIR));
+        }
+
+        generateOutput(suiteInfoSet, TOP_DIR, manifest);
+        logCompletion(suiteInfoSet);
+    }
+
+    private void generateOutput(Set<TestSuiteInfo> suiteInfoSet, String directory, OutputManifest manifest) {
+        // all files are written by the pool; wait for them before rendering any png files
+        OutputRun run = new OutputRun(config.getWriterThreads(), manifest);
+        try {
+            // every graph of a suite or test is built once and shared by the analyses and writers
+            List<SuiteGraphs> graphs = toSuiteGraphs(suiteInfoSet);
+            DependencyGraph reportGraph = isReportGraphNeeded() ? DependencyGraph.of(suiteInfoSet) : null;
+            toJson(run, suiteInfoSet, directory + REPORT_FILENAME_JSON);
+            toCriticalPaths(run, graphs, reportGraph, directory);
+            toParallelismJson(run, graphs, directory + PARALLELISM_FILENAME_JSON);
+            toCycles(run, findCycles(graphs), directory);
+            toClosure(run, reportGraph, directory);
+            toSkipCascades(run, graphs, directory);
+            toDot(run, toDottable(reportGraph), directory + REPORT_FILENAME_DOT);
+            toSvg(run, reportGraph, directory + REPORT_FILENAME_SVG);
+            toBin(run, suiteInfoSet, directory + REPORT_FILENAME_BIN);
+            generateOutputForTestSuiteInfo(run, graphs, directory);
+        } catch (RuntimeException | Error e) {
+            // still wait for the files already submitted, without losing the failure which stopped the report
+            try {
+                run.await();
+            } catch (RuntimeException awaitFailure) {
+                e.addSuppressed(awaitFailure);
+            }
+            throw e;
+        }
+        run.await();
+        if (manifest != null) {
+            commit(manifest);
+        }
+        generatePngFromDotFiles(run);
+    }
+
+    /**
+     * Write the dependency cycles of the suites, if they have any, to the <code>DependencyReporter</code> sub-folder of
+     * a folder. Other files of the folder are left alone.
+     * 
+     * @param suiteInfoSet
+     *            the suites to check
+     * @param outputDirectory
+     *            the parent folder of the report
+     * @return the dependency cycles which were found
+     */
+    public List<StronglyConnectedComponents.Cycle> generateCycles(Set<TestSuiteInfo> suiteInfoSet,
+            String outputDirectory) {
+        List<StronglyConnectedComponents.Cycle> cycles = new ArrayList<>();
+        for (TestSuiteInfo suite : suiteInfoSet) {
+            cycles.addAll(StronglyConnectedComponents.of(suite.getName(), DependencyGraph.of(suite)).getCycles());
+        }
+        if (!cycles.isEmpty()) {
+            OutputRun run = new OutputRun(config.getWriterThreads());
+            try {
+                toCycles(run, cycles, outputDirectory + OUTPUT_DIR);
+            } finally {
+                run.await();
+            }
+            generatePngFromDotFiles(run);
+        }
+        return cycles;
+    }
+
+    private static List<SuiteGraphs> toSuiteGraphs(Set<TestSuiteInfo> suiteInfoSet) {
+        List<SuiteGraphs> graphs = new ArrayList<>(suiteInfoSet.size());
+        for (TestSuiteInfo suite : suiteInfoSet) {
+            graphs.add(SuiteGraphs.of(suite));
+        }
+        return graphs;
+    }
+
+    /**
+     * @return whether any output needs the graph of all suites together
+     */
+    private boolean isReportGraphNeeded() {
+        return config.isDotOutput() || config.isSvgOutput() || config.isCriticalPathOutput()
+                || !"none".equals(config.get(Option.CLOSURE));
+    }
+
+    private List<StronglyConnectedComponents.Cycle> findCycles(List<SuiteGraphs> graphs) {
+        List<StronglyConnectedComponents.Cycle> cycles = new ArrayList<>();
+        for (SuiteGraphs suiteGraphs : graphs) {
+            cycles.addAll(StronglyConnectedComponents.of(suiteGraphs.getSuite().getName(), suiteGraphs.getGraph())
+                    .getCycles());
+        }
+        return cycles;
+    }
+
+    private void toCycles(OutputRun run, List<StronglyConnectedComponents.Cycle> cycles, String directory) {
+        if (cycles.isEmpty()) {
+            return;
+        }
+
+        StringBuilder message = new StringBuilder("Found ").append(cycles.size()).append(" dependency cycle(s)");
+        for (int i = 0; i < cycles.size(); i++) {
+            StronglyConnectedComponents.Cycle cycle = cycles.get(i);
+            message.append("\n  ").append(cycle.getName()).append(": ").append(cycle.getMethods());
+            toDot(run, cycle, directory + CYCLES_DIR + cycle.getName().replace(" ", "") + "." + (i + 1) + ".dot");
+        }
+        LOGGER.warning(message.toString());
+        toJson(run, cycles, directory + CYCLES_FILENAME_JSON);
+    }
+
+    private void toClosure(OutputRun run, DependencyGraph reportGraph, String directory) {
+        String method = config.get(Option.CLOSURE);
+        if ("none".equals(method)) {
+            return;
+        }
+
+        // a single query, so the closures of the other methods are not computed
+        Reachability.Closure closure = Reachability.onDemand(reportGraph).getClosure(method);
+        if (closure == null) {
+            LOGGER.warning("There is no test method " + method + " to write the closure of.");
+            return;
+        }
+        toDot(run, closure, directory + CLOSURE_DIR + method + ".dot");
+        toJson(run, closure, directory + CLOSURE_DIR + method + ".json");
+    }
+
+    private void toSkipCascades(OutputRun run, List<SuiteGraphs> graphs, String directory) {
+        if (!config.isSkipCascadeOutput()) {
+            return;
+        }
+
+        List<SkipCascade> cascades = new ArrayList<>(graphs.size());
+        for (SuiteGraphs suiteGraphs : graphs) {
+            SkipCascade cascade = SkipCascade.of(suiteGraphs);
+            cascades.add(cascade);
+            if (!cascade.getFailures().isEmpty()) {
+                submitDot(run, cascade, directory + SKIP_CASCADE_DIR + cascade.getName().replace(" ", "") + ".dot");
+            }
+        }
+        submitJson(run, cascades, directory + SKIP_CASCADE_FILENAME_JSON);
+    }
+
+    private void commit(OutputManifest manifest) {
+        try {
+            manifest.commit();
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to create " + OutputManifest.FILE_NAME + " output file.", e);
+        }
+        LOGGER.fine(manifest.getUnchangedCount() + " output files are unchanged since the previous report");
+    }
+
+    /**
+     * Write the critical paths of the suites, and the report graph with the paths highlighted, when they are asked for
+     * with <code>output:critical</code>.
+     */
+    private void toCriticalPaths(OutputRun run, List<SuiteGraphs> graphs, DependencyGraph reportGraph,
+            String directory) {
+        if (!config.isCriticalPathOutput()) {
+            return;
+        }
+
+        List<CriticalPath> criticalPaths = new ArrayList<>(graphs.size());
+        for (SuiteGraphs suiteGraphs : graphs) {
+            criticalPaths.add(CriticalPath.of(suiteGraphs));
+        }
+        submitJson(run, criticalPaths, directory + CRITICAL_PATH_FILENAME_JSON);
+        submitDot(run, toDottable(reportGraph, criticalPaths), directory + REPORT_FILENAME_DOT);
+    }
+
+    private void toParallelismJson(final OutputRun run, final List<SuiteGraphs> graphs, final String fileName) {
+        if (!config.isParallelismOutput() || !run.claim(fileName)) {
+            return;
+        }
+
+        run.submit(new Runnable() {
+            @Override
+            public void run() {
+                List<ParallelismAdvice> advice = new ArrayList<>(graphs.size());
+                for (SuiteGraphs suiteGraphs : graphs) {
+                    advice.add(ParallelismAdvice.of(suiteGraphs));
+                }
+                writeJsonFile(run, advice, fileName);
+            }
+        });
+    }
+
+    private Dottable toDottable(DependencyGraph graph) {
+        return toDottable(graph, Collections.<CriticalPath> emptyList());
+    }
+
+    private Dottable toDottable(final DependencyGraph graph, final List<CriticalPath> criticalPaths) {
+        return new Dottable() {
+            @Override
+            public String toDot(boolean asSubgraph) {
+                return DotSupport.toDot(this, asSubgraph);
+            }
+
+            @Override
+            public void toDot(Appendable out, boolean asSubgraph) throws IOException {
+                BitSet highlightedNodes = new BitSet();
+                BitSet highlightedEdges = new BitSet();
+                for (CriticalPath criticalPath : criticalPaths) {
+                    criticalPath.highlight(graph, highlightedNodes, highlightedEdges);
+                }
+                out.append("digraph g {\n");
+                DotSupport.appendGraph(out, graph, highlightedNodes, highlightedEdges);
+                out.append("}\n");
+            }
+        };
+    }
+
+    private void toJson(OutputRun run, Object jsonable, String filename) {
+        if (config.isJsonOutput()) {
+            submitJson(run, jsonable, filename);
+        }
+    }
+
+    private void submitJson(final OutputRun run, final Object jsonable, final String filename) {
+        if (!run.claim(filename)) {
+            return;
+        }
+
+        run.submit(new Runnable() {
+            @Override
+            public void run() {
+                writeJsonFile(run, jsonable, filename);
+            }
+        });
+    }
+
+    private void writeJsonFile(OutputRun run, Object jsonable, String filename) {
+        LOGGER.fine("Creating " + filename);
+        try (Writer writer = openWriter(run, filename)) {
+            if (jsonable instanceof JSONable) {
+                ((JSONable) jsonable).toJSON(writer);
+            } else {
+                JsonSupport.toJson(jsonable, writer);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to create " + filename + " output file.", e);
+        }
+    }
+
+    private Writer openWriter(OutputRun run, String fileName) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(run.openOutputStream(new File(fileName)),
+                StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+    }
+
+    private void toDot(OutputRun run, Dottable dottable, String fileName) {
+        // NOTE png files require dot files as an intermediate format
+        if (config.isDotOutput()) {
+            submitDot(run, dottable, fileName);
+        }
+    }
+
+    private void submitDot(final OutputRun run, final Dottable dottable, final String fileName) {
+        if (!run.claim(fileName)) {
+            return;
+        }
+
+        run.submit(new Runnable() {
+            @Override
+            public void run() {
+                writeDotFile(run, dottable, fileName);
+            }
+        });
+    }
+
+    private void writeDotFile(OutputRun run, Dottable dottable, String fileName) {
+        DotFileWriter writer = new DotFileWriter(new File(fileName), run, WRITE_BUFFER_SIZE);
+        try {
+            LOGGER.fine("Creating " + fileName);
+            try {
+                dottable.toDot(writer, false);
+            } finally {
+                writer.close();
+            }
+            if (writer.isCreated() && config.isPngOutput()) {
+                queuePngFile(run, fileName);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to create " + fileName + " output file.", e);
+        }
+    }
+
+    private void queuePngFile(OutputRun run, String fileName) {
+        File pngFile = new File(StringUtils.removeEnd(fileName, ".dot") + ".png");
+        if (run.isUnchanged(fileName) && pngFile.exists()) {
+            // the png of the previous run is current
+            if (!config.isKeepDotFiles()) {
+                FileUtils.deleteQuietly(new File(fileName));
+            }
+            return;
+        }
+        // a png that fails to render must not survive from the previous run
+        FileUtils.deleteQuietly(pngFile);
+        run.addDotFile(fileName);
+    }
+
+    private void toSvg(final OutputRun run, final Graphable graphable, final String fileName) {
+        if (!config.isSvgOutput() || !run.claim(fileName)) {
+            return;
+        }
+
+        run.submit(new Runnable() {
+            @Override
+            public void run() {
+                writeSvgFile(run, DependencyGraph.of(graphable), fileName);
+            }
+        });
+    }
+
+    private void toSvg(final OutputRun run, final DependencyGraph graph, final String fileName) {
+        if (!config.isSvgOutput() || !run.claim(fileName)) {
+            return;
+        }
+
+        run.submit(new Runnable() {
+            @Override
+            public void run() {
+                writeSvgFile(run, graph, fileName);
+            }
+        });
+    }
+
+    private void writeSvgFile(OutputRun run, DependencyGraph dependencyGraph, String fileName) {
+        SvgGraph graph = new SvgGraph(dependencyGraph);
+        if (graph.isEmpty()) {
+            // same as an empty .dot file, there is nothing to draw
+            return;
+        }
+
+        LOGGER.fine("Creating " + fileName);
+        try (Writer writer = openWriter(run, fileName)) {
+            graph.write(writer);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to create " + fileName + " output file.", e);
+        }
+    }
+
+    private void toBin(final OutputRun run, final Set<TestSuiteInfo> suiteInfoSet, final String fileName) {
+        if (!config.isBinOutput() || !run.claim(fileName)) {
+            return;
+        }
+
+        run.submit(new Runnable() {
+            @Override
+            public void run() {
+                LOGGER.fine("Creating " + fileName);
+                try (OutputStream out = new BufferedOutputStream(run.openOutputStream(new File(fileName)),
+                        WRITE_BUFFER_SIZE)) {
+                    BinaryReportWriter.write(suiteInfoSet, out);
+                } catch (IOException e) {
+                    throw new RuntimeException("Unable to create " + fileName + " output file.", e);
+                }
+            }
+        });
+    }
+
+    private void generateOutputForTestSuiteInfo(OutputRun run, List<SuiteGraphs> graphs, String outputDirectory) {
+        for (SuiteGraphs suiteGraphs : graphs) {
+            TestSuiteInfo suite = suiteGraphs.getSuite();
+            if (config.isSuiteMode()) {
+                LOGGER.fine("Generating reports for " + suite.getName());
+                String fileName = suite.getName().replace(" ", "");
+                toDot(run, toDottable(suiteGraphs.getGraph()), outputDirectory + "/suites/" + fileName + ".dot");
+                toSvg(run, suiteGraphs.getGraph(), outputDirectory + "/suites/" + fileName + ".svg");
+                toJson(run, suite, outputDirectory + "/suites/" + fileName + ".json");
+            }
+
+            doOutputForTestInfo(run, outputDirectory, suiteGraphs);
+        }
+    }
+
+    private void doOutputForTestInfo(OutputRun run, String outputDirectory, SuiteGraphs suiteGraphs) {
+        for (TestInfo testInfo : suiteGraphs.getTests()) {
+            if (config.isTestMode()) {
+                LOGGER.fine("Generating reports for " + testInfo.getName());
+                String fileName = testInfo.getName().replace(" ", "");
+                DependencyGraph graph = suiteGraphs.getGraph(testInfo);
+                toDot(run, toDottable(graph), outputDirectory + "/tests/" + fileName + ".dot");
+                toSvg(run, graph, outputDirectory + "/tests/" + fileName + ".svg");
+                toJson(run, testInfo, outputDirectory + "/tests/" + fileName + ".json");
+            }
+
+            doOutputForTestClassInfo(run, outputDirectory, testInfo);
+        }
+    }
+
+    private void doOutputForTestClassInfo(OutputRun run, String outputDirectory, TestInfo testInfo) {
+        for (TestClassInfo classInfo : testInfo.getTestClasses()) {
+            if (config.isClassMode()) {
+                LOGGER.fine("Generating reports for " + classInfo.getName());
+                String fileName = classInfo.getName();
+                toDot(run, classInfo, outputDirectory + "/classes/" + fileName + ".dot");
+                toSvg(run, classInfo, outputDirectory + "/classes/" + fileName + ".svg");
+                toJson(run, classInfo, outputDirectory + "/classes/" + fileName + ".json");
+            }
+
+            doOutputForMethodInfo(run, outputDirectory, classInfo);
+        }
+    }
+
+    private void doOutputForMethodInfo(OutputRun run, String outputDirectory, TestClassInfo classInfo) {
+        if (!config.isMethodMode()) {
+            return;
+        }
+
+        for (TestMethodInfo method : classInfo.getTestMethods()) {
+            LOGGER.fine("Generating reports for " + method.getMethodName());
+            String fileName = classInfo.getName() + "." + method.getMethodName();
+            toDot(run, method, outputDirectory + "/methods/" + fileName + ".dot");
+            if (method.hasDependencies()) {
+                // like the .dot file, there is nothing to draw for a method without dependencies
+                toSvg(run, method, outputDirectory + "/methods/" + fileName + ".svg");
+            }
+            toJson(run, method, outputDirectory + "/methods/" + fileName + ".json");
+        }
+    }
+
+    private void generatePngFromDotFiles(OutputRun run) {
+        if (!config.isPngOutput()) {
+            return;
+        }
+
+        GraphvizRenderer renderer = new GraphvizRenderer(config.get(Option.DOT), config.getDotTimeoutSeconds(),
+                Runtime.getRuntime().availableProcessors(), config.isKeepDotFiles());
+        renderer.render(run.getDotFiles()).log(LOGGER);
+    }
+
+    private void logCompletion(Set<TestSuiteInfo> suites) {
+        for (TestSuiteInfo suite : suites) {
+            LOGGER.info("Dependency report generation complete for " + suite.getName());
+        }
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+
+package net.mach6.listeners;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+import net.mach6.listeners.DependencyReportingListener.Option;
+
+/**
+ * Immutable snapshot of the {@link Option}s for one {@link DependencyReportingListener}. The option string is parsed
+ * and validated once; everything the listener consults per test or per output file is a plain field read.
+ */
+public final class ReporterConfiguration {
+    private final Map<Option, String> values;
+
+    private final boolean enabled;
+    private final boolean prescan;
+    private final boolean incremental;
+    private final boolean snapshot;
+    private final boolean liveCollect;
+    private final boolean dotOutput;
+    private final boolean pngOutput;
+    private final boolean jsonOutput;
+    private final boolean svgOutput;
+    private final boolean binOutput;
+    private final boolean criticalPathOutput;
+    private final boolean parallelismOutput;
+    private final boolean skipCascadeOutput;
+    private final boolean keepDotFiles;
+    private final boolean suiteMode;
+    private final boolean testMode;
+    private final boolean classMode;
+    private final boolean methodMode;
+    private final int writerThreads;
+    private final long dotTimeoutSeconds;
+
+    /**
+     * @param options
+     *            the option string, in the format <code>option:value[,option:value...]</code>. May be empty or
+     *            <code>null</code> in which case all options take their default value.
+     * @throws IllegalArgumentException
+     *             if a pair is malformed, names an unknown option, or supplies a value the option does not support
+     */
+    public ReporterConfiguration(String options) {
+        Map<Option, String> parsed = new EnumMap<>(Option.class);
+        for (Option option : Option.values()) {
+            parsed.put(option, option.getDefault());
+        }
+
+        if (options != null) {
+            for (String pair : options.split(",")) {
+                if (pair.trim().isEmpty()) {
+                    continue;
+                }
+                String[] terms = pair.split(":", 2);
+                if (terms.length != 2 || terms[0].trim().isEmpty() || terms[1].trim().isEmpty()) {
+                    throw new IllegalArgumentException("Malformed option '" + pair + "', expected option:value");
+                }
+                Option option = toOption(terms[0].trim());
+                String value = terms[1].trim();
+                if (!option.isValid(value)) {
+                    throw new IllegalArgumentException("Invalid value '" + value + "' for option "
+                            + option.name().toLowerCase() + ", expected one of " + option.getValues()
+                            + ((option.getFormat() == null) ? "" : " or a value matching " + option.getFormat()));
+                }
+                // enumerated values are case insensitive, free form values are kept as is
+                parsed.put(option, option.getValues().contains(value.toLowerCase()) ? value.toLowerCase() : value);
+            }
+        }
+        this.values = Collections.unmodifiableMap(parsed);
+
+        this.enabled = isSet(Option.ENABLED, "true");
+        this.prescan = enabled && isSet(Option.PRESCAN, "true");
+        this.incremental = isSet(Option.INCREMENTAL, "true");
+        this.snapshot = isSet(Option.SNAPSHOT, "true");
+        this.liveCollect = enabled && isSet(Option.COLLECT, "live");
+        // NOTE png files require dot files as an intermediate format
+        this.dotOutput = isSet(Option.OUTPUT, "dot", "png", "all");
+        this.pngOutput = isSet(Option.OUTPUT, "png", "all");
+        this.jsonOutput = isSet(Option.OUTPUT, "json", "all");
+        // svg files are drawn without graphviz, so they are only produced on request
+        this.svgOutput = isSet(Option.OUTPUT, "svg");
+        this.binOutput = isSet(Option.OUTPUT, "bin");
+        // the analyses walk the whole graph of every suite, so they are only run on request
+        this.criticalPathOutput = isSet(Option.OUTPUT, "critical");
+        this.parallelismOutput = isSet(Option.OUTPUT, "parallelism");
+        this.skipCascadeOutput = isSet(Option.OUTPUT, "cascade");
+        this.keepDotFiles = isSet(Option.OUTPUT, "dot", "all");
+        this.suiteMode = isSet(Option.MODE, "all", "suites");
+        this.testMode = suiteMode || isSet(Option.MODE, "tests");
+        this.classMode = testMode || isSet(Option.MODE, "classes");
+        this.methodMode = classMode || isSet(Option.MODE, "methods");
+        this.writerThreads = isSet(Option.THREADS, "auto") ? Runtime.getRuntime().availableProcessors()
+                : Integer.parseInt(get(Option.THREADS));
+        this.dotTimeoutSeconds = Long.parseLong(get(Option.TIMEOUT));
+    }
+
+    /**
+     * @return the configuration described by the <code>dependencyReporter</code> JVM system property
+     */
+    public static ReporterConfiguration fromSystemProperty() {
+        return new ReporterConfiguration(System.getProperty(DependencyReportingListener.DASH_OPTION, ""));
+    }
+
+    private static Option toOption(String key) {
+        try {
+            return Option.valueOf(key.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown option '" + key + "'", e);
+        }
+    }
+
+    public String get(Option option) {
+        return values.get(option);
+    }
+
+    public boolean isSet(Option option, String... orValues) {
+        String value = values.get(option);
+        for (String orValue : orValues) {
+            if (value.equalsIgnoreCase(orValue)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return <code>true</code> when the reporter is enabled and configured to prescan
+     */
+    public boolean isPrescan() {
+        return prescan;
+    }
+
+    /**
+     * @return <code>true</code> when only the output files whose content changed since the previous run are rewritten
+     */
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    /**
+     * @return <code>true</code> when the report model drops its references to TestNG objects once it is built
+     */
+    public boolean isSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * @return <code>true</code> when the report model is collected from the listener callbacks while the tests run,
+     *         instead of being crawled from the suite results afterwards
+     */
+    public boolean isLiveCollect() {
+        return liveCollect;
+    }
+
+    public boolean isDotOutput() {
+        return dotOutput;
+    }
+
+    public boolean isPngOutput() {
+        return pngOutput;
+    }
+
+    public boolean isJsonOutput() {
+        return jsonOutput;
+    }
+
+    public boolean isSvgOutput() {
+        return svgOutput;
+    }
+
+    /**
+     * @return <code>true</code> when the report model is written as a compact binary file
+     */
+    public boolean isBinOutput() {
+        return binOutput;
+    }
+
+    /**
+     * @return <code>true</code> when the critical path of each suite is computed and written, with the report graph
+     *         that highlights it
+     */
+    public boolean isCriticalPathOutput() {
+        return criticalPathOutput;
+    }
+
+    /**
+     * @return <code>true</code> when the parallelism advice of each suite is computed and written
+     */
+    public boolean isParallelismOutput() {
+        return parallelismOutput;
+    }
+
+    /**
+     * @return <code>true</code> when the failures behind the skipped methods of each suite are written, with a drawing
+     *         of the cascades
+     */
+    public boolean isSkipCascadeOutput() {
+        return skipCascadeOutput;
+    }
+
+    /**
+     * @return <code>false</code> when .dot files are only written as an intermediate format for png output
+     */
+    public boolean isKeepDotFiles() {
+        return keepDotFiles;
+    }
+
+    public boolean isSuiteMode() {
+        return suiteMode;
+    }
+
+    public boolean isTestMode() {
+        return testMode;
+    }
+
+    public boolean isClassMode() {
+        return classMode;
+    }
+
+    public boolean isMethodMode() {
+        return methodMode;
+    }
+
+    /**
+     * @return the number of threads used to write the output files
+     */
+    public int getWriterThreads() {
+        return writerThreads;
+    }
+
+    /**
+     * @return how long a single <code>dot</code> process may run before it is killed
+     */
+    public long getDotTimeoutSeconds() {
+        return dotTimeoutSeconds;
+    }
+
+    @Override
+    public String toString() {
+        return values.toString();
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+
+package net.mach6.scanner;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Reads the TestNG annotations of a class straight from its class file, without loading the class. Only the constant
+ * pool, the class and method headers and the <code>RuntimeVisibleAnnotations</code> attributes are decoded; everything
+ * else, e.g. the byte code, is skipped.
+ */
+final class ClassFileParser {
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final String ANNOTATIONS = "RuntimeVisibleAnnotations";
+    private static final String TEST = "Lorg/testng/annotations/Test;";
+    // annotations which keep a public method from being a test, even if the class has a @Test annotation
+    private static final Set<String> OTHER_TESTNG = new HashSet<>(Arrays.asList("Factory", "Configuration",
+            "BeforeSuite", "AfterSuite", "BeforeTest", "AfterTest", "BeforeGroups", "AfterGroups", "BeforeClass",
+            "AfterClass", "BeforeMethod", "AfterMethod"));
+
+    private final DataInputStream in;
+    private String[] utf8;
+    private int[] ints;
+    private int[] classNames;
+
+    private ClassFileParser(byte[] content) {
+        this.in = new DataInputStream(new ByteArrayInputStream(content));
+    }
+
+    /**
+     * @param in
+     *            the content of a class file. Not closed.
+     * @return the class
+     * @throws IOException
+     *             if the stream fails or its content is not a class file
+     */
+    static ScannedClass parse(InputStream in) throws IOException {
+        // class files are small; reading them whole makes every skip exact
+        return new ClassFileParser(IOUtils.toByteArray(in)).parse();
+    }
+
+    private ScannedClass parse() throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a class file.");
+        }
+        in.readUnsignedShort(); // minor version
+        in.readUnsignedShort(); // major version
+        readConstantPool();
+
+        int access = in.readUnsignedShort();
+        String name = className(in.readUnsignedShort());
+        int superIndex = in.readUnsignedShort();
+        String superName = (superIndex == 0) ? null : className(superIndex);
+        if ("java.lang.Object".equals(superName)) {
+            superName = null;
+        }
+        skip(2 * in.readUnsignedShort()); // interfaces
+
+        int fieldCount = in.readUnsignedShort();
+        for (int i = 0; i < fieldCount; i++) {
+            skip(6); // access, name, descriptor
+            skipAttributes();
+        }
+
+        int methodCount = in.readUnsignedShort();
+        List<ScannedClass.Method> methods = new ArrayList<>(methodCount);
+        for (int i = 0; i < methodCount; i++) {
+            int methodAccess = in.readUnsignedShort();
+            String methodName = utf8[in.readUnsignedShort()];
+            String descriptor = utf8[in.readUnsignedShort()];
+            Annotations annotations = readAnnotations();
+            if (!methodName.startsWith("<")) {
+                methods.add(new ScannedClass.Method(methodName, descriptor, methodAccess, annotations.test,
+                        annotations.otherTestNG));
+            }
+        }
+
+        Annotations annotations = readAnnotations();
+        return new ScannedClass(name, superName, access, annotations.test, methods);
+    }
+
+    private void readConstantPool() throws IOException {
+        int count = in.readUnsignedShort();
+        utf8 = new String[count];
+        ints = new int[count];
+        classNames = new int[count];
+        for (int i = 1; i < count; i++) {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+            case 1: // Utf8
+                utf8[i] = in.readUTF();
+                break;
+            case 3: // Integer
+                ints[i] = in.readInt();
+                break;
+            case 7: // Class
+                classNames[i] = in.readUnsignedShort();
+                break;
+            case 8: // String
+            case 16: // MethodType
+            case 19: // Module
+            case 20: // Package
+                skip(2);
+                break;
+            case 15: // MethodHandle
+                skip(3);
+                break;
+            case 4: // Float
+            case 9: // Fieldref
+            case 10: // Methodref
+            case 11: // InterfaceMethodref
+            case 12: // NameAndType
+            case 17: // Dynamic
+            case 18: // InvokeDynamic
+                skip(4);
+                break;
+            case 5: // Long
+            case 6: // Double
+                skip(8);
+                i++; // takes two entries
+                break;
+            default:
+                throw new IOException("Unknown constant pool tag " + tag + ".");
+            }
+        }
+    }
+
+    private String className(int index) {
+        return utf8[classNames[index]].replace('/', '.');
+    }
+
+    private void skipAttributes() throws IOException {
+        int count = in.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            in.readUnsignedShort(); // name
+            skip(in.readInt());
+        }
+    }
+
+    private Annotations readAnnotations() throws IOException {
+        Annotations result = new Annotations();
+        int count = in.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            String attribute = utf8[in.readUnsignedShort()];
+            int length = in.readInt();
+            if (!ANNOTATIONS.equals(attribute)) {
+                skip(length);
+                continue;
+            }
+            int annotationCount = in.readUnsignedShort();
+            for (int a = 0; a < annotationCount; a++) {
+                readAnnotation(result);
+            }
+        }
+        return result;
+    }
+
+    private void readAnnotation(Annotations result) throws IOException {
+        String type = utf8[in.readUnsignedShort()];
+        ScannedClass.Test test = TEST.equals(type) ? new ScannedClass.Test() : null;
+        if (test != null) {
+            result.test = test;
+        } else if (type.startsWith("Lorg/testng/annotations/")
+                && OTHER_TESTNG.contains(type.substring(24, type.length() - 1))) {
+            result.otherTestNG = true;
+        }
+
+        int pairs = in.readUnsignedShort();
+        for (int p = 0; p < pairs; p++) {
+            String attribute = utf8[in.readUnsignedShort()];
+            List<Object> values = new ArrayList<>(1);
+            readElementValue(values);
+            if (test != null) {
+                test.set(attribute, values);
+            }
+        }
+    }
+
+    private void readElementValue(List<Object> values) throws IOException {
+        int tag = in.readUnsignedByte();
+        switch (tag) {
+        case 's':
+            values.add(utf8[in.readUnsignedShort()]);
+            break;
+        case 'Z':
+        case 'B':
+        case 'C':
+        case 'S':
+        case 'I':
+            values.add(ints[in.readUnsignedShort()]);
+            break;
+        case 'J':
+        case 'F':
+        case 'D':
+        case 'c':
+            skip(2);
+            break;
+        case 'e':
+            skip(4);
+            break;
+        case '@':
+            readAnnotation(new Annotations());
+            break;
+        case '[':
+            int count = in.readUnsignedShort();
+            for (int i = 0; i < count; i++) {
+                readElementValue(values);
+            }
+            break;
+        default:
+            throw new IOException("Unknown annotation element tag " + (char) tag + ".");
+        }
+    }
+
+    private void skip(int bytes) throws IOException {
+        if (in.skipBytes(bytes) != bytes) {
+            throw new EOFException("Truncated class file.");
+        }
+    }
+
+    private static final class Annotations {
+        private ScannedClass.Test test;
+        private boolean otherTestNG;
+    }
+}
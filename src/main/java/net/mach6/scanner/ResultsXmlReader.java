@@ -0,0 +1,398 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+
+package net.mach6.scanner;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import net.mach6.DependencyIndex;
+import net.mach6.Result;
+import net.mach6.TestClassInfo;
+import net.mach6.TestInfo;
+import net.mach6.TestMethodInfo;
+import net.mach6.TestSuiteInfo;
+import net.mach6.listeners.ReportGenerator;
+import net.mach6.listeners.ReporterConfiguration;
+
+/**
+ * Builds the report model from a <code>testng-results.xml</code> file, so a report can be generated after the fact for
+ * a run which only kept that file. The file is streamed with StAX and only one record per test method is kept, so the
+ * memory needed depends on the number of methods, not on the size of the file; stack traces and reporter output are
+ * never materialized.
+ * <p>
+ * A method with several invocations gets the worst of their results. The file names the test class of a method, not
+ * the class which declares it, so a dependency on an inherited method, which TestNG qualifies with the super class
+ * name, is resolved to the method of that name in the test class of the dependent method. Configuration methods are
+ * not part of the report.
+ * <p>
+ * The timing of a method comes from the <code>started-at</code> and <code>duration-ms</code> attributes of its
+ * invocations. The start is only as precise as the timestamp format of the file, which is whole seconds in the local
+ * time zone by default, and the file does not say which thread ran an invocation.
+ */
+public final class ResultsXmlReader {
+    private static final String USAGE = "Usage: " + ResultsXmlReader.class.getName()
+            + " [-d <output folder>] <testng-results.xml>";
+    // the default timestamp format of the TestNG XMLReporter
+    private static final String TIMESTAMP_FORMAT = "yyyy-MM-dd'T'HH:mm:ss'Z'";
+
+    // the suite being read
+    private String suiteName;
+    private Map<String, Map<String, Map<String, MethodRecord>>> tests;
+    // method signature, without class name -> groups, from the <groups> element of the suite
+    private Map<String, List<String>> groupsBySignature;
+    private String groupName;
+    private Map<String, Map<String, MethodRecord>> classes;
+    private String className;
+
+    private final SimpleDateFormat timestampFormat = new SimpleDateFormat(TIMESTAMP_FORMAT);
+    private final Set<TestSuiteInfo> suites = new ConcurrentSkipListSet<>();
+
+    private ResultsXmlReader() {
+    }
+
+    /**
+     * Read a results file and write the report for it
+     * 
+     * @param args
+     *            <code>[-d &lt;output folder&gt;] &lt;testng-results.xml&gt;</code>. The report options are read from the
+     *            <code>dependencyReporter</code> system property, as for the listener.
+     * @throws IOException
+     *             if the file can not be read
+     */
+    public static void main(String[] args) throws IOException {
+        String outputDirectory = "test-output";
+        File file = null;
+        for (int i = 0; i < args.length; i++) {
+            if ("-d".equals(args[i]) && i + 1 < args.length) {
+                outputDirectory = args[++i];
+            } else {
+                file = new File(args[i]);
+            }
+        }
+        if (file == null) {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+
+        new ReportGenerator(ReporterConfiguration.fromSystemProperty()).generate(read(file), outputDirectory);
+    }
+
+    /**
+     * @param file
+     *            a <code>testng-results.xml</code> file
+     * @return the suites of the file
+     * @throws IOException
+     *             if the file can not be read or is not well formed
+     */
+    public static Set<TestSuiteInfo> read(File file) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            return read(in);
+        }
+    }
+
+    /**
+     * @param in
+     *            the content of a <code>testng-results.xml</code> file. Not closed.
+     * @return the suites of the file
+     * @throws IOException
+     *             if the stream fails or its content is not well formed
+     */
+    public static Set<TestSuiteInfo> read(InputStream in) throws IOException {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        try {
+            XMLStreamReader reader = factory.createXMLStreamReader(in);
+            try {
+                return new ResultsXmlReader().read(reader);
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Unable to read the TestNG results.", e);
+        }
+    }
+
+    private Set<TestSuiteInfo> read(XMLStreamReader reader) throws XMLStreamException {
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                startElement(reader);
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                endElement(reader.getLocalName());
+            }
+        }
+        return suites;
+    }
+
+    private void startElement(XMLStreamReader reader) {
+        switch (reader.getLocalName()) {
+        case "suite":
+            suiteName = reader.getAttributeValue(null, "name");
+            tests = new LinkedHashMap<>();
+            groupsBySignature = new HashMap<>();
+            break;
+        case "group":
+            groupName = reader.getAttributeValue(null, "name");
+            break;
+        case "method":
+            if (groupName != null) {
+                String signature = withoutClassName(reader.getAttributeValue(null, "signature"));
+                List<String> groups = groupsBySignature.get(signature);
+                if (groups == null) {
+                    groups = new ArrayList<>(1);
+                    groupsBySignature.put(signature, groups);
+                }
+                groups.add(groupName);
+            }
+            break;
+        case "test":
+            String testName = reader.getAttributeValue(null, "name");
+            classes = tests.get(testName);
+            if (classes == null) {
+                classes = new LinkedHashMap<>();
+                tests.put(testName, classes);
+            }
+            break;
+        case "class":
+            className = reader.getAttributeValue(null, "name");
+            break;
+        case "test-method":
+            if (classes != null && className != null && !"true".equals(reader.getAttributeValue(null, "is-config"))) {
+                recordTestMethod(reader);
+            }
+            break;
+        default:
+            // parameters, exceptions and output are not part of the report
+        }
+    }
+
+    private void endElement(String name) {
+        switch (name) {
+        case "suite":
+            suites.add(toSuiteInfo());
+            tests = null;
+            groupsBySignature = null;
+            break;
+        case "group":
+            groupName = null;
+            break;
+        case "test":
+            classes = null;
+            break;
+        case "class":
+            className = null;
+            break;
+        default:
+            // nothing to finish
+        }
+    }
+
+    private void recordTestMethod(XMLStreamReader reader) {
+        String name = reader.getAttributeValue(null, "name");
+        Map<String, MethodRecord> methods = classes.get(className);
+        if (methods == null) {
+            methods = new LinkedHashMap<>();
+            classes.put(className, methods);
+        }
+        MethodRecord record = methods.get(name);
+        if (record == null) {
+            record = new MethodRecord(className, name, reader.getAttributeValue(null, "signature"),
+                    split(reader.getAttributeValue(null, "groups")),
+                    split(reader.getAttributeValue(null, "depends-on-methods")),
+                    split(reader.getAttributeValue(null, "depends-on-groups")));
+            methods.put(name, record);
+        }
+        record.result = Result.worst(record.result, toResult(reader.getAttributeValue(null, "status")));
+        recordInvocation(record, reader.getAttributeValue(null, "started-at"),
+                reader.getAttributeValue(null, "duration-ms"));
+    }
+
+    private void recordInvocation(MethodRecord record, String startedAt, String durationMs) {
+        if (startedAt == null || durationMs == null) {
+            return;
+        }
+        try {
+            long start = timestampFormat.parse(startedAt).getTime();
+            record.addInvocation(start, start + Long.parseLong(durationMs));
+        } catch (ParseException | NumberFormatException e) {
+            // a custom timestamp format; the method is reported without timing
+        }
+    }
+
+    private TestSuiteInfo toSuiteInfo() {
+        Set<String> names = new HashSet<>();
+        for (Map<String, Map<String, MethodRecord>> testClasses : tests.values()) {
+            for (Map<String, MethodRecord> methods : testClasses.values()) {
+                for (MethodRecord record : methods.values()) {
+                    names.add(record.className + "." + record.name);
+                }
+            }
+        }
+        List<ScannedTestMethod> allMethods = new ArrayList<>();
+        for (Map<String, Map<String, MethodRecord>> testClasses : tests.values()) {
+            for (Map<String, MethodRecord> methods : testClasses.values()) {
+                for (MethodRecord record : methods.values()) {
+                    record.resolve(groupsBySignature, names);
+                    allMethods.add(record.method);
+                }
+            }
+        }
+
+        DependencyIndex<ScannedTestMethod> index = new DependencyIndex<>(allMethods, ScannedTestMethod.VIEW);
+        Set<TestInfo> testInfos = new ConcurrentSkipListSet<>();
+        for (Map.Entry<String, Map<String, Map<String, MethodRecord>>> test : tests.entrySet()) {
+            Set<TestClassInfo> testClasses = new ConcurrentSkipListSet<>();
+            for (Map.Entry<String, Map<String, MethodRecord>> testClass : test.getValue().entrySet()) {
+                Set<TestMethodInfo> methods = new ConcurrentSkipListSet<>();
+                for (MethodRecord record : testClass.getValue().values()) {
+                    methods.add(record.toTestMethodInfo(index));
+                }
+                testClasses.add(new TestClassInfo(testClass.getKey(), methods));
+            }
+            testInfos.add(new TestInfo(test.getKey(), true, StaticScanner.NOT_PARALLEL,
+                    Collections.<String> emptyList(), testClasses));
+        }
+        return new TestSuiteInfo(suiteName, StaticScanner.NOT_PARALLEL, true, new ConcurrentSkipListSet<String>(),
+                testInfos);
+    }
+
+    private static Result toResult(String status) {
+        if (status == null) {
+            return null;
+        }
+        switch (status) {
+        case "FAIL":
+            return Result.FAILED;
+        case "SKIP":
+            return Result.SKIPPED;
+        default:
+            // PASS and SUCCESS_PERCENTAGE_FAILURE, which the report counts as passed
+            return Result.PASSED;
+        }
+    }
+
+    /**
+     * @return the values of a TestNG list attribute, which are separated by ", "
+     */
+    private static List<String> split(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        return Arrays.asList(value.trim().split("\\s*,\\s*"));
+    }
+
+    /**
+     * @return the signature of a method as written for a test method, e.g. <code>first()[pri:0, instance:...]</code>
+     *         for <code>Base.first()[pri:0, instance:...]</code>
+     */
+    private static String withoutClassName(String signature) {
+        int parenthesis = signature.indexOf('(');
+        return signature.substring(signature.lastIndexOf('.', (parenthesis < 0) ? signature.length() : parenthesis)
+                + 1);
+    }
+
+    private static final class MethodRecord {
+        private final String className;
+        private final String name;
+        private final String signature;
+        private final List<String> groups;
+        private final List<String> dependsOnMethods;
+        private final List<String> dependsOnGroups;
+        private Result result;
+        private ScannedTestMethod method;
+        // the invocations are folded as they are read, the way TestMethodInfo#addInvocation does it
+        private int invocationCount;
+        private long startMillis;
+        private long endMillis;
+        private long durationMillis;
+
+        MethodRecord(String className, String name, String signature, List<String> groups,
+                List<String> dependsOnMethods, List<String> dependsOnGroups) {
+            this.className = className;
+            this.name = name;
+            this.signature = signature;
+            this.groups = groups;
+            this.dependsOnMethods = dependsOnMethods;
+            this.dependsOnGroups = dependsOnGroups;
+        }
+
+        void resolve(Map<String, List<String>> groupsBySignature, Set<String> names) {
+            List<String> methodGroups = groups;
+            if (methodGroups == null) {
+                // the groups attribute is off by default; the <groups> element of the suite has them as well
+                methodGroups = (signature == null) ? null : groupsBySignature.get(signature);
+            }
+            List<String> resolved = new ArrayList<>(orEmpty(dependsOnMethods));
+            for (int i = 0; i < resolved.size(); i++) {
+                String dependency = resolved.get(i);
+                int dot = dependency.lastIndexOf('.');
+                if (dot < 0 || names.contains(dependency) || DependencyIndex.isRegex(dependency)) {
+                    continue;
+                }
+                // qualified with a super class of this test class
+                String inherited = className + dependency.substring(dot);
+                if (names.contains(inherited)) {
+                    resolved.set(i, inherited);
+                }
+            }
+            method = new ScannedTestMethod(className, className, name, orEmpty(methodGroups), resolved,
+                    orEmpty(dependsOnGroups));
+        }
+
+        TestMethodInfo toTestMethodInfo(DependencyIndex<ScannedTestMethod> index) {
+            List<String> dependentMethods = new ArrayList<>();
+            for (ScannedTestMethod m : index.getMethodsDependedUpon(method)) {
+                dependentMethods.add(m.getMethodName());
+            }
+            TestMethodInfo info = new TestMethodInfo(method.getMethodName(), method.getGroups(),
+                    method.getDependsOnGroups(), Collections.<String> emptyList(), Collections.<String> emptyList(),
+                    dependentMethods);
+            info.setResult(result);
+            info.addInvocations(invocationCount, startMillis, endMillis, durationMillis);
+            return info;
+        }
+
+        void addInvocation(long start, long end) {
+            if (invocationCount == 0 || start < startMillis) {
+                startMillis = start;
+            }
+            if (invocationCount == 0 || end > endMillis) {
+                endMillis = end;
+            }
+            durationMillis += Math.max(0, end - start);
+            invocationCount++;
+        }
+
+        private static List<String> orEmpty(List<String> values) {
+            return (values == null) ? Collections.<String> emptyList() : values;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+
+package net.mach6.scanner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What the {@link ClassFileParser} read from one class file: the names, the modifiers and the TestNG annotations of the
+ * class and of its declared methods. Nothing else of the class file is kept.
+ */
+final class ScannedClass {
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_STATIC = 0x0008;
+    static final int ACC_INTERFACE = 0x0200;
+    static final int ACC_ABSTRACT = 0x0400;
+    static final int ACC_SYNTHETIC = 0x1000;
+
+    private final String name;
+    private final String superName;
+    private final int access;
+    private final Test test;
+    private final List<Method> methods;
+
+    ScannedClass(String name, String superName, int access, Test test, List<Method> methods) {
+        if (name == null || methods == null) {
+            throw new IllegalArgumentException("The name and the methods of a class must not be null");
+        }
+
+        this.name = name;
+        this.superName = superName;
+        this.access = access;
+        this.test = test;
+        this.methods = methods;
+    }
+
+    /**
+     * @return the binary name of the class, e.g. <code>net.mach6.Outer$Inner</code>
+     */
+    String getName() {
+        return name;
+    }
+
+    /**
+     * @return the binary name of the super class, or <code>null</code> for <code>java.lang.Object</code>
+     */
+    String getSuperName() {
+        return superName;
+    }
+
+    /**
+     * @return whether TestNG can instantiate the class, i.e. it is neither abstract nor an interface
+     */
+    boolean isConcrete() {
+        return (access & (ACC_ABSTRACT | ACC_INTERFACE)) == 0;
+    }
+
+    /**
+     * @return the class level <code>@Test</code> annotation, or <code>null</code>
+     */
+    Test getTest() {
+        return test;
+    }
+
+    /**
+     * @return the methods declared by the class, without constructors and static initializers
+     */
+    List<Method> getMethods() {
+        return methods;
+    }
+
+    /**
+     * A method declared by a {@link ScannedClass}
+     */
+    static final class Method {
+        private final String name;
+        private final String descriptor;
+        private final int access;
+        private final Test test;
+        private final boolean otherTestNGAnnotation;
+
+        Method(String name, String descriptor, int access, Test test, boolean otherTestNGAnnotation) {
+            this.name = name;
+            this.descriptor = descriptor;
+            this.access = access;
+            this.test = test;
+            this.otherTestNGAnnotation = otherTestNGAnnotation;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        /**
+         * @return the name and parameter types of the method, which is what an overriding method has in common with
+         *         the method it overrides
+         */
+        String getKey() {
+            return name + descriptor.substring(0, descriptor.indexOf(')') + 1);
+        }
+
+        boolean isPublic() {
+            return (access & ACC_PUBLIC) != 0;
+        }
+
+        boolean isSynthetic() {
+            return (access & ACC_SYNTHETIC) != 0;
+        }
+
+        boolean isVoid() {
+            return descriptor.endsWith(")V");
+        }
+
+        /**
+         * @return the <code>@Test</code> annotation of the method, or <code>null</code>
+         */
+        Test getTest() {
+            return test;
+        }
+
+        /**
+         * @return whether the method has a <code>@Factory</code> or configuration annotation, e.g.
+         *         <code>@BeforeMethod</code>
+         */
+        boolean hasOtherTestNGAnnotation() {
+            return otherTestNGAnnotation;
+        }
+    }
+
+    /**
+     * The attributes of a <code>@Test</code> annotation which matter for the dependency graph
+     */
+    static final class Test {
+        private final List<String> groups = new ArrayList<>();
+        private final List<String> dependsOnMethods = new ArrayList<>();
+        private final List<String> dependsOnGroups = new ArrayList<>();
+        private boolean enabled = true;
+
+        List<String> getGroups() {
+            return Collections.unmodifiableList(groups);
+        }
+
+        List<String> getDependsOnMethods() {
+            return Collections.unmodifiableList(dependsOnMethods);
+        }
+
+        List<String> getDependsOnGroups() {
+            return Collections.unmodifiableList(dependsOnGroups);
+        }
+
+        boolean isEnabled() {
+            return enabled;
+        }
+
+        /**
+         * @param classTest
+         *            the class level annotation, or <code>null</code>
+         * @return this method level annotation with the attributes of the class level annotation appended, the way
+         *         TestNG merges them. Whether the method is enabled is only decided by the method level annotation.
+         */
+        Test mergedWith(Test classTest) {
+            if (classTest == null) {
+                return this;
+            }
+            Test result = new Test();
+            result.groups.addAll(groups);
+            result.groups.addAll(classTest.groups);
+            result.dependsOnMethods.addAll(dependsOnMethods);
+            result.dependsOnMethods.addAll(classTest.dependsOnMethods);
+            result.dependsOnGroups.addAll(dependsOnGroups);
+            result.dependsOnGroups.addAll(classTest.dependsOnGroups);
+            result.enabled = enabled;
+            return result;
+        }
+
+        void set(String attribute, List<Object> values) {
+            switch (attribute) {
+            case "groups":
+                addStrings(groups, values);
+                break;
+            case "dependsOnMethods":
+                addStrings(dependsOnMethods, values);
+                break;
+            case "dependsOnGroups":
+                addStrings(dependsOnGroups, values);
+                break;
+            case "enabled":
+                enabled = values.isEmpty() || !Integer.valueOf(0).equals(values.get(0));
+                break;
+            default:
+                // not part of the dependency graph
+            }
+        }
+
+        private static void addStrings(List<String> to, List<Object> values) {
+            for (Object value : values) {
+                if (value instanceof String) {
+                    to.add((String) value);
+                }
+            }
+        }
+    }
+}
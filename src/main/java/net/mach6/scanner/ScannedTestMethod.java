@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+
+package net.mach6.scanner;
+
+import java.util.List;
+
+import net.mach6.DependencyIndex;
+import net.mach6.DependencyIndex.MethodView;
+
+/**
+ * A test method of a concrete test class found by the {@link StaticScanner}, with the class level <code>@Test</code>
+ * attributes already merged into its own, the way TestNG does it.
+ */
+final class ScannedTestMethod {
+    /**
+     * How a {@link DependencyIndex} looks at the scanned methods
+     */
+    static final MethodView<ScannedTestMethod> VIEW = new MethodView<ScannedTestMethod>() {
+        @Override
+        public String getQualifiedName(ScannedTestMethod method) {
+            return method.getQualifiedName();
+        }
+
+        @Override
+        public String getSimpleName(ScannedTestMethod method) {
+            return method.getName();
+        }
+
+        @Override
+        public List<String> getGroups(ScannedTestMethod method) {
+            return method.getGroups();
+        }
+
+        @Override
+        public List<String> getMethodsDependedUpon(ScannedTestMethod method) {
+            return method.getDependsOnMethods();
+        }
+
+        @Override
+        public List<String> getGroupsDependedUpon(ScannedTestMethod method) {
+            return method.getDependsOnGroups();
+        }
+    };
+
+    private final String testClass;
+    private final String declaringClass;
+    private final String name;
+    private final List<String> groups;
+    private final List<String> dependsOnMethods;
+    private final List<String> dependsOnGroups;
+
+    ScannedTestMethod(String testClass, String declaringClass, String name, List<String> groups,
+            List<String> dependsOnMethods, List<String> dependsOnGroups) {
+        if (testClass == null || declaringClass == null || name == null || groups == null || dependsOnMethods == null
+                || dependsOnGroups == null) {
+            throw new IllegalArgumentException("The names, groups and dependencies of a method must not be null");
+        }
+
+        this.testClass = testClass;
+        this.declaringClass = declaringClass;
+        this.name = name;
+        this.groups = groups;
+        this.dependsOnMethods = dependsOnMethods;
+        this.dependsOnGroups = dependsOnGroups;
+    }
+
+    /**
+     * @return the name of the test class the method runs in, which is a sub class of the declaring class for an
+     *         inherited method
+     */
+    String getTestClass() {
+        return testClass;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /**
+     * @return the name the report uses for the method, i.e. test class name + "." + method name
+     */
+    String getMethodName() {
+        return testClass + "." + name;
+    }
+
+    /**
+     * @return the name dependsOnMethods values are matched against, i.e. declaring class name + "." + method name
+     */
+    String getQualifiedName() {
+        return declaringClass + "." + name;
+    }
+
+    List<String> getGroups() {
+        return groups;
+    }
+
+    /**
+     * @return the methods depended upon, qualified with a class name where TestNG would qualify them
+     */
+    List<String> getDependsOnMethods() {
+        return dependsOnMethods;
+    }
+
+    List<String> getDependsOnGroups() {
+        return dependsOnGroups;
+    }
+}
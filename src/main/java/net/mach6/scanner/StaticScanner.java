@@ -0,0 +1,383 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+
+package net.mach6.scanner;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.logging.Logger;
+
+import net.mach6.DependencyIndex;
+import net.mach6.TestClassInfo;
+import net.mach6.TestInfo;
+import net.mach6.TestMethodInfo;
+import net.mach6.TestSuiteInfo;
+import net.mach6.listeners.ReportGenerator;
+import net.mach6.listeners.ReporterConfiguration;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.xml.XmlClass;
+import org.testng.xml.XmlPackage;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+
+/**
+ * Builds the report model from compiled test classes, without a TestNG run and without loading the classes. The
+ * <code>@Test</code> annotations are read from the class files of folders and jars, which are scanned in parallel,
+ * and resolved the way TestNG resolves them: class level attributes are merged into the method level ones, test
+ * methods are inherited from super classes and unqualified dependsOnMethods values are qualified with the class which
+ * declares them. The methods of the model have no result.
+ * <p>
+ * The classes of folders and jars are reported as one suite with one test. The classes a TestNG suite names can be
+ * scanned as well, test by test, before TestNG runs the suite.
+ */
+public class StaticScanner {
+    private static final Logger LOGGER = Logger.getLogger(StaticScanner.class.getName());
+    private static final String DEFAULT_NAME = "Static scan";
+    // what TestNG reports as the parallel mode when it is not set
+    static final String NOT_PARALLEL = "false";
+    // class files of a folder are parsed in batches of this size
+    private static final int BATCH_SIZE = 256;
+    private static final String USAGE = "Usage: " + StaticScanner.class.getName()
+            + " [-d <output folder>] [-suitename <name>] <classes folder | jar | class file>...";
+
+    private final int threads;
+
+    /**
+     * @param threads
+     *            the number of threads which parse class files
+     */
+    public StaticScanner(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Scan compiled test classes and write the report for them
+     * 
+     * @param args
+     *            <code>[-d &lt;output folder&gt;] [-suitename &lt;name&gt;] &lt;classes folder | jar | class file&gt;...
+     *            </code>. The report options are read from the <code>dependencyReporter</code> system property, as
+     *            for the listener.
+     * @throws IOException
+     *             if a class file can not be read
+     */
+    public static void main(String[] args) throws IOException {
+        String outputDirectory = "test-output";
+        String suiteName = DEFAULT_NAME;
+        List<File> paths = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if ("-d".equals(args[i]) && i + 1 < args.length) {
+                outputDirectory = args[++i];
+            } else if ("-suitename".equals(args[i]) && i + 1 < args.length) {
+                suiteName = args[++i];
+            } else {
+                paths.add(new File(args[i]));
+            }
+        }
+        if (paths.isEmpty()) {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+
+        Set<TestSuiteInfo> suites = new ConcurrentSkipListSet<>();
+        suites.add(new StaticScanner(Runtime.getRuntime().availableProcessors()).scan(suiteName, paths));
+        new ReportGenerator(ReporterConfiguration.fromSystemProperty()).generate(suites, outputDirectory);
+    }
+
+    /**
+     * @param suiteName
+     *            the name of the suite, and of its test
+     * @param paths
+     *            folders of class files, jars or single class files. A class which is in more than one of them is
+     *            taken from the first.
+     * @return the suite of all concrete classes which have test methods
+     * @throws IOException
+     *             if a path is not one of the supported kinds or a class file can not be read
+     */
+    public TestSuiteInfo scan(String suiteName, Collection<File> paths) throws IOException {
+        Map<String, ScannedClass> classes = readClasses(paths);
+        LOGGER.fine("Read " + classes.size() + " class files");
+
+        Set<TestInfo> tests = new ConcurrentSkipListSet<>();
+        tests.add(toTestInfo(suiteName, classes, classes.keySet()));
+        return new TestSuiteInfo(suiteName, NOT_PARALLEL, true, new ConcurrentSkipListSet<String>(), tests);
+    }
+
+    /**
+     * Scan the classes a TestNG suite names, before TestNG itself resolves them. The class files and those of their
+     * super classes are read through a class loader, without loading the classes. Packages are expanded the way
+     * TestNG expands them; included and excluded methods and groups are not applied.
+     * 
+     * @param suite
+     *            the suite
+     * @param loader
+     *            the class loader to find the class files with
+     * @return the suite, with a test for each of its tests. Classes which can not be found are left out.
+     * @throws IOException
+     *             if a class file can not be read
+     */
+    public static TestSuiteInfo scan(XmlSuite suite, ClassLoader loader) throws IOException {
+        Map<String, ScannedClass> classes = new HashMap<>();
+        Set<TestInfo> tests = new ConcurrentSkipListSet<>();
+        for (XmlTest test : suite.getTests()) {
+            Set<String> classNames = new LinkedHashSet<>();
+            List<XmlPackage> packages = new ArrayList<>(suite.getXmlPackages());
+            packages.addAll(test.getXmlPackages());
+            for (XmlPackage xmlPackage : packages) {
+                for (XmlClass xmlClass : xmlPackage.getXmlClasses()) {
+                    classNames.add(xmlClass.getName());
+                }
+            }
+            for (XmlClass xmlClass : test.getXmlClasses()) {
+                classNames.add(xmlClass.getName());
+            }
+            for (String className : classNames) {
+                readClass(classes, className, loader);
+            }
+            tests.add(toTestInfo(test.getName(), classes, classNames));
+        }
+        Set<String> childSuites = new ConcurrentSkipListSet<>();
+        for (XmlSuite child : suite.getChildSuites()) {
+            childSuites.add(child.getName());
+        }
+        return new TestSuiteInfo(suite.getName(), NOT_PARALLEL, true, childSuites, tests);
+    }
+
+    /**
+     * Read a class file and those of its super classes, unless they have been read already
+     */
+    private static void readClass(Map<String, ScannedClass> classes, String className, ClassLoader loader)
+            throws IOException {
+        for (String name = className; name != null && !classes.containsKey(name);) {
+            String resource = name.replace('.', '/') + ".class";
+            try (InputStream in = loader.getResourceAsStream(resource)) {
+                if (in == null) {
+                    return;
+                }
+                ScannedClass scannedClass = ClassFileParser.parse(in);
+                classes.put(name, scannedClass);
+                name = scannedClass.getSuperName();
+            } catch (IOException e) {
+                throw new IOException("Unable to read " + resource + ".", e);
+            }
+        }
+    }
+
+    /**
+     * @return the test of the concrete classes which have test methods, out of the classes with the given names
+     */
+    private static TestInfo toTestInfo(String testName, Map<String, ScannedClass> classes,
+            Collection<String> classNames) {
+        Map<String, List<ScannedTestMethod>> testMethods = new HashMap<>();
+        List<ScannedTestMethod> allMethods = new ArrayList<>();
+        for (String className : classNames) {
+            ScannedClass scannedClass = classes.get(className);
+            if (scannedClass == null || !scannedClass.isConcrete()) {
+                continue;
+            }
+            List<ScannedTestMethod> methods = findTestMethods(classes, scannedClass);
+            if (!methods.isEmpty()) {
+                testMethods.put(scannedClass.getName(), methods);
+                allMethods.addAll(methods);
+            }
+        }
+
+        DependencyIndex<ScannedTestMethod> index = new DependencyIndex<>(allMethods, ScannedTestMethod.VIEW);
+        Set<TestClassInfo> testClasses = new ConcurrentSkipListSet<>();
+        for (Map.Entry<String, List<ScannedTestMethod>> entry : testMethods.entrySet()) {
+            Set<TestMethodInfo> methodInfos = new ConcurrentSkipListSet<>();
+            for (ScannedTestMethod method : entry.getValue()) {
+                methodInfos.add(toTestMethodInfo(method, index));
+            }
+            testClasses.add(new TestClassInfo(entry.getKey(), methodInfos));
+        }
+        return new TestInfo(testName, true, NOT_PARALLEL, Collections.<String> emptyList(), testClasses);
+    }
+
+    private static TestMethodInfo toTestMethodInfo(ScannedTestMethod method, DependencyIndex<ScannedTestMethod> index) {
+        List<String> dependentMethods = new ArrayList<>();
+        for (ScannedTestMethod m : index.getMethodsDependedUpon(method)) {
+            dependentMethods.add(m.getMethodName());
+        }
+        return new TestMethodInfo(method.getMethodName(), method.getGroups(), method.getDependsOnGroups(),
+                Collections.<String> emptyList(), Collections.<String> emptyList(), dependentMethods);
+    }
+
+    private Map<String, ScannedClass> readClasses(Collection<File> paths) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<ScannedClass>>> batches = new ArrayList<>();
+            for (File path : paths) {
+                if (path.isDirectory()) {
+                    List<File> files = new ArrayList<>(FileUtils.listFiles(path, new String[] { "class" }, true));
+                    Collections.sort(files);
+                    for (int i = 0; i < files.size(); i += BATCH_SIZE) {
+                        batches.add(pool.submit(readClassFiles(files.subList(i, Math.min(i + BATCH_SIZE,
+                                files.size())))));
+                    }
+                } else if (path.getName().endsWith(".jar")) {
+                    batches.add(pool.submit(readJar(path)));
+                } else if (path.getName().endsWith(".class")) {
+                    batches.add(pool.submit(readClassFiles(Collections.singletonList(path))));
+                } else {
+                    throw new IOException(path + " is not a folder, jar or class file.");
+                }
+            }
+
+            Map<String, ScannedClass> classes = new HashMap<>();
+            for (Future<List<ScannedClass>> batch : batches) {
+                for (ScannedClass scannedClass : batch.get()) {
+                    if (!classes.containsKey(scannedClass.getName())) {
+                        classes.put(scannedClass.getName(), scannedClass);
+                    }
+                }
+            }
+            return classes;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading class files.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static Callable<List<ScannedClass>> readClassFiles(final List<File> files) {
+        return new Callable<List<ScannedClass>>() {
+            @Override
+            public List<ScannedClass> call() throws IOException {
+                List<ScannedClass> result = new ArrayList<>(files.size());
+                for (File file : files) {
+                    try (InputStream in = new FileInputStream(file)) {
+                        result.add(ClassFileParser.parse(in));
+                    } catch (IOException e) {
+                        throw new IOException("Unable to read " + file + ".", e);
+                    }
+                }
+                return result;
+            }
+        };
+    }
+
+    private static Callable<List<ScannedClass>> readJar(final File jar) {
+        return new Callable<List<ScannedClass>>() {
+            @Override
+            public List<ScannedClass> call() throws IOException {
+                List<ScannedClass> result = new ArrayList<>();
+                try (JarFile jarFile = new JarFile(jar)) {
+                    for (JarEntry entry : Collections.list(jarFile.entries())) {
+                        if (entry.isDirectory() || !entry.getName().endsWith(".class")
+                                || entry.getName().endsWith("module-info.class")
+                                || entry.getName().startsWith("META-INF/")) {
+                            continue;
+                        }
+                        try (InputStream in = jarFile.getInputStream(entry)) {
+                            result.add(ClassFileParser.parse(in));
+                        } catch (IOException e) {
+                            throw new IOException("Unable to read " + entry.getName() + " of " + jar + ".", e);
+                        }
+                    }
+                }
+                return result;
+            }
+        };
+    }
+
+    /**
+     * Equivalent of <code>AnnotationHelper.findMethodsWithAnnotation</code> of TestNG, for a class file
+     */
+    private static List<ScannedTestMethod> findTestMethods(Map<String, ScannedClass> classes,
+            ScannedClass testClass) {
+        List<ScannedTestMethod> result = new ArrayList<>();
+        // a method which is a test in a sub class hides the method it overrides
+        Set<String> seen = new HashSet<>();
+        for (ScannedClass c = testClass; c != null; c = classes.get(c.getSuperName())) {
+            ScannedClass.Test classTest = findClassTest(classes, c);
+            for (ScannedClass.Method method : c.getMethods()) {
+                ScannedClass.Test test = method.getTest();
+                if (test == null) {
+                    if (classTest == null || !method.isPublic() || method.isSynthetic()
+                            || method.hasOtherTestNGAnnotation()) {
+                        continue;
+                    }
+                    test = classTest;
+                } else if (classTest != null && method.hasOtherTestNGAnnotation()) {
+                    // TestNG keeps it as a configuration method only
+                    continue;
+                } else {
+                    test = test.mergedWith(classTest);
+                }
+                if (!method.isVoid() || !seen.add(method.getKey()) || !test.isEnabled()) {
+                    continue;
+                }
+                result.add(new ScannedTestMethod(testClass.getName(), c.getName(), method.getName(),
+                        test.getGroups(), qualify(classes, c, test.getDependsOnMethods()), test.getDependsOnGroups()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the <code>@Test</code> annotation of the class or, like TestNG, of its closest super class which has one
+     */
+    private static ScannedClass.Test findClassTest(Map<String, ScannedClass> classes, ScannedClass scannedClass) {
+        for (ScannedClass c = scannedClass; c != null; c = classes.get(c.getSuperName())) {
+            if (c.getTest() != null) {
+                return c.getTest();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Qualify the method names without a package with the class which declares a method of that name, as TestNG does
+     */
+    private static List<String> qualify(Map<String, ScannedClass> classes, ScannedClass declaringClass,
+            List<String> dependsOnMethods) {
+        List<String> names = new ArrayList<>(dependsOnMethods);
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(i);
+            if (name.contains(".")) {
+                continue;
+            }
+            search: for (ScannedClass c = declaringClass; c != null; c = classes.get(c.getSuperName())) {
+                for (ScannedClass.Method method : c.getMethods()) {
+                    if (method.getName().equals(name)) {
+                        names.set(i, c.getName() + "." + name);
+                        break search;
+                    }
+                }
+            }
+        }
+        return names;
+    }
+}
@@ -0,0 +1,454 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+
+package net.mach6.svg;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import net.mach6.graph.DependencyGraph;
+
+/**
+ * Sugiyama style layered layout of a {@link DependencyGraph}, with the layers running from left to right like
+ * <code>dot -Grankdir=LR</code>. The steps are
+ * <ol>
+ * <li>break cycles by reversing the back edges found by a depth first search</li>
+ * <li>assign each node to a layer with the longest path from the sources</li>
+ * <li>split edges spanning more than one layer with dummy nodes</li>
+ * <li>reduce crossings by sorting each layer on the barycenter of its neighbors, sweeping down and up</li>
+ * <li>assign coordinates, aligning each node with its neighbors while keeping the order and spacing of the layer</li>
+ * </ol>
+ * All steps are iterative, so deep graphs do not overflow the stack.
+ */
+class LayeredLayout {
+    static final int MARGIN = 24;
+    private static final int LAYER_GAP = 64;
+    private static final int NODE_GAP = 16;
+    private static final int DUMMY_HEIGHT = 8;
+    private static final int ORDERING_PASSES = 8;
+    private static final int ALIGNMENT_PASSES = 8;
+    private static final int SELF_LOOP_HEIGHT = 16;
+
+    private final DependencyGraph graph;
+    private final int nodeCount;
+    private final int[] width;
+    private final int[] height;
+    private final int[] edgeFrom;
+    private final int[] edgeTo;
+
+    private final int[] x;
+    private final int[] y;
+    private final int[][] edgePoints;
+    private int totalWidth;
+    private int totalHeight;
+
+    /**
+     * Lay out a graph
+     *
+     * @param graph
+     *            the graph
+     * @param width
+     *            the width of each node
+     * @param height
+     *            the height of each node
+     */
+    LayeredLayout(DependencyGraph graph, int[] width, int[] height) {
+        this.graph = graph;
+        this.nodeCount = graph.getNodeCount();
+        this.width = width;
+        this.height = height;
+        int edgeCount = graph.getEdgeCount();
+        this.edgeFrom = new int[edgeCount];
+        this.edgeTo = new int[edgeCount];
+        for (int v = 0; v < nodeCount; v++) {
+            for (int e = graph.getOutStart(v); e < graph.getOutEnd(v); e++) {
+                edgeFrom[e] = v;
+                edgeTo[e] = graph.getTarget(e);
+            }
+        }
+        this.x = new int[nodeCount];
+        this.y = new int[nodeCount];
+        this.edgePoints = new int[edgeCount][];
+        layout();
+    }
+
+    /**
+     * @return the x coordinate of the center of each node
+     */
+    int[] getX() {
+        return x;
+    }
+
+    /**
+     * @return the y coordinate of the center of each node
+     */
+    int[] getY() {
+        return y;
+    }
+
+    /**
+     * @param edge
+     *            the id of the edge in the graph
+     * @return the route of the edge as x,y pairs, from its tail to its head
+     */
+    int[] getEdgePoints(int edge) {
+        return edgePoints[edge];
+    }
+
+    int getWidth() {
+        return totalWidth;
+    }
+
+    int getHeight() {
+        return totalHeight;
+    }
+
+    private void layout() {
+        int edgeCount = edgeFrom.length;
+        if (nodeCount == 0) {
+            totalWidth = 2 * MARGIN;
+            totalHeight = 2 * MARGIN;
+            return;
+        }
+
+        // 1. break cycles
+        boolean[] reversed = findBackEdges();
+        int[] tail = new int[edgeCount];
+        int[] head = new int[edgeCount];
+        for (int e = 0; e < edgeCount; e++) {
+            tail[e] = reversed[e] ? edgeTo[e] : edgeFrom[e];
+            head[e] = reversed[e] ? edgeFrom[e] : edgeTo[e];
+        }
+
+        // 2. assign layers
+        int[] layer = assignLayers(tail, head);
+
+        // 3. split long edges with dummy nodes; virtual node ids start at nodeCount
+        int virtualCount = nodeCount;
+        for (int e = 0; e < edgeCount; e++) {
+            if (tail[e] != head[e]) {
+                virtualCount += layer[head[e]] - layer[tail[e]] - 1;
+            }
+        }
+        int[] virtualLayer = Arrays.copyOf(layer, virtualCount);
+        int[] virtualHeight = new int[virtualCount];
+        System.arraycopy(height, 0, virtualHeight, 0, nodeCount);
+        int[][] chains = new int[edgeCount][];
+        int[] segmentFrom = new int[virtualCount + edgeCount];
+        int[] segmentTo = new int[virtualCount + edgeCount];
+        int segments = 0;
+        int next = nodeCount;
+        for (int e = 0; e < edgeCount; e++) {
+            if (tail[e] == head[e]) {
+                continue;
+            }
+            int span = layer[head[e]] - layer[tail[e]];
+            int[] chain = new int[span + 1];
+            chain[0] = tail[e];
+            for (int i = 1; i < span; i++) {
+                chain[i] = next;
+                virtualLayer[next] = layer[tail[e]] + i;
+                virtualHeight[next] = DUMMY_HEIGHT;
+                next++;
+            }
+            chain[span] = head[e];
+            for (int i = 0; i < span; i++) {
+                segmentFrom[segments] = chain[i];
+                segmentTo[segments] = chain[i + 1];
+                segments++;
+            }
+            chains[e] = chain;
+        }
+
+        int[][] up = adjacency(virtualCount, segmentTo, segmentFrom, segments);
+        int[][] down = adjacency(virtualCount, segmentFrom, segmentTo, segments);
+
+        // 4. order the layers
+        int layerCount = 0;
+        for (int v = 0; v < virtualCount; v++) {
+            layerCount = Math.max(layerCount, virtualLayer[v] + 1);
+        }
+        int[][] layers = buildLayers(virtualLayer, virtualCount, layerCount);
+        double[] position = new double[virtualCount];
+        for (int[] members : layers) {
+            for (int i = 0; i < members.length; i++) {
+                position[members[i]] = i;
+            }
+        }
+        for (int pass = 0; pass < ORDERING_PASSES; pass++) {
+            if (pass % 2 == 0) {
+                for (int l = 1; l < layerCount; l++) {
+                    sortByBarycenter(layers[l], up, position);
+                }
+            } else {
+                for (int l = layerCount - 2; l >= 0; l--) {
+                    sortByBarycenter(layers[l], down, position);
+                }
+            }
+        }
+
+        // 5. coordinates
+        int[] layerX = new int[layerCount];
+        int left = MARGIN;
+        for (int l = 0; l < layerCount; l++) {
+            int layerWidth = 0;
+            for (int v : layers[l]) {
+                if (v < nodeCount) {
+                    layerWidth = Math.max(layerWidth, width[v]);
+                }
+            }
+            layerX[l] = left + layerWidth / 2;
+            left += layerWidth + LAYER_GAP;
+        }
+        totalWidth = left - LAYER_GAP + MARGIN;
+
+        double[] center = new double[virtualCount];
+        for (int[] members : layers) {
+            double top = 0;
+            for (int v : members) {
+                center[v] = top + virtualHeight[v] / 2.0;
+                top += virtualHeight[v] + NODE_GAP;
+            }
+        }
+        for (int pass = 0; pass < ALIGNMENT_PASSES; pass++) {
+            int[][] neighbors = (pass % 2 == 0) ? up : down;
+            for (int[] members : layers) {
+                align(members, neighbors, virtualHeight, center);
+            }
+        }
+
+        double minTop = Double.MAX_VALUE;
+        double maxBottom = -Double.MAX_VALUE;
+        for (int v = 0; v < virtualCount; v++) {
+            minTop = Math.min(minTop, center[v] - virtualHeight[v] / 2.0);
+            maxBottom = Math.max(maxBottom, center[v] + virtualHeight[v] / 2.0);
+        }
+        double shift = MARGIN + SELF_LOOP_HEIGHT - minTop;
+        totalHeight = (int) Math.round(maxBottom + shift) + MARGIN;
+        int[] virtualX = new int[virtualCount];
+        int[] virtualY = new int[virtualCount];
+        for (int v = 0; v < virtualCount; v++) {
+            virtualX[v] = layerX[virtualLayer[v]];
+            virtualY[v] = (int) Math.round(center[v] + shift);
+        }
+        System.arraycopy(virtualX, 0, x, 0, nodeCount);
+        System.arraycopy(virtualY, 0, y, 0, nodeCount);
+
+        // edge routes, from the original tail to the original head
+        for (int e = 0; e < edgeCount; e++) {
+            if (chains[e] == null) {
+                int v = edgeFrom[e];
+                int top = y[v] - height[v] / 2;
+                int dx = Math.max(width[v] / 4, 4);
+                edgePoints[e] = new int[] { x[v] + dx, top, x[v] + dx, top - SELF_LOOP_HEIGHT, x[v] - dx,
+                        top - SELF_LOOP_HEIGHT, x[v] - dx, top };
+                continue;
+            }
+            int[] chain = chains[e];
+            int[] points = new int[chain.length * 2];
+            for (int i = 0; i < chain.length; i++) {
+                int v = chain[i];
+                int px = virtualX[v];
+                if (i == 0) {
+                    px += width[v] / 2;
+                } else if (i == chain.length - 1) {
+                    px -= width[v] / 2;
+                }
+                int at = reversed[e] ? (chain.length - 1 - i) * 2 : i * 2;
+                points[at] = px;
+                points[at + 1] = virtualY[v];
+            }
+            edgePoints[e] = points;
+        }
+    }
+
+    private boolean[] findBackEdges() {
+        boolean[] reversed = new boolean[edgeFrom.length];
+        byte[] state = new byte[nodeCount]; // 0 unvisited, 1 on the stack, 2 done
+        int[] stack = new int[nodeCount];
+        int[] iterator = new int[nodeCount];
+        for (int v = 0; v < nodeCount; v++) {
+            iterator[v] = graph.getOutStart(v);
+        }
+        for (int root = 0; root < nodeCount; root++) {
+            if (state[root] != 0) {
+                continue;
+            }
+            int depth = 0;
+            stack[depth++] = root;
+            state[root] = 1;
+            while (depth > 0) {
+                int u = stack[depth - 1];
+                if (iterator[u] < graph.getOutEnd(u)) {
+                    int e = iterator[u]++;
+                    int w = edgeTo[e];
+                    if (state[w] == 0) {
+                        state[w] = 1;
+                        stack[depth++] = w;
+                    } else if (state[w] == 1 && w != u) {
+                        reversed[e] = true;
+                    }
+                } else {
+                    state[u] = 2;
+                    depth--;
+                }
+            }
+        }
+        return reversed;
+    }
+
+    private int[] assignLayers(int[] tail, int[] head) {
+        int[][] succ = adjacency(nodeCount, tail, head, tail.length);
+        int[] indegree = new int[nodeCount];
+        for (int e = 0; e < tail.length; e++) {
+            if (tail[e] != head[e]) {
+                indegree[head[e]]++;
+            }
+        }
+        int[] layer = new int[nodeCount];
+        int[] queue = new int[nodeCount];
+        int first = 0;
+        int last = 0;
+        for (int v = 0; v < nodeCount; v++) {
+            if (indegree[v] == 0) {
+                queue[last++] = v;
+            }
+        }
+        while (first < last) {
+            int u = queue[first++];
+            for (int w : succ[u]) {
+                if (w == u) {
+                    continue;
+                }
+                layer[w] = Math.max(layer[w], layer[u] + 1);
+                if (--indegree[w] == 0) {
+                    queue[last++] = w;
+                }
+            }
+        }
+        return layer;
+    }
+
+    private static int[][] adjacency(int count, int[] from, int[] to, int edges) {
+        int[] degree = new int[count];
+        for (int e = 0; e < edges; e++) {
+            degree[from[e]]++;
+        }
+        int[][] result = new int[count][];
+        for (int v = 0; v < count; v++) {
+            result[v] = new int[degree[v]];
+            degree[v] = 0;
+        }
+        for (int e = 0; e < edges; e++) {
+            result[from[e]][degree[from[e]]++] = to[e];
+        }
+        return result;
+    }
+
+    private static int[][] buildLayers(int[] layer, int count, int layerCount) {
+        int[] size = new int[layerCount];
+        for (int v = 0; v < count; v++) {
+            size[layer[v]]++;
+        }
+        int[][] layers = new int[layerCount][];
+        for (int l = 0; l < layerCount; l++) {
+            layers[l] = new int[size[l]];
+            size[l] = 0;
+        }
+        for (int v = 0; v < count; v++) {
+            layers[layer[v]][size[layer[v]]++] = v;
+        }
+        return layers;
+    }
+
+    private static void sortByBarycenter(int[] members, int[][] neighbors, final double[] position) {
+        final double[] key = new double[members.length];
+        Integer[] order = new Integer[members.length];
+        for (int i = 0; i < members.length; i++) {
+            int v = members[i];
+            order[i] = i;
+            if (neighbors[v].length == 0) {
+                key[i] = position[v];
+                continue;
+            }
+            double sum = 0;
+            for (int w : neighbors[v]) {
+                sum += position[w];
+            }
+            key[i] = sum / neighbors[v].length;
+        }
+        // stable, so nodes with equal barycenters keep their relative order
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Double.compare(key[a], key[b]);
+            }
+        });
+        int[] sorted = new int[members.length];
+        for (int i = 0; i < members.length; i++) {
+            sorted[i] = members[order[i]];
+        }
+        for (int i = 0; i < members.length; i++) {
+            members[i] = sorted[i];
+            position[sorted[i]] = i;
+        }
+    }
+
+    /**
+     * Move each member of a layer as close as possible (least squares) to the mean position of its neighbors, without
+     * changing the order of the layer or the minimum gap between its members. This is an isotonic regression, solved
+     * with the pool adjacent violators algorithm in linear time.
+     */
+    private static void align(int[] members, int[][] neighbors, int[] height, double[] center) {
+        int count = members.length;
+        if (count == 0) {
+            return;
+        }
+        double[] offset = new double[count];
+        double[] target = new double[count];
+        for (int i = 0; i < count; i++) {
+            int v = members[i];
+            if (i > 0) {
+                int previous = members[i - 1];
+                offset[i] = offset[i - 1] + (height[previous] + height[v]) / 2.0 + NODE_GAP;
+            }
+            double desired = center[v];
+            if (neighbors[v].length > 0) {
+                double sum = 0;
+                for (int w : neighbors[v]) {
+                    sum += center[w];
+                }
+                desired = sum / neighbors[v].length;
+            }
+            target[i] = desired - offset[i];
+        }
+
+        double[] blockSum = new double[count];
+        int[] blockSize = new int[count];
+        int blocks = 0;
+        for (int i = 0; i < count; i++) {
+            blockSum[blocks] = target[i];
+            blockSize[blocks] = 1;
+            blocks++;
+            while (blocks > 1
+                    && blockSum[blocks - 2] / blockSize[blocks - 2] > blockSum[blocks - 1] / blockSize[blocks - 1]) {
+                blockSum[blocks - 2] += blockSum[blocks - 1];
+                blockSize[blocks - 2] += blockSize[blocks - 1];
+                blocks--;
+            }
+        }
+        int i = 0;
+        for (int b = 0; b < blocks; b++) {
+            double value = blockSum[b] / blockSize[b];
+            for (int k = 0; k < blockSize[b]; k++, i++) {
+                center[members[i]] = value + offset[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+
+package net.mach6.svg;
+
+import java.io.IOException;
+
+import net.mach6.Result;
+import net.mach6.graph.DependencyGraph;
+import net.mach6.graph.Graphable;
+import net.mach6.graph.NodeKind;
+
+/**
+ * A {@link DependencyGraph} drawn as SVG without the Graphviz <code>dot</code> executable. The layout runs over the
+ * graph the model objects add themselves to; no .dot text is written or parsed on the way. Nodes have the same
+ * shapes, colors and labels as in the .dot output, with the duration of a node on the same line.
+ */
+public final class SvgGraph {
+    private static final int CHAR_WIDTH = 7;
+    private static final int NODE_PADDING = 20;
+    private static final int NODE_HEIGHT = 28;
+    private static final int PERIPHERY_GAP = 4;
+
+    private final DependencyGraph graph;
+
+    /**
+     * @param graph
+     *            the graph to draw
+     */
+    public SvgGraph(DependencyGraph graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * @param graphable
+     *            the object to draw
+     * @return the drawing of the graph of the object
+     */
+    public static SvgGraph of(Graphable graphable) {
+        return new SvgGraph(DependencyGraph.of(graphable));
+    }
+
+    /**
+     * @return whether the graph has no nodes, i.e. there is nothing to draw
+     */
+    public boolean isEmpty() {
+        return graph.getNodeCount() == 0;
+    }
+
+    /**
+     * Lay out the graph and write it as a standalone SVG document
+     *
+     * @param out
+     *            the destination
+     * @throws IOException
+     *             if the destination fails
+     */
+    public void write(Appendable out) throws IOException {
+        int nodeCount = graph.getNodeCount();
+        int[] width = new int[nodeCount];
+        int[] height = new int[nodeCount];
+        for (int v = 0; v < nodeCount; v++) {
+            width[v] = label(v).length() * CHAR_WIDTH + NODE_PADDING;
+            height[v] = NODE_HEIGHT;
+            if (graph.getKind(v).getPeripheries() > 1) {
+                width[v] += 2 * PERIPHERY_GAP;
+                height[v] += 2 * PERIPHERY_GAP;
+            }
+        }
+        LayeredLayout layout = new LayeredLayout(graph, width, height);
+
+        out.append("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n");
+        out.append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").append(String.valueOf(layout.getWidth()))
+                .append("\" height=\"").append(String.valueOf(layout.getHeight())).append("\" viewBox=\"0 0 ")
+                .append(String.valueOf(layout.getWidth())).append(' ').append(String.valueOf(layout.getHeight()))
+                .append("\">\n");
+        out.append("<defs><marker id=\"arrow\" markerWidth=\"10\" markerHeight=\"7\" refX=\"10\" refY=\"3.5\" "
+                + "orient=\"auto\"><polygon points=\"0 0, 10 3.5, 0 7\"/></marker></defs>\n");
+        out.append("<g font-family=\"Helvetica,Arial,sans-serif\" font-size=\"12\">\n");
+        for (int e = 0; e < graph.getEdgeCount(); e++) {
+            out.append("<polyline fill=\"none\" stroke=\"black\" marker-end=\"url(#arrow)\" points=\"");
+            int[] points = layout.getEdgePoints(e);
+            for (int p = 0; p < points.length; p += 2) {
+                if (p > 0) {
+                    out.append(' ');
+                }
+                out.append(String.valueOf(points[p])).append(',').append(String.valueOf(points[p + 1]));
+            }
+            out.append("\"/>\n");
+        }
+        for (int v = 0; v < nodeCount; v++) {
+            writeNode(out, v, layout.getX()[v], layout.getY()[v], width[v], height[v]);
+        }
+        out.append("</g>\n</svg>\n");
+    }
+
+    private String label(int node) {
+        String prefix = graph.getKind(node).getLabelPrefix();
+        String label = (prefix == null) ? graph.getName(node) : prefix + graph.getName(node);
+        long duration = graph.getDuration(node);
+        return (duration < 0) ? label : label + " (" + duration + " ms)";
+    }
+
+    private void writeNode(Appendable out, int node, int cx, int cy, int w, int h) throws IOException {
+        NodeKind kind = graph.getKind(node);
+        String color = Result.getColor(graph.getResult(node));
+        String stroke = (color == null) ? "black" : color;
+        String fill = (color == null) ? "white" : color;
+        String paint = " fill=\"" + fill + "\" stroke=\"" + stroke + "\"/>\n";
+
+        out.append("<g class=\"node\"><title>");
+        appendEscaped(out, graph.getName(node)).append("</title>\n");
+        if (kind.getPeripheries() > 1) {
+            writeShape(out, kind.getShape(), cx, cy, w, h, " fill=\"none\" stroke=\"" + stroke + "\"/>\n");
+            w -= 2 * PERIPHERY_GAP;
+            h -= 2 * PERIPHERY_GAP;
+        }
+        writeShape(out, kind.getShape(), cx, cy, w, h, paint);
+        out.append("<text x=\"").append(String.valueOf(cx)).append("\" y=\"").append(String.valueOf(cy))
+                .append("\" text-anchor=\"middle\" dominant-baseline=\"central\">");
+        appendEscaped(out, label(node)).append("</text></g>\n");
+    }
+
+    private static void writeShape(Appendable out, String shape, int cx, int cy, int w, int h, String paint)
+            throws IOException {
+        int left = cx - w / 2;
+        int right = left + w;
+        int top = cy - h / 2;
+        int bottom = top + h;
+        if ("box".equals(shape)) {
+            out.append("<rect x=\"").append(String.valueOf(left)).append("\" y=\"").append(String.valueOf(top))
+                    .append("\" width=\"").append(String.valueOf(w)).append("\" height=\"")
+                    .append(String.valueOf(h)).append('"').append(paint);
+        } else if ("house".equals(shape)) {
+            int roof = top + h / 3;
+            appendPolygon(out, paint, cx, top, right, roof, right, bottom, left, bottom, left, roof);
+        } else if ("cds".equals(shape)) {
+            int tip = right - h / 3;
+            appendPolygon(out, paint, left, top, tip, top, right, cy, tip, bottom, left, bottom);
+        } else {
+            out.append("<ellipse cx=\"").append(String.valueOf(cx)).append("\" cy=\"").append(String.valueOf(cy))
+                    .append("\" rx=\"").append(String.valueOf(w / 2)).append("\" ry=\"").append(String.valueOf(h / 2))
+                    .append('"').append(paint);
+        }
+    }
+
+    private static void appendPolygon(Appendable out, String paint, int... points) throws IOException {
+        out.append("<polygon points=\"");
+        for (int p = 0; p < points.length; p += 2) {
+            if (p > 0) {
+                out.append(' ');
+            }
+            out.append(String.valueOf(points[p])).append(',').append(String.valueOf(points[p + 1]));
+        }
+        out.append('"').append(paint);
+    }
+
+    private static Appendable appendEscaped(Appendable out, String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+            case '<':
+                out.append("&lt;");
+                break;
+            case '>':
+                out.append("&gt;");
+                break;
+            case '&':
+                out.append("&amp;");
+                break;
+            case '"':
+                out.append("&quot;");
+                break;
+            default:
+                out.append(c);
+            }
+        }
+        return out;
+    }
+}
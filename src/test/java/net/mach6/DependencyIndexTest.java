@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+
+package net.mach6;
+
+import static org.testng.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import net.mach6.DependencyIndex.MethodView;
+import net.mach6.graph.DependencyGraph;
+import net.mach6.graph.StronglyConnectedComponents;
+
+import org.testng.ITestContext;
+import org.testng.ITestNGMethod;
+import org.testng.Reporter;
+import org.testng.annotations.Test;
+
+public class DependencyIndexTest {
+
+    // a method is { class name, method name, group, dependsOnMethods value, dependsOnGroups value }
+    private static final MethodView<String[]> STRINGS = new MethodView<String[]>() {
+        @Override
+        public String getQualifiedName(String[] method) {
+            return method[0] + "." + method[1];
+        }
+
+        @Override
+        public String getSimpleName(String[] method) {
+            return method[1];
+        }
+
+        @Override
+        public List<String> getGroups(String[] method) {
+            return asList(method[2]);
+        }
+
+        @Override
+        public List<String> getMethodsDependedUpon(String[] method) {
+            return asList(method[3]);
+        }
+
+        @Override
+        public List<String> getGroupsDependedUpon(String[] method) {
+            return asList(method[4]);
+        }
+
+        private List<String> asList(String value) {
+            return (value == null) ? Collections.<String> emptyList() : Arrays.asList(value);
+        }
+    };
+
+    @Test(groups = { "dependencyindex" })
+    public void constructor(ITestContext ctx) {
+        DependencyIndex<ITestNGMethod> index = DependencyIndex.of(ctx.getSuite());
+        assertNotNull(index);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void constructorNull() {
+        DependencyIndex.of((Collection<ITestNGMethod>) null);
+    }
+
+    @Test(dependsOnMethods = "constructor")
+    public void getMethodsNamed(ITestContext ctx) {
+        DependencyIndex<ITestNGMethod> index = DependencyIndex.of(ctx.getSuite());
+        List<ITestNGMethod> methods = index.getMethodsNamed(getClass().getName() + ".constructor");
+        assertEquals(methods.size(), 1);
+        assertEquals(methods.get(0).getMethodName(), "constructor");
+    }
+
+    @Test(dependsOnMethods = "constructor")
+    public void getMethodsNamedRegex(ITestContext ctx) {
+        DependencyIndex<ITestNGMethod> index = DependencyIndex.of(ctx.getSuite());
+        assertEquals(index.getMethodsNamed(getClass().getName() + ".getMethodsNamed.*").size(), 2);
+        assertTrue(index.getMethodsNamed("doesNotExist").isEmpty());
+    }
+
+    @Test(dependsOnMethods = "constructor")
+    public void getMethodsInGroup(ITestContext ctx) {
+        DependencyIndex<ITestNGMethod> index = DependencyIndex.of(ctx.getSuite());
+        assertEquals(index.getMethodsInGroup("dependencyindex").size(), 1);
+        assertEquals(index.getMethodsInGroup("dependency.*").size(), 1);
+    }
+
+    @Test(dependsOnMethods = "getMethodsNamed", dependsOnGroups = "dependencyindex")
+    public void getDirectPredecessors(ITestContext ctx) {
+        DependencyIndex<ITestNGMethod> index = DependencyIndex.of(ctx.getSuite());
+        List<ITestNGMethod> methods = index.getDirectPredecessors(Reporter.getCurrentTestResult().getMethod());
+        assertEquals(methods.size(), 2);
+    }
+
+    @Test(dependsOnMethods = "getMethodsNamed")
+    public void getMethodsDependedUpon(ITestContext ctx) {
+        DependencyIndex<ITestNGMethod> index = DependencyIndex.of(ctx.getSuite());
+        List<ITestNGMethod> methods = index.getMethodsDependedUpon(Reporter.getCurrentTestResult().getMethod());
+        assertEquals(methods.size(), 2);
+        assertEquals(methods.get(0).getMethodName(), "constructor");
+        assertEquals(methods.get(1).getMethodName(), "getMethodsNamed");
+    }
+
+    @Test
+    public void otherMethodView() {
+        String[] first = { "a.B", "first", "setup", null, null };
+        String[] second = { "a.B", "second", null, "a.B.first", null };
+        String[] third = { "a.C", "third", null, null, "set.*" };
+        DependencyIndex<String[]> index = new DependencyIndex<>(Arrays.asList(first, second, third), STRINGS);
+
+        assertEquals(index.getMethodsDependedUpon(second), Collections.singletonList(first));
+        assertEquals(index.getMethodsDependedUpon(third), Collections.singletonList(first));
+        assertTrue(index.getMethodsDependedUpon(first).isEmpty());
+    }
+
+    @Test
+    public void selfDependency() {
+        String[] self = { "a.B", "self", null, "a.B.self", null };
+        String[] grouped = { "a.B", "grouped", "g", null, "g" };
+        String[] other = { "a.B", "other", null, "self", null };
+        DependencyIndex<String[]> index = new DependencyIndex<>(Arrays.asList(self, grouped, other), STRINGS);
+        assertEquals(index.getMethodsDependedUpon(self), Collections.singletonList(self));
+        assertEquals(index.getMethodsDependedUpon(other), Collections.singletonList(self));
+
+        List<TestMethodInfo> methods = new ArrayList<>();
+        for (String[] method : Arrays.asList(self, grouped, other)) {
+            List<String> dependentMethods = new ArrayList<>();
+            for (String[] m : index.getMethodsDependedUpon(method)) {
+                dependentMethods.add(STRINGS.getQualifiedName(m));
+            }
+            methods.add(new TestMethodInfo(STRINGS.getQualifiedName(method), STRINGS.getGroups(method),
+                    STRINGS.getGroupsDependedUpon(method), Collections.<String> emptyList(),
+                    Collections.<String> emptyList(), dependentMethods));
+        }
+        Set<List<String>> cycles = new HashSet<>();
+        for (StronglyConnectedComponents.Cycle cycle : StronglyConnectedComponents.of("suite",
+                DependencyGraph.of(methods)).getCycles()) {
+            cycles.add(cycle.getMethods());
+        }
+        assertEquals(cycles, new HashSet<>(Arrays.asList(Collections.singletonList("a.B.self"),
+                Collections.singletonList("a.B.grouped"))));
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+
+package net.mach6;
+
+import static org.testng.Assert.*;
+
+import java.io.IOException;
+
+import org.testng.ITestContext;
+import org.testng.annotations.Test;
+
+public class DotSupportTest {
+
+    @Test
+    public void appendQuoted() throws IOException {
+        assertEquals(DotSupport.appendQuoted(new StringBuilder(), "plain").toString(), "\"plain\"");
+        assertEquals(DotSupport.appendQuoted(new StringBuilder(), "a \"b\" c").toString(), "\"a \\\"b\\\" c\"");
+        assertEquals(DotSupport.appendQuoted(new StringBuilder(), "c:\\dir\\").toString(), "\"c:\\\\dir\\\\\"");
+    }
+
+    @Test
+    public void appendEdge() throws IOException {
+        StringBuilder out = new StringBuilder();
+        DotSupport.appendEdge(out, "a", "b\"");
+        assertEquals(out.toString(), "\"a\" -> \"b\\\"\";\n");
+
+        out.setLength(0);
+        DotSupport.appendEdge(out, "a", "b", "color=blue");
+        assertEquals(out.toString(), "\"a\" -> \"b\"[color=blue];\n");
+    }
+
+    @Test
+    public void appendNode() throws IOException {
+        StringBuilder out = new StringBuilder();
+        DotSupport.appendNode(out, "g", "shape=cds", "Group: ");
+        DotSupport.appendNode(out, "m", "style=filled,color=red", null);
+        assertEquals(out.toString(), "\"g\"[shape=cds,label=\"Group: g\"];\n\"m\"[style=filled,color=red];\n");
+
+        out.setLength(0);
+        DotSupport.appendNode(out, "t", null, null, "\\n3 ms");
+        assertEquals(out.toString(), "\"t\"[label=\"t\\n3 ms\"];\n");
+    }
+
+    @Test
+    public void toDot(ITestContext ctx) throws IOException {
+        TestInfo testInfo = new TestInfo(ctx, null);
+        StringBuilder out = new StringBuilder();
+        testInfo.toDot(out, false);
+        assertEquals(DotSupport.toDot(testInfo, false), out.toString());
+        assertTrue(out.toString().startsWith("digraph g {\n"));
+    }
+}
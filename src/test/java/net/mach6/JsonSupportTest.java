@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+
+package net.mach6;
+
+import static org.testng.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.testng.ITestContext;
+import org.testng.annotations.Test;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+public class JsonSupportTest {
+    private static final Gson REFLECTIVE = new GsonBuilder().excludeFieldsWithoutExposeAnnotation()
+            .setPrettyPrinting().create();
+
+    @Test
+    public void sameAsReflective(ITestContext ctx) {
+        TestSuiteInfo suiteInfo = new TestSuiteInfo(ctx.getSuite(), null);
+        TestInfo testInfo = new TestInfo(ctx, null);
+        assertEquals(suiteInfo.toJSON(), REFLECTIVE.toJson(suiteInfo));
+        assertEquals(testInfo.toJSON(), REFLECTIVE.toJson(testInfo));
+        for (TestClassInfo classInfo : testInfo.getTestClasses()) {
+            assertEquals(classInfo.toJSON(), REFLECTIVE.toJson(classInfo));
+            for (TestMethodInfo methodInfo : classInfo.getTestMethods()) {
+                assertEquals(methodInfo.toJSON(), REFLECTIVE.toJson(methodInfo));
+            }
+        }
+    }
+
+    @Test
+    public void sameAsReflectiveForReport(ITestContext ctx) {
+        Set<TestSuiteInfo> report = new TreeSet<>();
+        report.add(new TestSuiteInfo(ctx.getSuite(), null));
+        assertEquals(JsonSupport.getGson().toJson(report), REFLECTIVE.toJson(report));
+    }
+
+    @Test
+    public void fromJson(ITestContext ctx) throws IOException {
+        TestInfo testInfo = new TestInfo(ctx, null);
+        String json = testInfo.toJSON();
+        TestInfo read = JsonSupport.fromJson(new StringReader(json), TestInfo.class);
+        assertEquals(read, testInfo);
+        assertEquals(read.getResult(), testInfo.getResult());
+        assertEquals(read.getTestClasses().size(), testInfo.getTestClasses().size());
+        assertEquals(read.getPassedCount(), testInfo.getPassedCount());
+        assertEquals(read.getSkippedCount(), testInfo.getSkippedCount());
+        assertEquals(read.getFailedCount(), testInfo.getFailedCount());
+        assertEquals(read.toJSON(), json);
+    }
+
+    @Test
+    public void readReport(ITestContext ctx) throws IOException {
+        Set<TestSuiteInfo> report = new TreeSet<>();
+        report.add(new TestSuiteInfo(ctx.getSuite(), null));
+        String json = JsonSupport.getGson().toJson(report);
+        Set<TestSuiteInfo> read = JsonSupport.readReport(new StringReader(json));
+        assertEquals(read, report);
+        assertEquals(JsonSupport.getGson().toJson(read), json);
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void readMalformed() throws IOException {
+        JsonSupport.fromJson(new StringReader("{\"name\": [}"), TestInfo.class);
+    }
+}
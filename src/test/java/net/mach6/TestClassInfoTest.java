@@ -11,8 +11,14 @@ package net.mach6;
 
 import static org.testng.Assert.*;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+
 import org.testng.ITestClass;
 import org.testng.ITestContext;
+import org.testng.ITestNGMethod;
 import org.testng.Reporter;
 import org.testng.annotations.Test;
 
@@ -26,6 +32,11 @@ public class TestClassInfoTest {
         assertNotNull(classInfo);
     }
 
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void constructorNullName() {
+        new TestClassInfo((String) null, new ConcurrentSkipListSet<TestMethodInfo>());
+    }
+
     @Test(dependsOnMethods = "constructor")
     public void equals(ITestContext ctx) {
         TestClassInfo classInfo = new TestClassInfo(Reporter.getCurrentTestResult().getMethod().getTestClass(), null);
@@ -75,4 +86,36 @@ public class TestClassInfoTest {
         TestClassInfo compareTo = new Gson().fromJson(json, TestClassInfo.class);
         assertEquals(classInfo.compareTo(compareTo), 0);
     }
+
+    @Test(dependsOnMethods = "constructor")
+    public void results(ITestContext ctx) {
+        ITestClass testClass = Reporter.getCurrentTestResult().getMethod().getTestClass();
+        List<ITestNGMethod> methods = new ArrayList<>();
+        for (ITestNGMethod method : ctx.getAllTestMethods()) {
+            if (method.getTestClass() == testClass) {
+                methods.add(method);
+            }
+        }
+        DependencyIndex<ITestNGMethod> index = DependencyIndex.of(methods);
+        Result[] results = { Result.PASSED, Result.SKIPPED, Result.PASSED };
+        Set<TestMethodInfo> testMethods = new ConcurrentSkipListSet<>();
+        for (int i = 0; i < results.length; i++) {
+            TestMethodInfo methodInfo = new TestMethodInfo(methods.get(i), index);
+            methodInfo.setResult(results[i]);
+            testMethods.add(methodInfo);
+        }
+
+        TestClassInfo classInfo = new TestClassInfo(testClass, testMethods);
+        assertEquals(classInfo.getResult(), Result.SKIPPED);
+        assertTrue(classInfo.hasPassed());
+        assertTrue(classInfo.hasSkips());
+        assertFalse(classInfo.hasFailures());
+        assertEquals(classInfo.getPassedCount(), 2);
+        assertEquals(classInfo.getSkippedCount(), 1);
+        assertEquals(classInfo.getPassed().size(), 2);
+        // a new, mutable set each time, as before the counts were kept
+        classInfo.getPassed().clear();
+        assertEquals(classInfo.getPassed().size(), 2);
+        assertTrue(classInfo.getFailures().isEmpty());
+    }
 }
@@ -11,6 +11,8 @@ package net.mach6;
 
 import static org.testng.Assert.*;
 
+import java.util.Collections;
+
 import org.testng.ITestContext;
 import org.testng.annotations.Test;
 
@@ -24,6 +26,11 @@ public class TestInfoTest {
         assertNotNull(testInfo);
     }
 
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void constructorNullClasses() {
+        new TestInfo("test", true, null, Collections.<String> emptyList(), null);
+    }
+
     @Test(dependsOnMethods = "constructor")
     public void equals(ITestContext ctx) {
         TestInfo testInfo = new TestInfo(ctx, null);
@@ -78,4 +85,21 @@ public class TestInfoTest {
         TestInfo compareTo = new Gson().fromJson(json, TestInfo.class);
         assertEquals(testInfo.compareTo(compareTo), 0);
     }
+
+    @Test(dependsOnMethods = "toJSON")
+    public void detach(ITestContext ctx) {
+        TestInfo testInfo = new TestInfo(ctx, null);
+        String json = testInfo.toJSON();
+        assertFalse(testInfo.getTestClasses().isEmpty());
+
+        testInfo.detach();
+        assertNull(testInfo.getITestContext());
+        for (TestClassInfo classInfo : testInfo.getTestClasses()) {
+            assertNull(classInfo.getTestClass());
+            for (TestMethodInfo methodInfo : classInfo.getTestMethods()) {
+                assertNull(methodInfo.getTestNGMethod());
+            }
+        }
+        assertEquals(testInfo.toJSON(), json);
+    }
 }
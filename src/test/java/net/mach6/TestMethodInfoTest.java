@@ -11,6 +11,8 @@ package net.mach6;
 
 import static org.testng.Assert.*;
 
+import java.util.Arrays;
+
 import org.testng.ITestContext;
 import org.testng.ITestNGMethod;
 import org.testng.Reporter;
@@ -102,4 +104,37 @@ public class TestMethodInfoTest {
         TestMethodInfo compareTo = new Gson().fromJson(json, TestMethodInfo.class);
         assertEquals(methodInfo.compareTo(compareTo), 0);
     }
+
+    @Test
+    public void addInvocation() {
+        TestMethodInfo methodInfo = new TestMethodInfo("a.B.c", null, null, null, null, null);
+        assertEquals(methodInfo.getInvocationCount(), 0);
+        assertEquals(methodInfo.getDurationMillis(), -1);
+        assertFalse(methodInfo.toJSON().contains("durationMillis"));
+
+        methodInfo.addInvocation(200, 250, "pool-1-thread-2");
+        methodInfo.addInvocation(100, 130, "pool-1-thread-1");
+        methodInfo.addInvocation(300, 310, "pool-1-thread-2");
+        methodInfo.addInvocation(400, 410, null);
+        assertEquals(methodInfo.getInvocationCount(), 4);
+        assertEquals(methodInfo.getStartMillis(), 100);
+        assertEquals(methodInfo.getEndMillis(), 410);
+        assertEquals(methodInfo.getDurationMillis(), 100);
+        assertEquals(methodInfo.getThreads(), Arrays.asList("pool-1-thread-2", "pool-1-thread-1"));
+
+        TestMethodInfo read = new Gson().fromJson(methodInfo.toJSON(), TestMethodInfo.class);
+        assertEquals(read.getInvocationCount(), 4);
+        assertEquals(read.getStartMillis(), 100);
+        assertEquals(read.getEndMillis(), 410);
+        assertEquals(read.getDurationMillis(), 100);
+        assertEquals(read.getThreads(), methodInfo.getThreads());
+    }
+
+    @Test
+    public void getThreadName() {
+        assertEquals(TestMethodInfo.getThreadName("TestNG-methods-1@1234"), "TestNG-methods-1");
+        assertEquals(TestMethodInfo.getThreadName("main"), "main");
+        assertNull(TestMethodInfo.getThreadName(""));
+        assertNull(TestMethodInfo.getThreadName(null));
+    }
 }
@@ -11,6 +11,8 @@ package net.mach6;
 
 import static org.testng.Assert.*;
 
+import java.util.Collections;
+
 import org.testng.ITestContext;
 import org.testng.annotations.Test;
 
@@ -24,6 +26,11 @@ public class TestSuiteInfoTest {
         assertNotNull(suiteInfo);
     }
 
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void constructorNullName() {
+        new TestSuiteInfo(null, null, true, Collections.<String> emptySet(), Collections.<TestInfo> emptySet());
+    }
+
     @Test(dependsOnMethods = "constructor")
     public void equals(ITestContext ctx) {
         TestSuiteInfo suiteInfo = new TestSuiteInfo(ctx.getSuite(), null);
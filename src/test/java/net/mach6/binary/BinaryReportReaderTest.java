@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+
+package net.mach6.binary;
+
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import net.mach6.Result;
+import net.mach6.TestClassInfo;
+import net.mach6.TestInfo;
+import net.mach6.TestMethodInfo;
+import net.mach6.TestSuiteInfo;
+import net.mach6.graph.NodeKind;
+import net.mach6.scanner.ResultsXmlReader;
+
+import org.testng.annotations.Test;
+
+public class BinaryReportReaderTest {
+    private static final String RESULTS = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<testng-results>\n"
+            + "  <suite name=\"suite\">\n"
+            + "    <groups>\n"
+            + "      <group name=\"base\">\n"
+            + "        <method signature=\"Child.first()[pri:0, instance:a.Child@1]\" name=\"first\" class=\"a.Child\"/>\n"
+            + "      </group>\n"
+            + "    </groups>\n"
+            + "    <test name=\"test\">\n"
+            + "      <class name=\"a.Child\">\n"
+            + "        <test-method status=\"PASS\" signature=\"first()[pri:0, instance:a.Child@1]\" name=\"first\""
+            + " started-at=\"2016-01-01T00:00:00Z\" duration-ms=\"42\"/>\n"
+            + "        <test-method status=\"FAIL\" signature=\"second()[pri:0, instance:a.Child@1]\" name=\"second\""
+            + " depends-on-methods=\"a.Child.first\" depends-on-groups=\"base\"/>\n"
+            + "      </class>\n"
+            + "      <class name=\"a.Other\">\n"
+            + "        <test-method status=\"SKIP\" signature=\"third()[pri:0, instance:a.Other@1]\" name=\"third\"/>\n"
+            + "      </class>\n"
+            + "    </test>\n"
+            + "  </suite>\n"
+            + "</testng-results>\n";
+
+    private static Set<TestSuiteInfo> suites() throws IOException {
+        return ResultsXmlReader.read(new ByteArrayInputStream(RESULTS.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static byte[] write(Set<TestSuiteInfo> suites) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryReportWriter.write(suites, out);
+        return out.toByteArray();
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        BinaryReportReader reader = BinaryReportReader.of(ByteBuffer.wrap(write(suites())));
+        assertEquals(reader.getSuiteCount(), 1);
+        assertEquals(reader.getTestCount(), 1);
+        assertEquals(reader.getClassCount(), 2);
+        assertEquals(reader.getMethodCount(), 3);
+        assertEquals(reader.getEdgeCount(), 2);
+
+        BinaryReportReader.Suite suite = reader.getSuite(0);
+        assertEquals(suite.getName(), "suite");
+        assertEquals(suite.getResult(), Result.FAILED);
+        assertEquals(suite.getTests().size(), 1);
+        BinaryReportReader.Test test = suite.getTests().get(0);
+        assertEquals(test.getName(), "test");
+        assertEquals(test.getSuite().getName(), "suite");
+
+        Map<String, BinaryReportReader.Method> methods = new HashMap<>();
+        for (BinaryReportReader.TestClass testClass : test.getTestClasses()) {
+            assertEquals(testClass.getTest().getIndex(), test.getIndex());
+            for (BinaryReportReader.Method method : testClass.getTestMethods()) {
+                assertEquals(method.getTestClass().getName(), testClass.getName());
+                methods.put(method.getName(), method);
+            }
+        }
+        assertEquals(methods.keySet().size(), 3);
+
+        BinaryReportReader.Method first = methods.get("a.Child.first");
+        assertEquals(first.getResult(), Result.PASSED);
+        assertEquals(first.getGroups(), Arrays.asList("base"));
+        assertEquals(first.getInvocationCount(), 1);
+        assertEquals(first.getDurationMillis(), 42);
+        assertEquals(first.getEndMillis() - first.getStartMillis(), 42);
+        assertEquals(first.getEdges().size(), 0);
+
+        BinaryReportReader.Method second = methods.get("a.Child.second");
+        assertEquals(second.getResult(), Result.FAILED);
+        assertEquals(second.getDurationMillis(), -1, "no timing in the file");
+        assertEquals(second.getDependentMethods(), Arrays.asList("a.Child.first"));
+        assertEquals(second.getDependentGroups(), Arrays.asList("base"));
+        BinaryReportReader.Edge methodEdge = second.getEdges().get(0);
+        assertEquals(methodEdge.getKind(), NodeKind.METHOD);
+        assertEquals(methodEdge.getTargetMethod().getIndex(), first.getIndex());
+        BinaryReportReader.Edge edge = second.getEdges().get(1);
+        assertEquals(edge.getKind(), NodeKind.GROUP);
+        assertEquals(edge.getMethod().getName(), "a.Child.second");
+        assertEquals(reader.getEdges().get(edge.getIndex()).getTarget(), "base");
+        assertNull(edge.getTargetMethod());
+
+        assertEquals(methods.get("a.Other.third").getResult(), Result.SKIPPED);
+        assertEquals(methods.get("a.Other.third").getThreads(), Collections.emptyList());
+    }
+
+    @Test
+    public void methodTargets() throws IOException {
+        // the same class in two tests; third depends on a method which is not in the report
+        Set<TestInfo> tests = new TreeSet<>();
+        for (String name : Arrays.asList("one", "two")) {
+            Set<TestMethodInfo> methods = new TreeSet<>();
+            methods.add(method("a.B.first"));
+            methods.add(method("a.B.second", "a.B.first"));
+            methods.add(method("a.B.third", "a.Missing.method"));
+            tests.add(new TestInfo(name, true, null, Collections.<String> emptyList(),
+                    new TreeSet<>(Collections.singleton(new TestClassInfo("a.B", methods)))));
+        }
+        Set<TestSuiteInfo> suites = Collections.singleton(new TestSuiteInfo("suite", null, true,
+                Collections.<String> emptySet(), tests));
+        BinaryReportReader reader = BinaryReportReader.of(ByteBuffer.wrap(write(suites)));
+
+        for (BinaryReportReader.Test test : reader.getTests()) {
+            Map<String, BinaryReportReader.Method> methods = new HashMap<>();
+            for (BinaryReportReader.Method method : test.getTestClasses().get(0).getTestMethods()) {
+                methods.put(method.getName(), method);
+            }
+            BinaryReportReader.Edge edge = methods.get("a.B.second").getEdges().get(0);
+            assertEquals(edge.getTarget(), "a.B.first");
+            assertEquals(edge.getTargetMethod().getIndex(), methods.get("a.B.first").getIndex(),
+                    "the method of the same test");
+
+            edge = methods.get("a.B.third").getEdges().get(0);
+            assertEquals(edge.getKind(), NodeKind.METHOD);
+            assertEquals(edge.getTarget(), "a.Missing.method");
+            assertNull(edge.getTargetMethod());
+        }
+    }
+
+    private static TestMethodInfo method(String name, String... dependentMethods) {
+        List<String> none = Collections.emptyList();
+        return new TestMethodInfo(name, none, none, none, none, Arrays.asList(dependentMethods));
+    }
+
+    @Test
+    public void mapped() throws IOException {
+        File file = File.createTempFile("report", ".bin");
+        file.deleteOnExit();
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(write(suites()));
+        }
+        BinaryReportReader reader = BinaryReportReader.open(file);
+        assertEquals(reader.getSuites().get(0).getName(), "suite");
+        assertEquals(reader.getMethods().size(), 3);
+    }
+
+    @Test
+    public void empty() throws IOException {
+        BinaryReportReader reader = BinaryReportReader
+                .of(ByteBuffer.wrap(write(Collections.<TestSuiteInfo> emptySet())));
+        assertEquals(reader.getSuites(), Collections.emptyList());
+    }
+
+    @Test(expectedExceptions = IndexOutOfBoundsException.class)
+    public void outOfRange() throws IOException {
+        BinaryReportReader.of(ByteBuffer.wrap(write(suites()))).getSuite(0).getTests().get(1);
+    }
+
+    @Test(expectedExceptions = IOException.class, expectedExceptionsMessageRegExp = "Not a binary.*")
+    public void notBinary() throws IOException {
+        BinaryReportReader.of(ByteBuffer.wrap(RESULTS.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void smallerThanJson() throws IOException {
+        Set<TestSuiteInfo> suites = suites();
+        assertTrue(write(suites).length < suites.iterator().next().toJSON().length());
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+
+package net.mach6.graph;
+
+import static org.testng.Assert.*;
+
+import java.util.BitSet;
+
+import net.mach6.Result;
+
+import org.testng.annotations.Test;
+
+public class CriticalPathTest {
+
+    // d depends on b and c, which both depend on a; c is slow. e depends on nothing, f and g depend on each other.
+    private static DependencyGraph.Builder builder(long slow) {
+        DependencyGraph.Builder builder = new DependencyGraph.Builder();
+        int t = builder.addNode("t", NodeKind.TEST, null);
+        int a = builder.addNode("a", NodeKind.METHOD, Result.PASSED, 10);
+        int b = builder.addNode("b", NodeKind.METHOD, Result.PASSED, 10);
+        int c = builder.addNode("c", NodeKind.METHOD, Result.PASSED, slow);
+        int d = builder.addNode("d", NodeKind.METHOD, Result.FAILED, 10);
+        int e = builder.addNode("e", NodeKind.METHOD, Result.PASSED, 40);
+        int f = builder.addNode("f", NodeKind.METHOD, null);
+        int g = builder.addNode("g", NodeKind.METHOD, null);
+        int group = builder.addNode("group", NodeKind.GROUP, null);
+        for (int v = a; v <= g; v++) {
+            builder.addEdge(t, v, EdgeKind.CONTAINS);
+        }
+        builder.addEdge(b, a, EdgeKind.DEPENDS_ON);
+        builder.addEdge(c, a, EdgeKind.DEPENDS_ON);
+        builder.addEdge(d, b, EdgeKind.DEPENDS_ON);
+        builder.addEdge(d, c, EdgeKind.DEPENDS_ON);
+        builder.addEdge(d, a, EdgeKind.DEPENDS_ON);
+        builder.addEdge(d, group, EdgeKind.DEPENDS_ON);
+        builder.addEdge(f, g, EdgeKind.DEPENDS_ON);
+        builder.addEdge(g, f, EdgeKind.DEPENDS_ON);
+        return builder;
+    }
+
+    private static String names(CriticalPath path) {
+        StringBuilder names = new StringBuilder();
+        for (CriticalPath.Step step : path.getMethods()) {
+            names.append(step.getName());
+        }
+        return names.toString();
+    }
+
+    @Test
+    public void longestByDuration() {
+        CriticalPath path = CriticalPath.of("t", builder(30).build());
+        assertEquals(names(path), "acd");
+        assertEquals(path.getDurationMillis(), 50);
+        assertEquals(path.getMethods().get(1).getElapsedMillis(), 40);
+        assertEquals(path.getMethods().get(2).getResult(), Result.FAILED);
+    }
+
+    @Test
+    public void singleSlowMethod() {
+        DependencyGraph.Builder builder = builder(1);
+        builder.addNode("e", NodeKind.METHOD, null, 100);
+        CriticalPath path = CriticalPath.of("t", builder.build());
+        assertEquals(names(path), "e");
+        assertEquals(path.getDurationMillis(), 100);
+    }
+
+    @Test
+    public void longestChainWithoutDurations() {
+        DependencyGraph.Builder builder = new DependencyGraph.Builder();
+        int x = builder.addNode("x", NodeKind.METHOD, null);
+        int y = builder.addNode("y", NodeKind.METHOD, null);
+        int z = builder.addNode("z", NodeKind.METHOD, null);
+        builder.addNode("w", NodeKind.METHOD, null);
+        builder.addEdge(z, y, EdgeKind.DEPENDS_ON);
+        builder.addEdge(y, x, EdgeKind.DEPENDS_ON);
+        CriticalPath path = CriticalPath.of("t", builder.build());
+        assertEquals(names(path), "xyz");
+        assertEquals(path.getDurationMillis(), 0);
+        assertEquals(path.getMethods().get(0).getDurationMillis(), -1);
+    }
+
+    @Test
+    public void empty() {
+        CriticalPath path = CriticalPath.of("t", new DependencyGraph.Builder().build());
+        assertTrue(path.getMethods().isEmpty());
+        assertEquals(path.getNodes().length, 0);
+        assertNull(path.getTests());
+    }
+
+    @Test
+    public void highlight() {
+        DependencyGraph graph = builder(30).build();
+        CriticalPath path = CriticalPath.of("t", graph);
+        BitSet nodes = new BitSet();
+        BitSet edges = new BitSet();
+        path.highlight(graph, nodes, edges);
+
+        assertEquals(nodes.cardinality(), 3);
+        assertTrue(nodes.get(graph.getId("c")));
+        assertEquals(edges.cardinality(), 2);
+        assertTrue(edges.get(graph.getEdge(graph.getId("d"), graph.getId("c"))));
+        assertTrue(edges.get(graph.getEdge(graph.getId("c"), graph.getId("a"))));
+        assertFalse(edges.get(graph.getEdge(graph.getId("d"), graph.getId("a"))));
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+
+package net.mach6.graph;
+
+import static org.testng.Assert.*;
+
+import net.mach6.Result;
+import net.mach6.TestInfo;
+
+import org.testng.ITestContext;
+import org.testng.annotations.Test;
+
+public class DependencyGraphTest {
+
+    private static DependencyGraph diamond() {
+        DependencyGraph.Builder builder = new DependencyGraph.Builder();
+        int a = builder.addNode("a", NodeKind.METHOD, Result.PASSED);
+        int b = builder.addNode("b", NodeKind.METHOD, null);
+        int c = builder.addNode("c", NodeKind.GROUP, null);
+        int d = builder.addNode("d", NodeKind.METHOD, Result.FAILED);
+        builder.addEdge(a, b, EdgeKind.DEPENDS_ON);
+        builder.addEdge(a, c, EdgeKind.DEPENDS_ON);
+        builder.addEdge(b, d, EdgeKind.DEPENDS_ON);
+        builder.addEdge(c, d, EdgeKind.CONTAINS);
+        builder.addEdge(a, b, EdgeKind.DEPENDS_ON);
+        return builder.build();
+    }
+
+    @Test
+    public void interning() {
+        DependencyGraph.Builder builder = new DependencyGraph.Builder();
+        int first = builder.addNode("x", NodeKind.METHOD, null);
+        assertEquals(builder.addNode("x", NodeKind.GROUP, Result.SKIPPED), first);
+        assertEquals(builder.addNode("x", NodeKind.METHOD, null), first);
+        DependencyGraph graph = builder.build();
+
+        assertEquals(graph.getNodeCount(), 1);
+        assertEquals(graph.getKind(first), NodeKind.METHOD);
+        assertEquals(graph.getResult(first), Result.SKIPPED);
+    }
+
+    @Test
+    public void durations() {
+        DependencyGraph.Builder builder = new DependencyGraph.Builder();
+        int a = builder.addNode("a", NodeKind.METHOD, Result.PASSED, 5);
+        int b = builder.addNode("b", NodeKind.METHOD, null);
+        assertEquals(builder.addNode("b", NodeKind.METHOD, Result.PASSED, 7), b);
+        assertEquals(builder.addNode("b", NodeKind.METHOD, null, -1), b);
+        int g = builder.addNode("g", NodeKind.GROUP, null);
+        builder.addEdge(a, b, EdgeKind.DEPENDS_ON);
+        builder.addEdge(g, a, EdgeKind.CONTAINS);
+        DependencyGraph graph = builder.build();
+
+        assertEquals(graph.getDuration(a), 5);
+        assertEquals(graph.getDuration(b), 7, "an unknown duration keeps the known one");
+        assertEquals(graph.getDuration(g), -1);
+        assertEquals(graph.getEdgeDuration(graph.getOutStart(a)), 7);
+        assertEquals(graph.getEdgeDuration(graph.getOutStart(g)), -1);
+    }
+
+    @Test
+    public void forwardAndReverseEdges() {
+        DependencyGraph graph = diamond();
+        int a = graph.getId("a");
+        int b = graph.getId("b");
+        int d = graph.getId("d");
+
+        assertEquals(graph.getNodeCount(), 4);
+        assertEquals(graph.getEdgeCount(), 4, "duplicate edges are dropped");
+        assertEquals(graph.getOutDegree(a), 2);
+        assertEquals(graph.getTarget(graph.getOutStart(a)), b, "edges keep the order they were added in");
+        assertEquals(graph.getEdgeKind(graph.getOutStart(a)), EdgeKind.DEPENDS_ON);
+        assertEquals(graph.getInDegree(a), 0);
+        assertEquals(graph.getInDegree(d), 2);
+        for (int slot = graph.getInStart(d); slot < graph.getInEnd(d); slot++) {
+            assertEquals(graph.getTarget(graph.getInEdge(slot)), d);
+        }
+        assertEquals(graph.getInSource(graph.getInStart(d)), b);
+        assertEquals(graph.getEdgeKind(graph.getInEdge(graph.getInStart(d) + 1)), EdgeKind.CONTAINS);
+    }
+
+    @Test
+    public void lookups() {
+        DependencyGraph graph = diamond();
+        for (int v = 0; v < graph.getNodeCount(); v++) {
+            assertEquals(graph.getId(graph.getName(v)), v);
+        }
+        assertEquals(graph.getId("e"), -1);
+        assertEquals(graph.getResult(graph.getId("a")), Result.PASSED);
+        assertNull(graph.getResult(graph.getId("b")));
+        assertEquals(graph.getKind(graph.getId("c")), NodeKind.GROUP);
+    }
+
+    @Test
+    public void ofTestInfo(ITestContext ctx) {
+        TestInfo testInfo = new TestInfo(ctx, null);
+        DependencyGraph graph = DependencyGraph.of(testInfo);
+        int test = graph.getId(testInfo.getName());
+        assertEquals(test, 0);
+        assertEquals(graph.getKind(test), NodeKind.TEST);
+        assertEquals(graph.getResult(test), testInfo.getResult());
+        assertEquals(graph.getOutDegree(test), testInfo.getTestClasses().size() + testInfo.getTestGroups().size());
+        assertEquals(graph.getKind(graph.getTarget(graph.getOutStart(test))), NodeKind.CLASS);
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+
+package net.mach6.graph;
+
+import static org.testng.Assert.*;
+
+import java.util.Arrays;
+
+import net.mach6.Result;
+
+import org.testng.annotations.Test;
+
+public class ParallelismAdviceTest {
+
+    // a <- b <- c is one chain, d, e and f are independent
+    private static DependencyGraph graph(long chainDuration, long otherDuration) {
+        DependencyGraph.Builder builder = new DependencyGraph.Builder();
+        int a = builder.addNode("a", NodeKind.METHOD, Result.PASSED, chainDuration);
+        int b = builder.addNode("b", NodeKind.METHOD, Result.PASSED, chainDuration);
+        int c = builder.addNode("c", NodeKind.METHOD, Result.PASSED, chainDuration);
+        builder.addNode("d", NodeKind.METHOD, Result.PASSED, otherDuration);
+        builder.addNode("e", NodeKind.METHOD, Result.PASSED, otherDuration);
+        builder.addNode("f", NodeKind.METHOD, Result.PASSED, otherDuration);
+        builder.addEdge(b, a, EdgeKind.DEPENDS_ON);
+        builder.addEdge(c, b, EdgeKind.DEPENDS_ON);
+        builder.addEdge(c, a, EdgeKind.DEPENDS_ON);
+        return builder.build();
+    }
+
+    @Test
+    public void timed() {
+        ParallelismAdvice advice = ParallelismAdvice.of("t", "false", graph(100, 50));
+        assertTrue(advice.isTimed());
+        assertEquals(advice.getMethodCount(), 6);
+        assertEquals(advice.getSerializedMethodCount(), 2);
+        assertEquals(advice.getLevelWidths(), Arrays.asList(4, 1, 1));
+        assertEquals(advice.getMaxConcurrency(), 4);
+        assertEquals(advice.getWork(), 450);
+        assertEquals(advice.getSpan(), 300);
+        assertEquals(advice.getRecommendedThreadCount(), 2);
+        assertTrue(advice.getAdvice().contains("in parallel"));
+
+        assertEquals(advice.getLimitingEdges().size(), 2);
+        ParallelismAdvice.LimitingEdge first = advice.getLimitingEdges().get(0);
+        assertEquals(first.getChain(), 300);
+        assertEquals(advice.getLimitingEdges().get(1).getChain(), 300);
+        assertTrue(first.getMethod().equals("b") || first.getMethod().equals("c"));
+        assertEquals(advice.getLimitingEdges().get(1).getDependsOn().equals("a") ? "b" : "c",
+                advice.getLimitingEdges().get(1).getMethod(), "the transitive edge c -> a is not the slowest");
+    }
+
+    @Test
+    public void untimed() {
+        ParallelismAdvice advice = ParallelismAdvice.of("t", "methods", graph(-1, -1));
+        assertFalse(advice.isTimed());
+        assertEquals(advice.getWork(), 6);
+        assertEquals(advice.getSpan(), 3);
+        assertEquals(advice.getRecommendedThreadCount(), 2);
+        assertTrue(advice.getAdvice().contains("is enough"));
+    }
+
+    @Test
+    public void cappedByWidestLevel() {
+        ParallelismAdvice advice = ParallelismAdvice.of("t", "false", graph(1, 1000));
+        assertEquals(advice.getRecommendedThreadCount(), 4);
+
+        advice = ParallelismAdvice.of("t", "false", new DependencyGraph.Builder().build());
+        assertEquals(advice.getRecommendedThreadCount(), 1);
+        assertTrue(advice.getLimitingEdges().isEmpty());
+    }
+}
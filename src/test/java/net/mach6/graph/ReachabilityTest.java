@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+
+package net.mach6.graph;
+
+import static org.testng.Assert.*;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import net.mach6.Result;
+
+import org.testng.annotations.Test;
+
+public class ReachabilityTest {
+
+    // d depends on b and c, which both depend on a; e is on its own
+    private static DependencyGraph graph() {
+        DependencyGraph.Builder builder = new DependencyGraph.Builder();
+        int a = builder.addNode("a", NodeKind.METHOD, Result.PASSED);
+        int b = builder.addNode("b", NodeKind.METHOD, Result.FAILED);
+        int c = builder.addNode("c", NodeKind.METHOD, null);
+        int d = builder.addNode("d", NodeKind.METHOD, Result.SKIPPED);
+        builder.addNode("e", NodeKind.METHOD, null);
+        int g = builder.addNode("g", NodeKind.GROUP, null);
+        builder.addEdge(b, a, EdgeKind.DEPENDS_ON);
+        builder.addEdge(c, a, EdgeKind.DEPENDS_ON);
+        builder.addEdge(d, b, EdgeKind.DEPENDS_ON);
+        builder.addEdge(d, c, EdgeKind.DEPENDS_ON);
+        builder.addEdge(d, g, EdgeKind.DEPENDS_ON);
+        return builder.build();
+    }
+
+    private static BitSet nodes(DependencyGraph graph, String... names) {
+        BitSet nodes = new BitSet();
+        for (String name : names) {
+            nodes.set(graph.getId(name));
+        }
+        return nodes;
+    }
+
+    @Test
+    public void precomputedAndOnDemandAgree() {
+        DependencyGraph graph = graph();
+        Reachability precomputed = Reachability.of(graph);
+        Reachability onDemand = Reachability.onDemand(graph);
+        assertTrue(precomputed.isPrecomputed());
+        assertFalse(onDemand.isPrecomputed());
+
+        for (Reachability reachability : Arrays.asList(precomputed, onDemand)) {
+            assertEquals(reachability.getUpstream(graph.getId("d")), nodes(graph, "a", "b", "c"));
+            assertEquals(reachability.getUpstream(graph.getId("a")), new BitSet());
+            assertEquals(reachability.getDownstream(graph.getId("a")), nodes(graph, "b", "c", "d"));
+            assertEquals(reachability.getDownstream(graph.getId("e")), new BitSet());
+            assertEquals(reachability.getUpstream(graph.getId("g")), new BitSet());
+            assertTrue(reachability.dependsOn(graph.getId("d"), graph.getId("a")));
+            assertFalse(reachability.dependsOn(graph.getId("a"), graph.getId("d")));
+        }
+    }
+
+    @Test
+    public void copies() {
+        DependencyGraph graph = graph();
+        Reachability reachability = Reachability.of(graph);
+        reachability.getUpstream(graph.getId("d")).clear();
+        assertEquals(reachability.getUpstream(graph.getId("d")).cardinality(), 3);
+    }
+
+    @Test
+    public void cycleIsComputedOnDemand() {
+        DependencyGraph.Builder builder = new DependencyGraph.Builder();
+        int a = builder.addNode("a", NodeKind.METHOD, null);
+        int b = builder.addNode("b", NodeKind.METHOD, null);
+        builder.addEdge(a, b, EdgeKind.DEPENDS_ON);
+        builder.addEdge(b, a, EdgeKind.DEPENDS_ON);
+        Reachability reachability = Reachability.of(builder.build());
+        assertFalse(reachability.isPrecomputed());
+        assertTrue(reachability.dependsOn(a, a));
+    }
+
+    @Test
+    public void closure() {
+        Reachability reachability = Reachability.of(graph());
+        assertNull(reachability.getClosure("x"));
+        assertNull(reachability.getClosure("g"));
+
+        Reachability.Closure closure = reachability.getClosure("b");
+        assertEquals(closure.getMethod(), "b");
+        assertEquals(closure.getUpstream(), Arrays.asList("a"));
+        assertEquals(closure.getDownstream(), Arrays.asList("d"));
+        String dot = closure.toDot(false);
+        assertTrue(dot.contains("\"b\"[style=filled,color=red,penwidth=3];"));
+        assertTrue(dot.contains("\"d\" -> \"b\";"));
+        assertFalse(dot.contains("\"c\""), "c is neither up nor down stream of b");
+    }
+}
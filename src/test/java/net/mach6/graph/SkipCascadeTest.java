@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+
+package net.mach6.graph;
+
+import static org.testng.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import net.mach6.Result;
+
+import org.testng.annotations.Test;
+
+public class SkipCascadeTest {
+
+    // a and x fail; b, c and d are skipped behind a (d through c, transitively), d also behind x; s threw a
+    // SkipException and t is skipped behind it; p passed
+    private static DependencyGraph graph() {
+        DependencyGraph.Builder builder = new DependencyGraph.Builder();
+        int a = builder.addNode("a", NodeKind.METHOD, Result.FAILED);
+        int b = builder.addNode("b", NodeKind.METHOD, Result.SKIPPED);
+        int c = builder.addNode("c", NodeKind.METHOD, Result.SKIPPED);
+        int d = builder.addNode("d", NodeKind.METHOD, Result.SKIPPED);
+        int x = builder.addNode("x", NodeKind.METHOD, Result.FAILED);
+        int s = builder.addNode("s", NodeKind.METHOD, Result.SKIPPED);
+        int t = builder.addNode("t", NodeKind.METHOD, Result.SKIPPED);
+        int p = builder.addNode("p", NodeKind.METHOD, Result.PASSED);
+        int g = builder.addNode("g", NodeKind.GROUP, null);
+        builder.addEdge(b, a, EdgeKind.DEPENDS_ON);
+        builder.addEdge(c, a, EdgeKind.DEPENDS_ON);
+        builder.addEdge(d, a, EdgeKind.DEPENDS_ON);
+        builder.addEdge(d, c, EdgeKind.DEPENDS_ON);
+        builder.addEdge(d, x, EdgeKind.DEPENDS_ON);
+        builder.addEdge(d, g, EdgeKind.DEPENDS_ON);
+        builder.addEdge(t, s, EdgeKind.DEPENDS_ON);
+        builder.addEdge(s, p, EdgeKind.DEPENDS_ON);
+        return builder.build();
+    }
+
+    @Test
+    public void blastRadius() {
+        SkipCascade cascade = SkipCascade.of("suite", graph());
+        assertEquals(cascade.getName(), "suite");
+        assertEquals(cascade.getSkippedCount(), 5);
+        assertEquals(cascade.getAttributedCount(), 3);
+        assertEquals(cascade.getUnattributed(), Arrays.asList("s", "t"));
+
+        assertEquals(cascade.getFailures().size(), 2);
+        SkipCascade.Impact first = cascade.getFailures().get(0);
+        assertEquals(first.getMethod(), "a");
+        assertEquals(first.getSkippedCount(), 3);
+        assertEquals(first.getSharedCount(), 1);
+        assertEquals(first.getDepth(), 2);
+        SkipCascade.Impact second = cascade.getFailures().get(1);
+        assertEquals(second.getMethod(), "x");
+        assertEquals(second.getSkippedCount(), 0);
+        assertEquals(second.getDepth(), 0);
+    }
+
+    @Test
+    public void shared() {
+        // p and q fail; q1 is skipped behind q; s1, s2 and s3 are behind both, but attributed to q through q1, and r is
+        // behind s1 only; p1 and p2 are only behind p
+        DependencyGraph.Builder builder = new DependencyGraph.Builder();
+        int p = builder.addNode("p", NodeKind.METHOD, Result.FAILED);
+        int q = builder.addNode("q", NodeKind.METHOD, Result.FAILED);
+        int q1 = builder.addNode("q1", NodeKind.METHOD, Result.SKIPPED);
+        int r = builder.addNode("r", NodeKind.METHOD, Result.SKIPPED);
+        builder.addEdge(q1, q, EdgeKind.DEPENDS_ON);
+        for (String name : Arrays.asList("s1", "s2", "s3")) {
+            int s = builder.addNode(name, NodeKind.METHOD, Result.SKIPPED);
+            builder.addEdge(s, p, EdgeKind.DEPENDS_ON);
+            builder.addEdge(s, q, EdgeKind.DEPENDS_ON);
+            builder.addEdge(s, q1, EdgeKind.DEPENDS_ON);
+            if ("s1".equals(name)) {
+                builder.addEdge(r, s, EdgeKind.DEPENDS_ON);
+            }
+        }
+        for (String name : Arrays.asList("p1", "p2")) {
+            builder.addEdge(builder.addNode(name, NodeKind.METHOD, Result.SKIPPED), p, EdgeKind.DEPENDS_ON);
+        }
+        SkipCascade cascade = SkipCascade.of("suite", builder.build());
+        assertEquals(cascade.getAttributedCount(), 7);
+
+        SkipCascade.Impact first = cascade.getFailures().get(0);
+        assertEquals(first.getMethod(), "q");
+        assertEquals(first.getSkippedCount(), 5);
+        assertEquals(first.getSharedCount(), 4, "r is behind both failures through s1");
+        SkipCascade.Impact second = cascade.getFailures().get(1);
+        assertEquals(second.getMethod(), "p");
+        assertEquals(second.getSkippedCount(), 2);
+        assertEquals(second.getSharedCount(), 0);
+    }
+
+    @Test
+    public void tree() {
+        String dot = SkipCascade.of("suite", graph()).toDot(false);
+        assertTrue(dot.contains("\"a\"[style=filled,color=red,penwidth=3];"));
+        assertTrue(dot.contains("\"d\" -> \"c\";"));
+        assertTrue(dot.contains("\"c\" -> \"a\";"));
+        assertFalse(dot.contains("\"d\" -> \"a\""), "only the nearest dependency is the parent");
+        assertFalse(dot.contains("\"s\""), "s is not behind a failure");
+        assertFalse(dot.contains("\"p\""));
+    }
+
+    @Test
+    public void nothingFailed() {
+        DependencyGraph.Builder builder = new DependencyGraph.Builder();
+        builder.addNode("a", NodeKind.METHOD, Result.PASSED);
+        SkipCascade cascade = SkipCascade.of("suite", builder.build());
+        assertEquals(cascade.getFailures(), Collections.emptyList());
+        assertEquals(cascade.getSkippedCount(), 0);
+    }
+
+    @Test
+    public void longChain() {
+        int count = 100000;
+        DependencyGraph.Builder builder = new DependencyGraph.Builder();
+        int previous = builder.addNode("m0", NodeKind.METHOD, Result.FAILED);
+        for (int i = 1; i < count; i++) {
+            int next = builder.addNode("m" + i, NodeKind.METHOD, Result.SKIPPED);
+            builder.addEdge(next, previous, EdgeKind.DEPENDS_ON);
+            previous = next;
+        }
+        SkipCascade cascade = SkipCascade.of("suite", builder.build());
+        assertEquals(cascade.getFailures().get(0).getSkippedCount(), count - 1);
+        assertEquals(cascade.getFailures().get(0).getDepth(), count - 1);
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+
+package net.mach6.graph;
+
+import static org.testng.Assert.*;
+
+import java.util.Arrays;
+
+import net.mach6.Result;
+
+import org.testng.annotations.Test;
+
+public class StronglyConnectedComponentsTest {
+
+    @Test
+    public void cycles() {
+        DependencyGraph.Builder builder = new DependencyGraph.Builder();
+        int a = builder.addNode("a", NodeKind.METHOD, Result.FAILED);
+        int b = builder.addNode("b", NodeKind.METHOD, null);
+        int c = builder.addNode("c", NodeKind.METHOD, null);
+        int d = builder.addNode("d", NodeKind.METHOD, null);
+        int e = builder.addNode("e", NodeKind.METHOD, null);
+        int g = builder.addNode("g", NodeKind.GROUP, null);
+        builder.addEdge(a, b, EdgeKind.DEPENDS_ON);
+        builder.addEdge(b, c, EdgeKind.DEPENDS_ON);
+        builder.addEdge(c, a, EdgeKind.DEPENDS_ON);
+        builder.addEdge(d, a, EdgeKind.DEPENDS_ON);
+        builder.addEdge(e, e, EdgeKind.DEPENDS_ON);
+        builder.addEdge(d, g, EdgeKind.DEPENDS_ON);
+        builder.addEdge(g, d, EdgeKind.CONTAINS);
+        StronglyConnectedComponents components = StronglyConnectedComponents.of("s", builder.build());
+
+        assertEquals(components.getComponentCount(), 3);
+        assertEquals(components.getComponent(a), components.getComponent(c));
+        assertNotEquals(components.getComponent(a), components.getComponent(d));
+        assertEquals(components.getComponent(g), -1);
+        assertTrue(components.hasCycles());
+        assertEquals(components.getCycles().size(), 2);
+
+        StronglyConnectedComponents.Cycle cycle = components.getCycles().get(0);
+        assertEquals(cycle.getName(), "s");
+        assertEquals(cycle.getMethods(), Arrays.asList("a", "b", "c"));
+        assertEquals(cycle.getDependencies().size(), 3);
+        String dot = cycle.toDot(false);
+        assertTrue(dot.startsWith("digraph g {\n"));
+        assertTrue(dot.contains("\"a\"[style=filled,color=red,penwidth=3];"));
+        assertTrue(dot.contains("\"c\" -> \"a\"[color=blue,penwidth=3];"));
+        assertFalse(dot.contains("\"d\""));
+        assertEquals(components.getCycles().get(1).getMethods(), Arrays.asList("e"), "a method which depends on itself");
+    }
+
+    @Test
+    public void noCycles() {
+        DependencyGraph.Builder builder = new DependencyGraph.Builder();
+        int a = builder.addNode("a", NodeKind.METHOD, null);
+        int b = builder.addNode("b", NodeKind.METHOD, null);
+        builder.addEdge(b, a, EdgeKind.DEPENDS_ON);
+        StronglyConnectedComponents components = StronglyConnectedComponents.of("s", builder.build());
+        assertFalse(components.hasCycles());
+        assertEquals(components.getComponentCount(), 2);
+    }
+
+    @Test
+    public void longChain() {
+        // deep enough to overflow the thread stack if the search was recursive
+        int length = 200000;
+        DependencyGraph.Builder builder = new DependencyGraph.Builder();
+        int previous = builder.addNode("m0", NodeKind.METHOD, null);
+        int first = previous;
+        for (int i = 1; i < length; i++) {
+            int next = builder.addNode("m" + i, NodeKind.METHOD, null);
+            builder.addEdge(previous, next, EdgeKind.DEPENDS_ON);
+            previous = next;
+        }
+        builder.addEdge(previous, first, EdgeKind.DEPENDS_ON);
+        StronglyConnectedComponents components = StronglyConnectedComponents.of("s", builder.build());
+        assertEquals(components.getComponentCount(), 1);
+        assertEquals(components.getCycles().get(0).getMethods().size(), length);
+    }
+}
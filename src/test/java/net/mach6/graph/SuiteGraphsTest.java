@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+
+package net.mach6.graph;
+
+import static org.testng.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import net.mach6.TestClassInfo;
+import net.mach6.TestInfo;
+import net.mach6.TestMethodInfo;
+import net.mach6.TestSuiteInfo;
+
+import org.testng.annotations.Test;
+
+public class SuiteGraphsTest {
+
+    private static TestInfo test(String name, String className) {
+        List<String> none = Collections.emptyList();
+        Set<TestMethodInfo> methods = new TreeSet<>();
+        methods.add(new TestMethodInfo(className + ".first", none, none, none, none, none));
+        methods.add(new TestMethodInfo(className + ".second", none, none, none, none,
+                Arrays.asList(className + ".first")));
+        return new TestInfo(name, false, null, none,
+                new TreeSet<>(Collections.singleton(new TestClassInfo(className, methods))));
+    }
+
+    @Test
+    public void graphs() {
+        TestInfo first = test("first", "a.A");
+        TestInfo second = test("second", "a.B");
+        TestSuiteInfo suite = new TestSuiteInfo("suite", null, false, Collections.<String> emptySet(),
+                new TreeSet<>(Arrays.asList(first, second)));
+        SuiteGraphs graphs = SuiteGraphs.of(suite);
+
+        assertSame(graphs.getSuite(), suite);
+        assertSame(graphs.getOrder().getGraph(), graphs.getGraph());
+        assertEquals(graphs.getGraph().getNodeCount(), DependencyGraph.of(suite).getNodeCount());
+        assertEquals(graphs.getTests(), suite.getTests());
+        assertEquals(graphs.getOrder(first).getMethodCount(), 2);
+        assertNotEquals(graphs.getGraph(first).getId("a.A.second"), -1);
+        assertEquals(graphs.getGraph(first).getId("a.B.second"), -1);
+
+        // the analyses give the same result from the shared graphs as from the suite
+        CriticalPath path = CriticalPath.of(graphs);
+        assertEquals(path.getMethods().size(), CriticalPath.of(suite).getMethods().size());
+        assertEquals(ParallelismAdvice.of(graphs).getMethodCount(), 4);
+    }
+}
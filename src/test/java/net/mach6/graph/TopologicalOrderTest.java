@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+
+package net.mach6.graph;
+
+import static org.testng.Assert.*;
+
+import org.testng.annotations.Test;
+
+public class TopologicalOrderTest {
+
+    @Test
+    public void levels() {
+        DependencyGraph.Builder builder = new DependencyGraph.Builder();
+        int a = builder.addNode("a", NodeKind.METHOD, null);
+        int b = builder.addNode("b", NodeKind.METHOD, null);
+        int c = builder.addNode("c", NodeKind.METHOD, null);
+        int d = builder.addNode("d", NodeKind.METHOD, null);
+        int g = builder.addNode("g", NodeKind.GROUP, null);
+        builder.addEdge(c, b, EdgeKind.DEPENDS_ON);
+        builder.addEdge(c, a, EdgeKind.DEPENDS_ON);
+        builder.addEdge(b, a, EdgeKind.DEPENDS_ON);
+        builder.addEdge(d, g, EdgeKind.DEPENDS_ON);
+        builder.addEdge(g, d, EdgeKind.CONTAINS);
+        TopologicalOrder order = TopologicalOrder.of(builder.build());
+
+        assertTrue(order.isComplete());
+        assertEquals(order.size(), 4);
+        assertEquals(order.getLevel(a), 0);
+        assertEquals(order.getLevel(b), 1);
+        assertEquals(order.getLevel(c), 2);
+        assertEquals(order.getLevel(d), 0, "dependencies on groups are not method dependencies");
+        assertEquals(order.getLevel(g), -1);
+        assertEquals(order.getLevelWidths(), new int[] { 2, 1, 1 });
+        int[] position = new int[4];
+        for (int i = 0; i < order.size(); i++) {
+            position[order.get(i)] = i;
+        }
+        assertTrue(position[a] < position[b] && position[b] < position[c]);
+    }
+
+    @Test
+    public void cycle() {
+        DependencyGraph.Builder builder = new DependencyGraph.Builder();
+        int a = builder.addNode("a", NodeKind.METHOD, null);
+        int b = builder.addNode("b", NodeKind.METHOD, null);
+        int c = builder.addNode("c", NodeKind.METHOD, null);
+        int d = builder.addNode("d", NodeKind.METHOD, null);
+        builder.addEdge(a, b, EdgeKind.DEPENDS_ON);
+        builder.addEdge(b, a, EdgeKind.DEPENDS_ON);
+        builder.addEdge(c, b, EdgeKind.DEPENDS_ON);
+        TopologicalOrder order = TopologicalOrder.of(builder.build());
+
+        assertFalse(order.isComplete());
+        assertEquals(order.getMethodCount(), 4);
+        assertEquals(order.size(), 1);
+        assertEquals(order.get(0), d);
+        assertEquals(order.getLevel(c), -1, "behind the cycle");
+    }
+}
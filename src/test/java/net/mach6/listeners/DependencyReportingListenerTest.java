@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+
+package net.mach6.listeners;
+
+import static org.testng.Assert.*;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import net.mach6.TestInfo;
+
+import org.testng.IMethodInstance;
+import org.testng.ITestContext;
+import org.testng.ITestListener;
+import org.testng.ITestResult;
+import org.testng.Reporter;
+import org.testng.TestListenerAdapter;
+import org.testng.TestNG;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeSuite;
+import org.testng.annotations.BeforeTest;
+import org.testng.annotations.Test;
+import org.testng.internal.MethodInstance;
+
+public class DependencyReportingListenerTest {
+
+    @Test
+    public void intercept(ITestContext ctx) {
+        List<IMethodInstance> methods = new ArrayList<>();
+        methods.add(new MethodInstance(Reporter.getCurrentTestResult().getMethod()));
+
+        DependencyReportingListener listener = new DependencyReportingListener(new ReporterConfiguration(""));
+        assertSame(listener.intercept(methods, ctx), methods);
+
+        listener = new DependencyReportingListener(new ReporterConfiguration("prescan:true"));
+        assertTrue(listener.intercept(methods, ctx).isEmpty());
+        assertEquals(methods.size(), 1);
+    }
+
+    @Test
+    public void prescanRunsNoConfigurationMethods() {
+        TestListenerAdapter results = new TestListenerAdapter();
+        TestNG testNG = new TestNG();
+        testNG.setUseDefaultListeners(false);
+        testNG.setVerbose(0);
+        testNG.setOutputDirectory("target/dependency-reporting-listener-test");
+        testNG.setTestClasses(new Class<?>[] { Configured.class });
+        testNG.addListener((Object) results);
+        Configured.ran.clear();
+        // the nested run loads its own listener as a service, which reads its configuration from the property
+        String previous = System.setProperty(DependencyReportingListener.DASH_OPTION,
+                "prescan:true,output:json,checkdir:target/dependency-reporting-listener-test");
+        try {
+            testNG.run();
+        } finally {
+            if (previous == null) {
+                System.clearProperty(DependencyReportingListener.DASH_OPTION);
+            } else {
+                System.setProperty(DependencyReportingListener.DASH_OPTION, previous);
+            }
+        }
+
+        assertTrue(Configured.ran.isEmpty(), "ran " + Configured.ran);
+        assertTrue(results.getConfigurationSkips().isEmpty());
+        assertTrue(results.getConfigurationFailures().isEmpty());
+        assertTrue(results.getPassedTests().isEmpty());
+        assertTrue(results.getSkippedTests().isEmpty());
+    }
+
+    @Test
+    public void snapshotReleasesTestInstances() throws Exception {
+        final DependencyReportingListener listener = new DependencyReportingListener(
+                new ReporterConfiguration("snapshot:true,output:json"));
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                TestNG testNG = new TestNG();
+                testNG.setUseDefaultListeners(false);
+                testNG.setVerbose(0);
+                testNG.setOutputDirectory("target/dependency-reporting-listener-test");
+                testNG.setTestClasses(new Class<?>[] { Instances.class });
+                // only the test callbacks, the report is not generated while the run still holds its instances
+                testNG.addListener((Object) new TestCallbacks(listener));
+                testNG.run();
+            }
+        }, Instances.NESTED_RUN);
+        thread.start();
+        thread.join();
+        thread = null;
+        assertTrue(Instances.created > 0);
+
+        for (int i = 0; i < 50 && Instances.last.get() != null; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertNull(Instances.last.get(), "the test instance is still referenced after its test finished");
+
+        Set<TestInfo> tests = listener.takeSnapshot("Command line suite");
+        assertEquals(tests.size(), 1);
+        assertTrue(tests.iterator().next().toJSON().contains("second"));
+        assertNull(listener.takeSnapshot("Command line suite"));
+    }
+
+    /**
+     * Forwards the test callbacks of a nested run to the listener, but not the reporter callback
+     */
+    public static class TestCallbacks implements ITestListener {
+        private final DependencyReportingListener listener;
+
+        public TestCallbacks(DependencyReportingListener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void onTestStart(ITestResult result) {
+            listener.onTestStart(result);
+        }
+
+        @Override
+        public void onTestSuccess(ITestResult result) {
+            listener.onTestSuccess(result);
+        }
+
+        @Override
+        public void onTestFailure(ITestResult result) {
+            listener.onTestFailure(result);
+        }
+
+        @Override
+        public void onTestSkipped(ITestResult result) {
+            listener.onTestSkipped(result);
+        }
+
+        @Override
+        public void onTestFailedButWithinSuccessPercentage(ITestResult result) {
+            listener.onTestFailedButWithinSuccessPercentage(result);
+        }
+
+        @Override
+        public void onStart(ITestContext context) {
+            listener.onStart(context);
+        }
+
+        @Override
+        public void onFinish(ITestContext context) {
+            listener.onFinish(context);
+        }
+    }
+
+    /**
+     * The tests of the nested run, which remember their last instance of that run weakly
+     */
+    public static class Instances {
+        static final String NESTED_RUN = "snapshot-nested-run";
+        static WeakReference<Instances> last = new WeakReference<>(null);
+        static volatile int created;
+
+        public Instances() {
+            // surefire also runs these tests and holds on to its own instance
+            if (NESTED_RUN.equals(Thread.currentThread().getName())) {
+                last = new WeakReference<>(this);
+                created++;
+            }
+        }
+
+        @Test
+        public void first() {
+        }
+
+        @Test(dependsOnMethods = "first")
+        public void second() {
+        }
+    }
+
+    /**
+     * The tests of the nested prescan run, which remember which of their methods ran
+     */
+    public static class Configured {
+        static final List<String> ran = new ArrayList<>();
+
+        @BeforeSuite
+        public void beforeSuite() {
+            ran.add("beforeSuite");
+        }
+
+        @BeforeTest
+        public void beforeTest() {
+            ran.add("beforeTest");
+        }
+
+        @BeforeClass
+        public void beforeClass() {
+            ran.add("beforeClass");
+        }
+
+        @Test
+        public void test() {
+            ran.add("test");
+        }
+    }
+}
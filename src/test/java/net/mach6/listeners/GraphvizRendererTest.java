@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+
+package net.mach6.listeners;
+
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.SkipException;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+public class GraphvizRendererTest {
+    private File dir;
+    private List<String> dotFiles;
+
+    @BeforeClass
+    public void setUp() throws IOException {
+        if (!new File("/bin/sh").canExecute()) {
+            throw new SkipException("requires /bin/sh");
+        }
+        dir = new File(FileUtils.getTempDirectory(), "GraphvizRendererTest" + System.nanoTime());
+        dotFiles = Arrays.asList(writeFile("a.dot", "digraph g {\n}\n"), writeFile("b.dot", "digraph g {\n}\n"));
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown() {
+        FileUtils.deleteQuietly(dir);
+    }
+
+    private String writeFile(String name, String content) throws IOException {
+        File file = new File(dir, name);
+        FileUtils.writeStringToFile(file, content, StandardCharsets.UTF_8.name());
+        return file.getAbsolutePath();
+    }
+
+    private String script(String name, String body) throws IOException {
+        String script = writeFile(name, "#!/bin/sh\n" + body + "\n");
+        assertTrue(new File(script).setExecutable(true));
+        return script;
+    }
+
+    @Test
+    public void rendered() throws IOException {
+        // args: <dot file> -Grankdir=LR -Tpng -o <png file>
+        String dot = script("ok.sh", "echo noise; echo more noise >&2; touch \"$5\"");
+        GraphvizRenderer.Summary summary = new GraphvizRenderer(dot, 10, 2, true).render(dotFiles);
+        assertEquals(summary.getRendered(), 2);
+        assertTrue(summary.getFailures().isEmpty());
+        assertTrue(new File(dir, "a.png").exists());
+        assertTrue(new File(dir, "b.png").exists());
+    }
+
+    @Test
+    public void failed() throws IOException {
+        String dot = script("fail.sh", "echo syntax error >&2; exit 3");
+        GraphvizRenderer.Summary summary = new GraphvizRenderer(dot, 10, 2, true).render(dotFiles);
+        assertEquals(summary.getRendered(), 0);
+        assertEquals(summary.getFailures().size(), 2);
+        assertTrue(summary.getFailures().get(0).contains("exit code 3: syntax error"));
+    }
+
+    @Test
+    public void timedOut() throws IOException {
+        String dot = script("slow.sh", "exec sleep 30");
+        long start = System.currentTimeMillis();
+        GraphvizRenderer.Summary summary = new GraphvizRenderer(dot, 1, 2, true).render(dotFiles);
+        assertTrue(System.currentTimeMillis() - start < 20000);
+        assertEquals(summary.getFailures().size(), 2);
+        assertTrue(summary.getFailures().get(0).contains("timed out"));
+    }
+
+    @Test
+    public void missingExecutable() {
+        GraphvizRenderer.Summary summary = new GraphvizRenderer(new File(dir, "nodot").getAbsolutePath(), 10, 2, true)
+                .render(dotFiles);
+        assertEquals(summary.getRendered(), 0);
+        assertEquals(summary.getSkips().size(), 2);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+
+package net.mach6.listeners;
+
+import static org.testng.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.mach6.Result;
+import net.mach6.TestClassInfo;
+import net.mach6.TestInfo;
+import net.mach6.TestMethodInfo;
+import net.mach6.TestSuiteInfo;
+
+import org.testng.IMethodInstance;
+import org.testng.ITestContext;
+import org.testng.ITestNGMethod;
+import org.testng.ITestResult;
+import org.testng.Reporter;
+import org.testng.annotations.Test;
+import org.testng.internal.MethodInstance;
+
+public class LiveCollectorTest {
+
+    @Test
+    public void notCollected(ITestContext ctx) {
+        assertNull(new LiveCollector().toSuiteInfo(ctx.getSuite().getName()));
+    }
+
+    @Test
+    public void worstResultWins(ITestContext ctx) {
+        LiveCollector collector = new LiveCollector();
+        ITestResult result = Reporter.getCurrentTestResult();
+        collector.onStart(ctx);
+        collector.onResult(result, Result.SKIPPED);
+        collector.onResult(result, Result.FAILED);
+        collector.onResult(result, Result.PASSED);
+
+        TestSuiteInfo suite = collector.toSuiteInfo(ctx.getSuite().getName());
+        assertNull(suite.getISuite());
+        assertEquals(suite.getTests().size(), 1);
+        TestInfo test = suite.getTests().iterator().next();
+        assertEquals(test.getName(), ctx.getName());
+        assertEquals(test.getTestClasses().size(), 1);
+        TestClassInfo testClass = test.getTestClasses().iterator().next();
+        assertEquals(testClass.getName(), getClass().getName());
+        assertEquals(testClass.getTestMethods().size(), 1);
+        TestMethodInfo method = testClass.getTestMethods().iterator().next();
+        assertEquals(method.getMethodName(), getClass().getName() + ".worstResultWins");
+        assertEquals(method.getResult(), Result.FAILED);
+        assertNull(method.getTestNGMethod());
+        assertTrue(suite.hasFailures());
+        assertFalse(suite.hasPassed());
+    }
+
+    @Test(dependsOnMethods = "notCollected")
+    public void dependencies(ITestContext ctx) {
+        LiveCollector collector = new LiveCollector();
+        collector.onResult(Reporter.getCurrentTestResult(), Result.PASSED);
+
+        TestSuiteInfo suite = collector.toSuiteInfo(ctx.getSuite().getName());
+        TestMethodInfo method = suite.getTests().iterator().next().getTestClasses().iterator().next().getTestMethods()
+                .iterator().next();
+        assertEquals(method.getResult(), Result.PASSED);
+        assertEquals(method.getDependentMethods().size(), 1);
+        assertEquals(method.getDependentMethods().get(0), getClass().getName() + ".notCollected");
+        assertTrue(suite.hasPassed());
+    }
+
+    @Test
+    public void intercepted(ITestContext ctx) {
+        List<IMethodInstance> methods = new ArrayList<>();
+        for (ITestNGMethod method : ctx.getAllTestMethods()) {
+            methods.add(new MethodInstance(method));
+        }
+        LiveCollector collector = new LiveCollector();
+        collector.onIntercept(ctx, methods);
+
+        TestSuiteInfo suite = collector.toSuiteInfo(ctx.getSuite().getName());
+        int count = 0;
+        for (TestClassInfo testClass : suite.getTests().iterator().next().getTestClasses()) {
+            for (TestMethodInfo method : testClass.getTestMethods()) {
+                assertNull(method.getResult());
+                count++;
+            }
+        }
+        assertEquals(count, methods.size());
+        assertFalse(suite.hasPassed());
+        assertFalse(suite.hasSkips());
+        assertFalse(suite.hasFailures());
+    }
+}
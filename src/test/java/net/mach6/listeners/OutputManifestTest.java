@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+
+package net.mach6.listeners;
+
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class OutputManifestTest {
+    private File dir;
+
+    @BeforeMethod
+    public void setUp() {
+        dir = new File(FileUtils.getTempDirectory(), "OutputManifestTest" + System.nanoTime());
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() {
+        FileUtils.deleteQuietly(dir);
+    }
+
+    private File write(OutputManifest manifest, String name, String content) throws IOException {
+        File file = new File(dir, name);
+        try (OutputStream out = manifest.open(file)) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return file;
+    }
+
+    private static String read(File file) throws IOException {
+        return FileUtils.readFileToString(file, StandardCharsets.UTF_8.name());
+    }
+
+    @Test
+    public void firstRun() throws IOException {
+        OutputManifest manifest = new OutputManifest(dir);
+        assertFalse(manifest.isLoaded());
+        File file = write(manifest, "tests/a.json", "a");
+        assertEquals(read(file), "a");
+        assertFalse(manifest.isUnchanged(file.getPath()));
+        manifest.commit();
+
+        assertTrue(new File(dir, OutputManifest.FILE_NAME).isFile());
+        assertEquals(dir.list().length, 2, "temporary files are removed");
+        assertEquals(new File(dir, "tests").list().length, 1, "temporary files are removed");
+    }
+
+    @Test
+    public void unchangedFilesAreNotRewritten() throws IOException {
+        OutputManifest first = new OutputManifest(dir);
+        File same = write(first, "same.dot", "digraph g {}");
+        File changed = write(first, "changed.dot", "digraph g {}");
+        first.commit();
+        assertTrue(same.setLastModified(1000L));
+
+        OutputManifest second = new OutputManifest(dir);
+        assertTrue(second.isLoaded());
+        write(second, "same.dot", "digraph g {}");
+        write(second, "changed.dot", "digraph h {}");
+        second.commit();
+
+        assertTrue(second.isUnchanged(same.getPath()));
+        assertFalse(second.isUnchanged(changed.getPath()));
+        assertEquals(second.getUnchangedCount(), 1);
+        assertEquals(same.lastModified(), 1000L);
+        assertEquals(read(changed), "digraph h {}");
+    }
+
+    @Test
+    public void missingFilesAreRestored() throws IOException {
+        OutputManifest first = new OutputManifest(dir);
+        File file = write(first, "a.dot", "digraph g {}");
+        first.commit();
+        assertTrue(file.delete());
+
+        OutputManifest second = new OutputManifest(dir);
+        write(second, "a.dot", "digraph g {}");
+        assertTrue(second.isUnchanged(file.getPath()));
+        assertEquals(read(file), "digraph g {}");
+    }
+
+    @Test
+    public void staleFilesAreRemoved() throws IOException {
+        OutputManifest first = new OutputManifest(dir);
+        write(first, "kept.json", "1");
+        File stale = write(first, "methods/gone.dot", "digraph g {}");
+        File stalePng = new File(dir, "methods/gone.png");
+        FileUtils.writeStringToFile(stalePng, "png", StandardCharsets.UTF_8.name());
+        first.commit();
+
+        OutputManifest second = new OutputManifest(dir);
+        File kept = write(second, "kept.json", "1");
+        second.commit();
+
+        assertTrue(kept.exists());
+        assertFalse(stale.exists());
+        assertFalse(stalePng.exists());
+
+        // the file is gone from the manifest as well
+        OutputManifest third = new OutputManifest(dir);
+        write(third, "methods/gone.dot", "digraph g {}");
+        assertFalse(third.isUnchanged(stale.getPath()));
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+
+package net.mach6.listeners;
+
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+import net.mach6.TestClassInfo;
+import net.mach6.TestInfo;
+import net.mach6.TestMethodInfo;
+import net.mach6.TestSuiteInfo;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.Test;
+
+public class ReportGeneratorTest {
+
+    private static TestClassInfo sharedClass() {
+        Set<TestMethodInfo> methods = new TreeSet<>();
+        for (int i = 0; i < 50; i++) {
+            methods.add(new TestMethodInfo("a.Shared.m" + i, Collections.<String> emptyList(),
+                    Collections.<String> emptyList(), Collections.<String> emptyList(),
+                    Collections.<String> emptyList(), (i == 0) ? Collections.<String> emptyList()
+                            : Arrays.asList("a.Shared.m" + (i - 1))));
+        }
+        return new TestClassInfo("a.Shared", methods);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void constructorNull() {
+        new ReportGenerator(null);
+    }
+
+    @Test
+    public void claim() {
+        OutputRun run = new OutputRun(1);
+        try {
+            assertTrue(run.claim("target/x/classes/a.dot"));
+            assertFalse(run.claim("target/x/classes/a.dot"));
+            assertTrue(run.claim("target/x/classes/b.dot"));
+        } finally {
+            run.await();
+        }
+    }
+
+    @Test
+    public void sameClassInTwoTests() throws IOException {
+        TestClassInfo shared = sharedClass();
+        Set<TestInfo> tests = new HashSet<>();
+        for (String name : Arrays.asList("first", "second")) {
+            tests.add(new TestInfo(name, false, null, Collections.<String> emptyList(),
+                    new TreeSet<>(Collections.singleton(shared))));
+        }
+        Set<TestSuiteInfo> suites = Collections.singleton(new TestSuiteInfo("suite", null, false,
+                Collections.<String> emptySet(), tests));
+
+        File directory = new File("target/report-generator-test");
+        FileUtils.deleteQuietly(directory);
+        ReportGenerator generator = new ReportGenerator(new ReporterConfiguration("output:json,threads:8"));
+        // the files were written by two tasks at once before, which could interleave their content
+        for (int i = 0; i < 10; i++) {
+            generator.generate(suites, directory.getPath());
+            File classFile = new File(directory, "DependencyReporter/classes/a.Shared.json");
+            assertEquals(new String(Files.readAllBytes(classFile.toPath()), StandardCharsets.UTF_8), shared.toJSON());
+        }
+    }
+
+    @Test
+    public void analysesOnlyOnRequest() {
+        Set<TestInfo> tests = Collections.singleton(new TestInfo("test", false, null,
+                Collections.<String> emptyList(), new TreeSet<>(Collections.singleton(sharedClass()))));
+        Set<TestSuiteInfo> suites = Collections.singleton(new TestSuiteInfo("suite", null, false,
+                Collections.<String> emptySet(), tests));
+        File directory = new File("target/report-generator-test");
+        File reporter = new File(directory, "DependencyReporter");
+
+        FileUtils.deleteQuietly(directory);
+        new ReportGenerator(new ReporterConfiguration("output:json")).generate(suites, directory.getPath());
+        assertTrue(new File(reporter, "report.json").isFile());
+        assertFalse(new File(reporter, "critical-path.json").exists());
+        assertFalse(new File(reporter, "parallelism.json").exists());
+        assertFalse(new File(reporter, "skip-cascade.json").exists());
+
+        FileUtils.deleteQuietly(directory);
+        new ReportGenerator(new ReporterConfiguration("output:critical")).generate(suites, directory.getPath());
+        assertTrue(new File(reporter, "critical-path.json").isFile());
+        assertTrue(new File(reporter, "report.dot").isFile());
+        assertFalse(new File(reporter, "report.json").exists());
+
+        FileUtils.deleteQuietly(directory);
+        new ReportGenerator(new ReporterConfiguration("output:parallelism")).generate(suites, directory.getPath());
+        assertTrue(new File(reporter, "parallelism.json").isFile());
+        assertFalse(new File(reporter, "critical-path.json").exists());
+
+        FileUtils.deleteQuietly(directory);
+        new ReportGenerator(new ReporterConfiguration("output:cascade")).generate(suites, directory.getPath());
+        assertTrue(new File(reporter, "skip-cascade.json").isFile());
+        assertFalse(new File(reporter, "parallelism.json").exists());
+    }
+}
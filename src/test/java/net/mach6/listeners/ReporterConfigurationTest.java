@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+
+package net.mach6.listeners;
+
+import static org.testng.Assert.*;
+
+import net.mach6.listeners.DependencyReportingListener.Option;
+
+import org.testng.annotations.Test;
+
+public class ReporterConfigurationTest {
+
+    @Test
+    public void defaults() {
+        ReporterConfiguration config = new ReporterConfiguration("");
+        for (Option option : Option.values()) {
+            assertEquals(config.get(option), option.getDefault());
+        }
+        assertTrue(config.isEnabled());
+        assertFalse(config.isPrescan());
+        assertTrue(config.isDotOutput());
+        assertTrue(config.isMethodMode());
+    }
+
+    @Test
+    public void nullOptions() {
+        ReporterConfiguration config = new ReporterConfiguration(null);
+        assertTrue(config.isEnabled());
+    }
+
+    @Test
+    public void parse() {
+        ReporterConfiguration config = new ReporterConfiguration("prescan:true, OUTPUT:Json,mode:classes,");
+        assertTrue(config.isPrescan());
+        assertTrue(config.isJsonOutput());
+        assertFalse(config.isDotOutput());
+        assertFalse(config.isPngOutput());
+        assertFalse(config.isTestMode());
+        assertTrue(config.isClassMode());
+        assertTrue(config.isMethodMode());
+        assertTrue(config.isSet(Option.OUTPUT, "dot", "json"));
+    }
+
+    @Test
+    public void binOnlyOnRequest() {
+        assertFalse(new ReporterConfiguration("output:all").isBinOutput());
+        ReporterConfiguration config = new ReporterConfiguration("output:bin");
+        assertTrue(config.isBinOutput());
+        assertFalse(config.isJsonOutput());
+        assertFalse(config.isDotOutput());
+    }
+
+    @Test
+    public void criticalPathOnlyOnRequest() {
+        assertFalse(new ReporterConfiguration("output:all").isCriticalPathOutput());
+        ReporterConfiguration config = new ReporterConfiguration("output:critical");
+        assertTrue(config.isCriticalPathOutput());
+        assertFalse(config.isJsonOutput());
+        assertFalse(config.isDotOutput());
+    }
+
+    @Test
+    public void parallelismOnlyOnRequest() {
+        assertFalse(new ReporterConfiguration("output:all").isParallelismOutput());
+        ReporterConfiguration config = new ReporterConfiguration("output:parallelism");
+        assertTrue(config.isParallelismOutput());
+        assertFalse(config.isJsonOutput());
+        assertFalse(config.isCriticalPathOutput());
+    }
+
+    @Test
+    public void skipCascadeOnlyOnRequest() {
+        assertFalse(new ReporterConfiguration("output:all").isSkipCascadeOutput());
+        ReporterConfiguration config = new ReporterConfiguration("output:cascade");
+        assertTrue(config.isSkipCascadeOutput());
+        assertFalse(config.isDotOutput());
+        assertFalse(config.isParallelismOutput());
+    }
+
+    @Test
+    public void prescanRequiresEnabled() {
+        ReporterConfiguration config = new ReporterConfiguration("prescan:true,enabled:false");
+        assertFalse(config.isEnabled());
+        assertFalse(config.isPrescan());
+    }
+
+    @Test
+    public void writerThreads() {
+        assertEquals(new ReporterConfiguration("").getWriterThreads(), Runtime.getRuntime().availableProcessors());
+        assertEquals(new ReporterConfiguration("threads:3").getWriterThreads(), 3);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void invalidWriterThreads() {
+        new ReporterConfiguration("threads:0");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void missingValue() {
+        new ReporterConfiguration("prescan");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void emptyValue() {
+        new ReporterConfiguration("prescan:");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void unknownOption() {
+        new ReporterConfiguration("outptu:json");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void invalidValue() {
+        new ReporterConfiguration("output:pdf");
+    }
+
+    @Test
+    public void closure() {
+        assertEquals(new ReporterConfiguration("closure:a.b.C$Inner.method").get(Option.CLOSURE),
+                "a.b.C$Inner.method");
+        for (String value : new String[] { "../../etc/passwd", "a/b.c", "a..b", "a\\b.c", "method", ".a.b" }) {
+            try {
+                new ReporterConfiguration("closure:" + value);
+                fail("the closure value " + value + " was accepted");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+}
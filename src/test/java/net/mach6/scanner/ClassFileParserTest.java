@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+
+package net.mach6.scanner;
+
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import net.mach6.scanner.StaticScannerTest.Base;
+import net.mach6.scanner.StaticScannerTest.Child;
+
+import org.testng.annotations.Test;
+
+public class ClassFileParserTest {
+
+    private static ScannedClass parse(Class<?> c) throws IOException {
+        try (InputStream in = StaticScannerTest.classFile(c)) {
+            return ClassFileParser.parse(in);
+        }
+    }
+
+    private static Map<String, ScannedClass.Method> methods(ScannedClass scannedClass) {
+        Map<String, ScannedClass.Method> result = new HashMap<>();
+        for (ScannedClass.Method method : scannedClass.getMethods()) {
+            result.put(method.getName(), method);
+        }
+        return result;
+    }
+
+    @Test
+    public void parseAbstractClass() throws IOException {
+        ScannedClass base = parse(Base.class);
+        assertEquals(base.getName(), Base.class.getName());
+        assertNull(base.getSuperName());
+        assertFalse(base.isConcrete());
+        assertNotNull(base.getTest());
+
+        Map<String, ScannedClass.Method> methods = methods(base);
+        // constructors are not methods
+        assertEquals(methods.keySet().size(), 5);
+        assertEquals(methods.get("first").getTest().getGroups(), Arrays.asList("base"));
+        assertEquals(methods.get("second").getTest().getDependsOnMethods(), Arrays.asList("first"));
+        assertNull(methods.get("byClass").getTest());
+        assertTrue(methods.get("byClass").isPublic());
+        assertFalse(methods.get("notATest").isVoid());
+        assertTrue(methods.get("setUp").hasOtherTestNGAnnotation());
+    }
+
+    @Test
+    public void parseClass() throws IOException {
+        ScannedClass child = parse(Child.class);
+        assertEquals(child.getSuperName(), Base.class.getName());
+        assertTrue(child.isConcrete());
+        assertNull(child.getTest());
+
+        Map<String, ScannedClass.Method> methods = methods(child);
+        assertEquals(methods.get("third").getTest().getDependsOnGroups(), Arrays.asList("base"));
+        assertTrue(methods.get("third").getTest().isEnabled());
+        assertFalse(methods.get("disabled").getTest().isEnabled());
+        assertEquals(methods.get("third").getKey(), "third()");
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void notAClassFile() throws IOException {
+        ClassFileParser.parse(new ByteArrayInputStream(new byte[] { 1, 2, 3, 4 }));
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+
+package net.mach6.scanner;
+
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import net.mach6.Result;
+import net.mach6.TestClassInfo;
+import net.mach6.TestInfo;
+import net.mach6.TestMethodInfo;
+import net.mach6.TestSuiteInfo;
+
+import org.testng.annotations.Test;
+
+public class ResultsXmlReaderTest {
+    private static final String RESULTS = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<testng-results skipped=\"1\" failed=\"1\" total=\"5\" passed=\"3\">\n"
+            + "  <reporter-output></reporter-output>\n"
+            + "  <suite name=\"suite\" duration-ms=\"10\">\n"
+            + "    <groups>\n"
+            + "      <group name=\"base\">\n"
+            + "        <method signature=\"Base.first()[pri:0, instance:a.Child@1]\" name=\"first\" class=\"a.Base\"/>\n"
+            + "      </group>\n"
+            + "    </groups>\n"
+            + "    <test name=\"test\" duration-ms=\"10\">\n"
+            + "      <class name=\"a.Child\">\n"
+            + "        <test-method status=\"PASS\" signature=\"setUp()[pri:0, instance:a.Child@1]\" name=\"setUp\""
+            + " is-config=\"true\"/>\n"
+            + "        <test-method status=\"PASS\" signature=\"first()[pri:0, instance:a.Child@1]\" name=\"first\">\n"
+            + "          <reporter-output><line><![CDATA[output]]></line></reporter-output>\n"
+            + "        </test-method>\n"
+            + "        <test-method status=\"PASS\" signature=\"second()[pri:0, instance:a.Child@1]\" name=\"second\""
+            + " depends-on-methods=\"a.Base.first\"/>\n"
+            + "        <test-method status=\"SKIP\" signature=\"third()[pri:0, instance:a.Child@1]\" name=\"third\""
+            + " depends-on-groups=\"base\" started-at=\"2016-01-01T00:00:02Z\" duration-ms=\"500\"/>\n"
+            + "        <test-method status=\"FAIL\" signature=\"third()[pri:0, instance:a.Child@1]\" name=\"third\""
+            + " depends-on-groups=\"base\" started-at=\"2016-01-01T00:00:00Z\" duration-ms=\"1500\">\n"
+            + "          <exception class=\"java.lang.AssertionError\"><full-stacktrace><![CDATA[trace]]>"
+            + "</full-stacktrace></exception>\n"
+            + "        </test-method>\n"
+            + "      </class>\n"
+            + "    </test>\n"
+            + "  </suite>\n"
+            + "</testng-results>\n";
+
+    private static Set<TestSuiteInfo> read(String xml) throws IOException {
+        return ResultsXmlReader.read(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void read() throws IOException {
+        Set<TestSuiteInfo> suites = read(RESULTS);
+        assertEquals(suites.size(), 1);
+        TestSuiteInfo suite = suites.iterator().next();
+        assertEquals(suite.getName(), "suite");
+        assertTrue(suite.hasFailures());
+        TestInfo test = suite.getTests().iterator().next();
+        assertEquals(test.getName(), "test");
+        TestClassInfo testClass = test.getTestClasses().iterator().next();
+        assertEquals(testClass.getName(), "a.Child");
+
+        Map<String, TestMethodInfo> methods = new HashMap<>();
+        for (TestMethodInfo method : testClass.getTestMethods()) {
+            methods.put(method.getMethodName(), method);
+        }
+        // configuration methods are not reported
+        assertEquals(methods.size(), 3);
+        assertEquals(methods.get("a.Child.first").getResult(), Result.PASSED);
+        assertEquals(methods.get("a.Child.first").getGroups(), Arrays.asList("base"));
+        // qualified with the super class which declares the method
+        assertEquals(methods.get("a.Child.second").getDependentMethods(), Arrays.asList("a.Child.first"));
+        // the worst result of all invocations
+        assertEquals(methods.get("a.Child.third").getResult(), Result.FAILED);
+        assertEquals(methods.get("a.Child.third").getDependentGroups(), Arrays.asList("base"));
+        assertEquals(methods.get("a.Child.third").getDependentMethods(), Arrays.asList("a.Child.first"));
+        // the invocations are folded together
+        TestMethodInfo third = methods.get("a.Child.third");
+        assertEquals(third.getInvocationCount(), 2);
+        assertEquals(third.getDurationMillis(), 2000);
+        assertEquals(third.getEndMillis() - third.getStartMillis(), 2500);
+        assertEquals(methods.get("a.Child.first").getInvocationCount(), 0);
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void malformed() throws IOException {
+        read("<testng-results><suite name=\"s\">");
+    }
+
+    @Test
+    public void worst() {
+        assertEquals(Result.worst(null, Result.SKIPPED), Result.SKIPPED);
+        assertEquals(Result.worst(Result.PASSED, null), Result.PASSED);
+        assertEquals(Result.worst(Result.PASSED, Result.SKIPPED), Result.SKIPPED);
+        assertEquals(Result.worst(Result.FAILED, Result.SKIPPED), Result.FAILED);
+        assertEquals(Result.worst(Result.PASSED, Result.PASSED), Result.PASSED);
+    }
+}
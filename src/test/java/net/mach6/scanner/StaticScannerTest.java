@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+
+package net.mach6.scanner;
+
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import net.mach6.TestClassInfo;
+import net.mach6.TestMethodInfo;
+import net.mach6.TestSuiteInfo;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.testng.xml.XmlClass;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+
+public class StaticScannerTest {
+
+    // fixtures for the scanner, read from their class files. surefire runs them too, which is harmless
+    @Test
+    public abstract static class Base {
+        @Test(groups = "base")
+        public void first() {
+        }
+
+        @Test(dependsOnMethods = "first")
+        public void second() {
+        }
+
+        public void byClass() {
+        }
+
+        public String notATest() {
+            return null;
+        }
+
+        @BeforeMethod
+        public void setUp() {
+        }
+    }
+
+    public static class Child extends Base {
+        @Test(dependsOnGroups = "base")
+        public void third() {
+        }
+
+        @Test(enabled = false)
+        public void disabled() {
+        }
+    }
+
+    static InputStream classFile(Class<?> c) {
+        return c.getResourceAsStream("/" + c.getName().replace('.', '/') + ".class");
+    }
+
+    @Test
+    public void scanJar() throws IOException {
+        File jar = File.createTempFile("scanner", ".jar");
+        jar.deleteOnExit();
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+            for (Class<?> c : Arrays.asList(Base.class, Child.class)) {
+                out.putNextEntry(new JarEntry(c.getName().replace('.', '/') + ".class"));
+                try (InputStream in = classFile(c)) {
+                    IOUtils.copy(in, out);
+                }
+            }
+        }
+        assertChild(new StaticScanner(2).scan("jar", Collections.singletonList(jar)), "jar");
+    }
+
+    @Test
+    public void scanFolder() throws IOException {
+        File dir = Files.createTempDirectory("scanner").toFile();
+        try {
+            for (Class<?> c : Arrays.asList(Base.class, Child.class)) {
+                try (InputStream in = classFile(c)) {
+                    FileUtils.copyInputStreamToFile(in, new File(dir, c.getName().replace('.', '/') + ".class"));
+                }
+            }
+            assertChild(new StaticScanner(2).scan("folder", Collections.singletonList(dir)), "folder");
+        } finally {
+            FileUtils.deleteQuietly(dir);
+        }
+    }
+
+    @Test
+    public void scanXmlSuite() throws IOException {
+        XmlSuite xmlSuite = new XmlSuite();
+        xmlSuite.setName("xml");
+        XmlTest xmlTest = new XmlTest(xmlSuite);
+        xmlTest.setName("xml");
+        xmlTest.getXmlClasses().add(new XmlClass(Child.class.getName(), false));
+        xmlTest.getXmlClasses().add(new XmlClass("net.mach6.scanner.DoesNotExist", false));
+        // the super class is found through the class loader
+        assertChild(StaticScanner.scan(xmlSuite, getClass().getClassLoader()), "xml");
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void unsupportedPath() throws IOException {
+        new StaticScanner(1).scan("bad", Collections.singletonList(new File("pom.xml")));
+    }
+
+    private void assertChild(TestSuiteInfo suite, String name) {
+        assertEquals(suite.getName(), name);
+        assertNull(suite.getISuite());
+        assertEquals(suite.getTests().size(), 1);
+        // the abstract class is not a test class of its own
+        List<TestClassInfo> classes = new ArrayList<>(suite.getTests().iterator().next().getTestClasses());
+        assertEquals(classes.size(), 1);
+        assertEquals(classes.get(0).getName(), Child.class.getName());
+
+        String prefix = Child.class.getName() + ".";
+        Map<String, TestMethodInfo> methods = new HashMap<>();
+        for (TestMethodInfo method : classes.get(0).getTestMethods()) {
+            assertNull(method.getResult());
+            methods.put(method.getMethodName().substring(prefix.length()), method);
+        }
+        assertEquals(methods.keySet(), new HashSet<>(Arrays.asList("first", "second", "byClass", "third")));
+        assertEquals(methods.get("first").getGroups(), Arrays.asList("base"));
+        assertTrue(methods.get("byClass").getDependentMethods().isEmpty());
+        assertEquals(methods.get("second").getDependentMethods(), Arrays.asList(prefix + "first"));
+        assertEquals(methods.get("third").getDependentGroups(), Arrays.asList("base"));
+        assertEquals(methods.get("third").getDependentMethods(), Arrays.asList(prefix + "first"));
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2016 Doug Simmons
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License.
+ * 
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0  
+ */
+
+package net.mach6.svg;
+
+import static org.testng.Assert.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import net.mach6.Result;
+import net.mach6.TestClassInfo;
+import net.mach6.TestInfo;
+import net.mach6.TestMethodInfo;
+import net.mach6.graph.DependencyGraph;
+import net.mach6.graph.EdgeKind;
+import net.mach6.graph.NodeKind;
+
+import org.testng.ITestContext;
+import org.testng.annotations.Test;
+
+public class SvgGraphTest {
+
+    /**
+     * @return a graph of nodes named "0", "1", ... with the edges given as from, to pairs
+     */
+    private static DependencyGraph graph(int nodes, int... edges) {
+        DependencyGraph.Builder builder = new DependencyGraph.Builder();
+        for (int i = 0; i < nodes; i++) {
+            builder.addNode(String.valueOf(i), NodeKind.METHOD, null);
+        }
+        for (int i = 0; i < edges.length; i += 2) {
+            builder.addEdge(edges[i], edges[i + 1], EdgeKind.DEPENDS_ON);
+        }
+        return builder.build();
+    }
+
+    private static int[] sizes(int count, int size) {
+        int[] result = new int[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = size;
+        }
+        return result;
+    }
+
+    @Test
+    public void emptyGraph() throws IOException {
+        SvgGraph svg = new SvgGraph(graph(0));
+        assertTrue(svg.isEmpty());
+        StringBuilder out = new StringBuilder();
+        svg.write(out);
+        assertTrue(out.toString().endsWith("</svg>\n"));
+    }
+
+    @Test
+    public void writesEscapedSvg() throws IOException {
+        DependencyGraph.Builder builder = new DependencyGraph.Builder();
+        int suite = builder.addNode("suite <1>", NodeKind.SUITE, Result.FAILED);
+        builder.addEdge(suite, builder.addNode("c&d", NodeKind.TEST, null), EdgeKind.CONTAINS);
+        StringBuilder out = new StringBuilder();
+        new SvgGraph(builder.build()).write(out);
+
+        String svg = out.toString();
+        assertTrue(svg.startsWith("<?xml"));
+        assertTrue(svg.endsWith("</svg>\n"));
+        assertTrue(svg.contains("<title>suite &lt;1&gt;</title>"));
+        assertTrue(svg.contains(">Suite: suite &lt;1&gt;</text>"));
+        assertTrue(svg.contains(">Test: c&amp;d</text>"));
+        assertTrue(svg.contains("fill=\"red\""));
+        assertEquals(svg.split("<polyline").length - 1, 1);
+        assertEquals(svg.split("<rect").length - 1, 2, "a suite is drawn with two outlines");
+    }
+
+    @Test
+    public void layersFollowEdges() {
+        DependencyGraph graph = graph(4, 0, 1, 1, 2, 0, 3);
+        LayeredLayout layout = new LayeredLayout(graph, sizes(4, 40), sizes(4, 40));
+
+        int[] x = layout.getX();
+        assertTrue(x[0] < x[1]);
+        assertTrue(x[1] < x[2]);
+        assertTrue(x[0] < x[3]);
+        // the edge spanning no extra layers is a straight line between the borders of its nodes
+        int[] points = layout.getEdgePoints(graph.getOutStart(0));
+        assertEquals(points.length, 4);
+        assertEquals(points[0], x[0] + 20);
+        assertEquals(points[2], x[1] - 20);
+    }
+
+    @Test
+    public void layoutHandlesCyclesAndSelfLoops() {
+        DependencyGraph graph = graph(3, 0, 1, 1, 2, 2, 0, 1, 1);
+        LayeredLayout layout = new LayeredLayout(graph, sizes(3, 40), sizes(3, 40));
+
+        // the back edge still starts at its own tail, so it runs against the layers
+        int[] back = layout.getEdgePoints(graph.getOutStart(2));
+        assertEquals(back[0], layout.getX()[2] - 20);
+        assertEquals(back[back.length - 2], layout.getX()[0] + 20);
+        assertEquals(layout.getEdgePoints(graph.getOutStart(1) + 1).length, 8);
+        for (int y : layout.getY()) {
+            assertTrue(y > 0 && y < layout.getHeight());
+        }
+    }
+
+    @Test
+    public void layoutHandlesLongChains() {
+        int count = 20000;
+        int[] edges = new int[2 * (count - 1)];
+        for (int i = 1; i < count; i++) {
+            edges[2 * i - 2] = i - 1;
+            edges[2 * i - 1] = i;
+        }
+        LayeredLayout layout = new LayeredLayout(graph(count, edges), sizes(count, 10), sizes(count, 10));
+        assertTrue(layout.getX()[count - 1] > layout.getX()[0]);
+    }
+
+    @Test
+    public void ofTestInfo(ITestContext ctx) throws IOException {
+        TestInfo testInfo = new TestInfo(ctx, null);
+        SvgGraph svg = SvgGraph.of(testInfo);
+        assertFalse(svg.isEmpty());
+        StringBuilder out = new StringBuilder();
+        svg.write(out);
+        assertTrue(out.toString().contains(">Test: " + ctx.getName() + "</text>"));
+    }
+
+    @Test
+    public void ofModel() throws IOException {
+        Set<TestMethodInfo> methods = new TreeSet<>();
+        List<String> none = Collections.emptyList();
+        methods.add(new TestMethodInfo("a.B.first", none, none, none, none, none));
+        methods.add(new TestMethodInfo("a.B.say\"hi\"", Arrays.asList("g"), none, none, none,
+                Arrays.asList("a.B.first")));
+        TestClassInfo testClass = new TestClassInfo("a.B", methods);
+        DependencyGraph graph = DependencyGraph.of(testClass);
+
+        StringBuilder out = new StringBuilder();
+        SvgGraph.of(testClass).write(out);
+        String svg = out.toString();
+        // drawn from the graph of the model, so names need no dot escaping and nothing is lost to it
+        assertTrue(svg.contains("<title>a.B.say&quot;hi&quot;</title>"));
+        assertEquals(svg.split("<g class=\"node\">", -1).length - 1, graph.getNodeCount());
+        assertEquals(svg.split("<polyline ", -1).length - 1, graph.getEdgeCount());
+    }
+}